@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.benchmarks;
+
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
+import com.ray3k.remotecrashcars.Entity;
+import com.ray3k.remotecrashcars.EntityManager;
+
+/**
+ * Minimal collidable entity that drifts around the 2048x2048 track area and
+ * bounces off its edges.
+ */
+public class BenchmarkEntity extends Entity {
+    public static final float WORLD_SIZE = 2048.0f;
+    private int collisions;
+
+    public BenchmarkEntity(EntityManager manager) {
+        super(manager, null);
+    }
+
+    @Override
+    public void create() {
+    }
+
+    @Override
+    public void act(float delta) {
+        if (getX() < 0 && getXspeed() < 0 || getX() > WORLD_SIZE && getXspeed() > 0) {
+            setXspeed(-getXspeed());
+        }
+        
+        if (getY() < 0 && getYspeed() < 0 || getY() > WORLD_SIZE && getYspeed() > 0) {
+            setYspeed(-getYspeed());
+        }
+    }
+
+    @Override
+    public void act_end(float delta) {
+    }
+
+    @Override
+    public void draw(PolygonSpriteBatch spriteBatch, float delta) {
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    @Override
+    public void collision(Entity other) {
+        collisions++;
+    }
+
+    public int getCollisions() {
+        return collisions;
+    }
+}
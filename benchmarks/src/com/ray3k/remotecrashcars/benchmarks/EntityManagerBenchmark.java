@@ -0,0 +1,89 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.benchmarks;
+
+import com.ray3k.remotecrashcars.EntityManager;
+import com.ray3k.remotecrashcars.RenderQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of one {@link EntityManager#act(float)} tick and one draw pass with a
+ * field of moving, collidable entities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityManagerBenchmark {
+    public static final float STEP_TIME = .01f;
+    @Param({"10", "100", "1000"})
+    public int entityCount;
+    private EntityManager entityManager;
+    private RenderQueue renderQueue;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        entityManager = new EntityManager();
+        renderQueue = new RenderQueue();
+        for (int i = 0; i < entityCount; i++) {
+            BenchmarkEntity entity = new BenchmarkEntity(entityManager);
+            entity.setPosition(random.nextFloat() * BenchmarkEntity.WORLD_SIZE, random.nextFloat() * BenchmarkEntity.WORLD_SIZE);
+            entity.setMotion(100.0f + random.nextFloat() * 400.0f, random.nextFloat() * 360.0f);
+            entity.getCollisionBox().setSize(32.0f, 32.0f);
+            entity.setCheckingCollisions(true);
+            entity.setDepth(random.nextInt(10));
+        }
+    }
+
+    @Benchmark
+    public void act() {
+        entityManager.act(STEP_TIME);
+    }
+
+    /**
+     * Queues and sorts the entities the way a frame does before drawing, which
+     * needs no GL context.
+     */
+    @Benchmark
+    public void draw() {
+        renderQueue.clear();
+        entityManager.draw(renderQueue);
+        renderQueue.sort();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.benchmarks;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.ray3k.remotecrashcars.headless.HeadlessCore;
+import com.ray3k.remotecrashcars.states.GameState;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Boots a {@link HeadlessCore} with a race already started but never steps it
+ * on its own, so benchmarks can drive individual entities from their own
+ * thread.
+ */
+public class HeadlessFixture extends HeadlessCore {
+    private final CountDownLatch created;
+
+    private HeadlessFixture(GameState.Track track, GameState.Model model) {
+        super(track, model, Long.MAX_VALUE);
+        created = new CountDownLatch(1);
+    }
+
+    public static HeadlessFixture start(GameState.Track track, GameState.Model model) throws InterruptedException {
+        return start(track, model, 0);
+    }
+
+    public static HeadlessFixture start(GameState.Track track, GameState.Model model, int opponentCount) throws InterruptedException {
+        HeadlessFixture fixture = new HeadlessFixture(track, model);
+        fixture.setOpponentCount(opponentCount);
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        config.renderInterval = 1.0f;
+        new HeadlessApplication(fixture, config);
+        fixture.created.await();
+        return fixture;
+    }
+
+    @Override
+    public void create() {
+        super.create();
+        created.countDown();
+    }
+
+    @Override
+    public void render() {
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    public void stop() {
+        Gdx.app.exit();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.benchmarks;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.esotericsoftware.spine.SkeletonData;
+import com.ray3k.remotecrashcars.entities.LevelData;
+import com.ray3k.remotecrashcars.entities.TrackCache;
+import com.ray3k.remotecrashcars.headless.HeadlessSkeletonDataLoader;
+import com.ray3k.remotecrashcars.states.GameState;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Track setup cost: building {@link LevelData} (skeleton pose, bounds and
+ * triangulation) from already parsed {@link SkeletonData}, against reading it
+ * from a {@link TrackCache} file into a heap buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelDataBenchmark {
+    @Param({"CIRCLE", "PILL", "HARD"})
+    public GameState.Track track;
+    private SkeletonData skeletonData;
+    private FileHandle source;
+    private FileHandle cache;
+
+    @Setup
+    public void setup() throws IOException {
+        source = new FileHandle(new File(track.getSkeletonPath()));
+        skeletonData = HeadlessSkeletonDataLoader.readSkeletonData(source, 1.0f);
+        
+        File file = File.createTempFile("track", ".bin");
+        file.deleteOnExit();
+        cache = new FileHandle(file);
+        TrackCache.write(new LevelData(skeletonData), cache, source);
+    }
+
+    @Benchmark
+    public LevelData construct() {
+        return new LevelData(skeletonData);
+    }
+
+    @Benchmark
+    public LevelData load() {
+        return TrackCache.read(cache, source);
+    }
+}
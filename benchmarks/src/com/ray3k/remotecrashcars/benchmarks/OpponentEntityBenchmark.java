@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.benchmarks;
+
+import com.badlogic.gdx.utils.Array;
+import com.ray3k.remotecrashcars.Entity;
+import com.ray3k.remotecrashcars.entities.OpponentEntity;
+import com.ray3k.remotecrashcars.states.GameState;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One tick of every {@link OpponentEntity} in a race, driving around the
+ * racing line: path following, the vehicle step and the wall query. A full
+ * 100 Hz tick rate allows 10 ms per tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpponentEntityBenchmark {
+    @Param({"HARD"})
+    public GameState.Track track;
+    @Param({"1", "50"})
+    public int opponentCount;
+    private HeadlessFixture fixture;
+    private Array<OpponentEntity> opponents;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        fixture = HeadlessFixture.start(track, GameState.Model.CAR, opponentCount);
+        opponents = new Array<OpponentEntity>();
+        for (Entity entity : fixture.getGameState().getEntityManager().getEntities()) {
+            if (entity instanceof OpponentEntity) {
+                opponents.add((OpponentEntity) entity);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.stop();
+    }
+
+    @Benchmark
+    public void act() {
+        for (int i = 0; i < opponents.size; i++) {
+            opponents.get(i).act(EntityManagerBenchmark.STEP_TIME);
+        }
+    }
+}
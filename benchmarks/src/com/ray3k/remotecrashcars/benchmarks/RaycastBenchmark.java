@@ -0,0 +1,106 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.benchmarks;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.ray3k.remotecrashcars.entities.DistanceField;
+import com.ray3k.remotecrashcars.entities.LevelData;
+import com.ray3k.remotecrashcars.headless.HeadlessSkeletonDataLoader;
+import com.ray3k.remotecrashcars.states.GameState;
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link LevelData#castRays(float, float, float, float[], float, float[])}
+ * from 64 random poses on the track with 16 rays each, 1024 rays per
+ * operation, with and without the distance field shortening them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RaycastBenchmark {
+    public final static int POSE_COUNT = 64;
+    public final static int RAY_COUNT = 16;
+    public final static float RANGE = 512.0f;
+    @Param({"CIRCLE", "PILL", "HARD"})
+    public GameState.Track track;
+    @Param({"true", "false"})
+    public boolean distanceField;
+    private LevelData levelData;
+    private float[] poses;
+    private float[] angles;
+    private float[] results;
+
+    @Setup
+    public void setup() {
+        FileHandle source = new FileHandle(new File(track.getSkeletonPath()));
+        levelData = new LevelData(HeadlessSkeletonDataLoader.readSkeletonData(source, 1.0f));
+        if (distanceField) {
+            levelData.setDistanceField(DistanceField.bake(levelData.getTree(), LevelData.WORLD_SIZE, DistanceField.DEFAULT_CELL_SIZE));
+        }
+        
+        Random random = new Random(1);
+        poses = new float[POSE_COUNT * 3];
+        for (int i = 0; i < POSE_COUNT; i++) {
+            float x;
+            float y;
+            do {
+                x = random.nextFloat() * LevelData.WORLD_SIZE;
+                y = random.nextFloat() * LevelData.WORLD_SIZE;
+            } while (levelData.isInsideWall(x, y));
+            poses[i * 3] = x;
+            poses[i * 3 + 1] = y;
+            poses[i * 3 + 2] = random.nextFloat() * 360.0f;
+        }
+        
+        angles = new float[RAY_COUNT];
+        for (int i = 0; i < RAY_COUNT; i++) {
+            angles[i] = i * 360.0f / RAY_COUNT;
+        }
+        results = new float[POSE_COUNT * RAY_COUNT * LevelData.RAY_STRIDE];
+    }
+
+    @Benchmark
+    public float[] castRays() {
+        for (int i = 0; i < POSE_COUNT; i++) {
+            levelData.castRays(poses[i * 3], poses[i * 3 + 1], poses[i * 3 + 2], angles, 0, RAY_COUNT, RANGE, results, i * RAY_COUNT * LevelData.RAY_STRIDE);
+        }
+        return results;
+    }
+}
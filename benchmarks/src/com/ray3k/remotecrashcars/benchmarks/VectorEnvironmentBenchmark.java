@@ -0,0 +1,89 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.benchmarks;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessFiles;
+import com.ray3k.remotecrashcars.InputFrame;
+import com.ray3k.remotecrashcars.headless.VectorEnvironment;
+import com.ray3k.remotecrashcars.states.GameState;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One {@link VectorEnvironment#step(int[])} of 4096 races on the hard track
+ * with random throttle and steering, on one thread and on every core.
+ * Multiply the score by 4096 for race ticks per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorEnvironmentBenchmark {
+    public final static int RACE_COUNT = 4096;
+    @Param({"HARD"})
+    public GameState.Track track;
+    @Param({"1", "0"})
+    public int parallelism;
+    private VectorEnvironment environment;
+    private int[] actions;
+
+    @Setup
+    public void setup() {
+        Gdx.files = new HeadlessFiles();
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        environment = VectorEnvironment.create(track, GameState.Model.CAR, RACE_COUNT, threads);
+        environment.setMaxTicks(6000);
+        
+        Random random = new Random(1);
+        actions = new int[RACE_COUNT];
+        for (int i = 0; i < RACE_COUNT; i++) {
+            actions[i] = InputFrame.UP | (random.nextBoolean() ? InputFrame.LEFT : InputFrame.RIGHT);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        environment.dispose();
+    }
+
+    @Benchmark
+    public float[] step() {
+        return environment.step(actions);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.benchmarks;
+
+import com.ray3k.remotecrashcars.entities.VehicleInput;
+import com.ray3k.remotecrashcars.entities.VehicleSimulator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One tick of N {@link VehicleSimulator}s with random, fixed controls, the
+ * pure kinematics without any entity, skeleton or collision work. The cost
+ * should not depend on the input latency.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VehicleSimulatorBenchmark {
+    @Param({"1", "1000"})
+    public int vehicleCount;
+    @Param({"0", "50"})
+    public int latency;
+    private VehicleSimulator[] simulators;
+    private VehicleInput[] inputs;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        simulators = new VehicleSimulator[vehicleCount];
+        inputs = new VehicleInput[vehicleCount];
+        for (int i = 0; i < vehicleCount; i++) {
+            simulators[i] = new VehicleSimulator();
+            simulators[i].setTuning(500.0f, 500.0f, 200.0f, 375.0f, 25.0f);
+            simulators[i].setLatency(latency);
+            simulators[i].reset(random.nextFloat() * 2048.0f, random.nextFloat() * 2048.0f, random.nextFloat() * 360.0f);
+            inputs[i] = new VehicleInput();
+            inputs[i].set(true, false, random.nextBoolean(), random.nextBoolean());
+        }
+    }
+
+    @Benchmark
+    public void step() {
+        for (int i = 0; i < vehicleCount; i++) {
+            simulators[i].step(inputs[i], EntityManagerBenchmark.STEP_TIME);
+        }
+    }
+}
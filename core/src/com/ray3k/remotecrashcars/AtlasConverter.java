@@ -0,0 +1,123 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
+import java.io.IOException;
+
+/**
+ * Converts the page images of a texture atlas to another
+ * {@link TextureFormat}, writing them into the cache with a copy of the atlas
+ * that points at them. Load the copy in place of the original, for instance
+ * as a skin's atlas, once {@link #isUpToDate(FileHandle, FileHandle)}.
+ */
+public class AtlasConverter {
+    /**
+     * @return the local file the converted copy of the given atlas is
+     * written to.
+     */
+    public static FileHandle getAtlasFile(String atlasPath) {
+        return Gdx.files.local(Core.DATA_PATH + "/cache/atlas/" + Gdx.files.local(atlasPath).name());
+    }
+
+    /**
+     * @return true if the converted atlas exists and is newer than the atlas
+     * and every one of its page images.
+     */
+    public static boolean isUpToDate(FileHandle atlas, FileHandle converted) {
+        if (!converted.exists() || converted.lastModified() < atlas.lastModified()) {
+            return false;
+        }
+        
+        TextureAtlasData data = new TextureAtlasData(atlas, atlas.parent(), false);
+        for (TextureAtlasData.Page page : data.getPages()) {
+            if (converted.lastModified() < page.textureFile.lastModified()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes every page of the atlas in the given format next to the
+     * converted atlas, then the atlas itself with each page's file name and
+     * format replaced.
+     */
+    public static void convert(FileHandle atlas, FileHandle converted, TextureFormat format) throws IOException {
+        TextureAtlasData data = new TextureAtlasData(atlas, atlas.parent(), false);
+        for (TextureAtlasData.Page page : data.getPages()) {
+            Pixmap image = new Pixmap(page.textureFile);
+            try {
+                format.write(image, converted.sibling(getPageName(page.textureFile, format)));
+            } finally {
+                image.dispose();
+            }
+        }
+        
+        String[] lines = atlas.readString("UTF-8").split("\r?\n", -1);
+        StringBuilder builder = new StringBuilder();
+        boolean pageNext = true;
+        boolean header = false;
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            if (line.trim().length() == 0) {
+                pageNext = true;
+                header = false;
+            } else if (pageNext) {
+                line = getPageName(atlas.parent().child(line.trim()), format);
+                pageNext = false;
+                header = true;
+            } else if (header && line.startsWith("format:")) {
+                line = "format: " + getPixmapFormat(format);
+            } else if (!line.contains(":")) {
+                header = false;
+            }
+            builder.append(line);
+            if (i < lines.length - 1) {
+                builder.append('\n');
+            }
+        }
+        converted.writeString(builder.toString(), false, "UTF-8");
+    }
+
+    private static String getPageName(FileHandle page, TextureFormat format) {
+        return page.nameWithoutExtension() + "." + format.getExtension();
+    }
+
+    private static Pixmap.Format getPixmapFormat(TextureFormat format) {
+        switch (format) {
+            case RGB565:
+                return Pixmap.Format.RGB565;
+            case RGBA4444:
+                return Pixmap.Format.RGBA4444;
+            case ETC1:
+                return Pixmap.Format.RGB565;
+            default:
+                return Pixmap.Format.RGBA8888;
+        }
+    }
+}
@@ -26,17 +26,16 @@ package com.ray3k.remotecrashcars;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.SkinLoader;
 import com.badlogic.gdx.assets.loaders.resolvers.LocalFileHandleResolver;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.g2d.PixmapPacker;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.ObjectMap;
-import com.badlogic.gdx.utils.TimeUtils;
 import com.esotericsoftware.spine.SkeletonData;
 import com.esotericsoftware.spine.SkeletonRenderer;
 import com.ray3k.remotecrashcars.SkeletonDataLoader.SkeletonDataLoaderParameter;
@@ -54,16 +53,15 @@ import javax.swing.JOptionPane;
 public class Core extends ApplicationAdapter {
     public final static String VERSION = "1";
     public final static String DATA_PATH = "remote_crash_cars_data";
-    private final static long MS_PER_UPDATE = 10;
     private AssetManager assetManager;
     private StateManager stateManager;
-    private SpriteBatch spriteBatch;
+    private RenderBatch spriteBatch;
     private PixmapPacker pixmapPacker;
-    private long previous;
-    private long lag;
+    private FrameClock frameClock;
     private TextureAtlas atlas;
     private SkeletonRenderer skeletonRenderer;
     private ObjectMap<String, Array<String>> imagePacks;
+    private boolean recordingInput;
 
     @Override
     public void create() {
@@ -72,8 +70,7 @@ public class Core extends ApplicationAdapter {
 
             loadAssets();
 
-            previous = TimeUtils.millis();
-            lag = 0;
+            frameClock.reset();
 
             stateManager.loadState("loading");
         } catch (Exception e) {
@@ -114,29 +111,28 @@ public class Core extends ApplicationAdapter {
         stateManager.addState("game", new GameState(this));
         stateManager.addState("game-over", new GameOverState(this));
         
-        spriteBatch = new SpriteBatch();
+        if (!isHeadless()) {
+            spriteBatch = new RenderBatch();
+        }
         
         pixmapPacker = new PixmapPacker(1024, 1024, Pixmap.Format.RGBA8888, 5, true, new PixmapPacker.GuillotineStrategy());
         
         skeletonRenderer = new SkeletonRenderer();
         
         imagePacks = new ObjectMap<String, Array<String>>();
+        
+        frameClock = new FrameClock();
     }
     
     @Override
     public void render() {
         try {
-            long current = TimeUtils.millis();
-            long elapsed = current - previous;
-            previous = current;
-            lag += elapsed;
-
-            while (lag >= MS_PER_UPDATE) {
-                stateManager.act(MS_PER_UPDATE / 1000.0f);
-                lag -= MS_PER_UPDATE;
+            int ticks = frameClock.update();
+            for (int i = 0; i < ticks; i++) {
+                stateManager.act(frameClock.getStepTime());
             }
 
-            stateManager.draw(spriteBatch, lag / MS_PER_UPDATE);
+            stateManager.draw(spriteBatch, frameClock.getAlpha());
         } catch (Exception e) {
             e.printStackTrace();
             
@@ -173,6 +169,9 @@ public class Core extends ApplicationAdapter {
         if (atlas != null) {
             atlas.dispose();
         }
+        if (spriteBatch != null) {
+            spriteBatch.dispose();
+        }
     }
     
     public void loadAssets() {
@@ -185,14 +184,23 @@ public class Core extends ApplicationAdapter {
         assetManager.load(DATA_PATH + "/spine/track-pill.json", SkeletonData.class, parameter);
         assetManager.load(DATA_PATH + "/spine/track-hard.json", SkeletonData.class, parameter);
         
-        assetManager.load(DATA_PATH + "/ui/remote-crash-cars.json", Skin.class);
-
-        assetManager.load(DATA_PATH + "/gfx/white.png", Pixmap.class);
-        
         assetManager.load(DATA_PATH + "/sfx/beep.wav", Sound.class);
         assetManager.load(DATA_PATH + "/sfx/engine.wav", Sound.class);
         assetManager.load(DATA_PATH + "/sfx/explosion.wav", Sound.class);
         
+        if (isHeadless()) {
+            return;
+        }
+        
+        FileHandle uiAtlas = AtlasConverter.getAtlasFile(DATA_PATH + "/ui/remote-crash-cars.atlas");
+        if (AtlasConverter.isUpToDate(Gdx.files.local(DATA_PATH + "/ui/remote-crash-cars.atlas"), uiAtlas)) {
+            assetManager.load(DATA_PATH + "/ui/remote-crash-cars.json", Skin.class, new SkinLoader.SkinParameter(uiAtlas.path()));
+        } else {
+            assetManager.load(DATA_PATH + "/ui/remote-crash-cars.json", Skin.class);
+        }
+
+        assetManager.load(DATA_PATH + "/gfx/white.png", Pixmap.class);
+        
         for (String directory : imagePacks.keys()) {
             FileHandle folder = Gdx.files.local(directory);
             for (FileHandle file : folder.list()) {
@@ -204,12 +212,12 @@ public class Core extends ApplicationAdapter {
 
     @Override
     public void resume() {
-        
+        frameClock.reset();
     }
 
     @Override
     public void pause() {
-        
+        frameClock.stop();
     }
 
     @Override
@@ -240,8 +248,40 @@ public class Core extends ApplicationAdapter {
     public SkeletonRenderer getSkeletonRenderer() {
         return skeletonRenderer;
     }
+
+    /**
+     * @return the batch every state draws with, or null when headless.
+     */
+    public RenderBatch getSpriteBatch() {
+        return spriteBatch;
+    }
     
     public ObjectMap<String, Array<String>> getImagePacks() {
         return imagePacks;
     }
+
+    public FrameClock getFrameClock() {
+        return frameClock;
+    }
+    
+    /**
+     * @return true when running without a GL context. Nothing that needs
+     * textures, batches or scene2d is created in this mode; only the spine
+     * data, sounds and the simulation are available.
+     */
+    public boolean isHeadless() {
+        return false;
+    }
+
+    /**
+     * @return true if every race writes an {@link InputLog} of its input to
+     * the replays folder when it ends.
+     */
+    public boolean isRecordingInput() {
+        return recordingInput;
+    }
+
+    public void setRecordingInput(boolean recordingInput) {
+        this.recordingInput = recordingInput;
+    }
 }
@@ -23,22 +23,28 @@
  */
 package com.ray3k.remotecrashcars;
 
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.ray3k.remotecrashcars.Core;
 import com.ray3k.remotecrashcars.Core;
 import com.ray3k.remotecrashcars.EntityManager;
 
-public abstract class Entity {
+public abstract class Entity implements RenderQueue.Renderable {
     private static final Vector2 temp = new Vector2();
     private final Vector2 position;
+    private final Vector2 previousPosition;
+    private float previousRotation;
     private final Vector2 speed;
     private final Vector2 offset;
     private final Vector2 scale;
     private float rotation;
     private TextureRegion textureRegion;
+    private Texture texture;
+    private boolean additive;
     private boolean destroyed;
     private final EntityManager manager;
     private final Core core;
@@ -50,6 +56,7 @@ public abstract class Entity {
 
     public Entity(EntityManager manager, Core core) {
         position = new Vector2();
+        previousPosition = new Vector2();
         speed = new Vector2();
         offset = new Vector2();
         scale = new Vector2();
@@ -78,7 +85,20 @@ public abstract class Entity {
     
     public abstract void act_end(float delta);
     
-    public abstract void draw(SpriteBatch spriteBatch, float delta);
+    public abstract void draw(PolygonSpriteBatch spriteBatch, float delta);
+    
+    /**
+     * Draws the texture region, if any, at the interpolated transform and then
+     * calls {@link #draw(PolygonSpriteBatch, float)}.
+     */
+    @Override
+    public void render(PolygonSpriteBatch batch, float delta) {
+        if (textureRegion != null) {
+            batch.draw(textureRegion, MathUtils.lerp(getPreviousX(), getX(), delta), MathUtils.lerp(getPreviousY(), getY(), delta), getOffsetX(), getOffsetY(), textureRegion.getRegionWidth(), textureRegion.getRegionHeight(), getScaleX(), getScaleY(), MathUtils.lerpAngleDeg(getPreviousRotation(), getRotation(), delta));
+        }
+        
+        draw(batch, delta);
+    }
     
     public abstract void destroy();
     
@@ -91,6 +111,27 @@ public abstract class Entity {
         }
     }
 
+    /**
+     * Remembers the current position and rotation so that draw calls can
+     * interpolate between the last two simulation ticks.
+     */
+    public void storePreviousTransform() {
+        previousPosition.set(position);
+        previousRotation = rotation;
+    }
+    
+    public float getPreviousX() {
+        return previousPosition.x;
+    }
+    
+    public float getPreviousY() {
+        return previousPosition.y;
+    }
+    
+    public float getPreviousRotation() {
+        return previousRotation;
+    }
+    
     public Vector2 getPosition() {
         return position.cpy();
     }
@@ -243,6 +284,33 @@ public abstract class Entity {
         this.textureRegion = textureRegion;
     }
 
+    /**
+     * @return the texture the entity is drawn from, which the
+     * {@link RenderQueue} groups draws by: the one set with
+     * {@link #setTexture(Texture)}, or else the texture region's.
+     */
+    public Texture getTexture() {
+        if (texture == null && textureRegion != null) {
+            return textureRegion.getTexture();
+        }
+        return texture;
+    }
+
+    public void setTexture(Texture texture) {
+        this.texture = texture;
+    }
+
+    public boolean isAdditive() {
+        return additive;
+    }
+
+    /**
+     * @param additive whether the entity is drawn with additive blending.
+     */
+    public void setAdditive(boolean additive) {
+        this.additive = additive;
+    }
+
     public Core getCore() {
         return core;
     }
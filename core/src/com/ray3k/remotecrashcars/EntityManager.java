@@ -24,16 +24,26 @@
 
 package com.ray3k.remotecrashcars;
 
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.utils.Array;
-import java.util.Comparator;
 import java.util.Iterator;
 
 public class EntityManager {
     private final Array<Entity> entities;
+    private final SpatialHash spatialHash;
+    private final Array<Entity> candidates;
     
     public EntityManager() {
+        this(SpatialHash.DEFAULT_CELL_SIZE);
+    }
+    
+    /**
+     * @param cellSize size of the broadphase grid cells, roughly the size of
+     * the larger collision boxes.
+     */
+    public EntityManager(float cellSize) {
         entities = new Array<Entity>();
+        spatialHash = new SpatialHash(cellSize);
+        candidates = new Array<Entity>();
     }
     
     public void addEntity(Entity entity) {
@@ -49,6 +59,8 @@ public class EntityManager {
         while (iter.hasNext()) {
             Entity entity = iter.next();
             if (!entity.isDestroyed()) {
+                entity.storePreviousTransform();
+                
                 entity.addXspeed(entity.getGravityX() * delta);
                 entity.addYspeed(entity.getGravityY() * delta);
                 
@@ -58,19 +70,26 @@ public class EntityManager {
                 entity.getCollisionBox().setPosition(entity.getX() + entity.getCollisionBoxX(), entity.getY() + entity.getCollisionBoxY());
                 entity.act(delta);
                 
-                for (int i = 0; i < entities.size ; i++) {
-                    if (!entity.isDestroyed() && entity.isCheckingCollisions()) {
-                        Entity other = entities.get(i);
-                        if (other.isCheckingCollisions()) {
-                            if (entity.getCollisionBox().overlaps(other.getCollisionBox())) {
-                                entity.collision(other);
+                if (!entity.isDestroyed() && entity.isCheckingCollisions()) {
+                    spatialHash.update(entity);
+                    spatialHash.query(entity, candidates);
+                    for (int i = 0; i < candidates.size; i++) {
+                        if (!entity.isDestroyed() && entity.isCheckingCollisions()) {
+                            Entity other = candidates.get(i);
+                            if (other.isCheckingCollisions()) {
+                                if (entity.getCollisionBox().overlaps(other.getCollisionBox())) {
+                                    entity.collision(other);
+                                }
                             }
+                        } else {
+                            break;
                         }
-                    } else {
-                        break;
                     }
+                } else {
+                    spatialHash.remove(entity);
                 }
             } else {
+                spatialHash.remove(entity);
                 iter.remove();
             }
         }
@@ -83,21 +102,14 @@ public class EntityManager {
         }
     }
     
-    public void draw(SpriteBatch spriteBatch, float delta) {
-        entities.sort(new Comparator<Entity>() {
-            @Override
-            public int compare(Entity o1, Entity o2) {
-                return o2.getDepth() - o1.getDepth();
-            }
-        });
-        
-        for (Entity entity : entities) {
+    /**
+     * Queues every live entity on the entity layer, at its depth.
+     */
+    public void draw(RenderQueue renderQueue) {
+        for (int i = 0; i < entities.size; i++) {
+            Entity entity = entities.get(i);
             if (!entity.isDestroyed()) {
-                if (entity.getTextureRegion() != null) {
-                    spriteBatch.draw(entity.getTextureRegion(), entity.getX() + entity.getXspeed() * delta, entity.getY() + entity.getYspeed() * delta, entity.getOffsetX(), entity.getOffsetY(), entity.getTextureRegion().getRegionWidth(), entity.getTextureRegion().getRegionHeight(), entity.getScaleX(), entity.getScaleY(), entity.getRotation());
-                }
-                
-                entity.draw(spriteBatch, delta);
+                renderQueue.add(RenderQueue.LAYER_ENTITIES, entity.getDepth(), entity.getTexture(), entity.isAdditive(), entity);
             }
         }
     }
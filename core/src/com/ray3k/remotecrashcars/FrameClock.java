@@ -0,0 +1,155 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars;
+
+/**
+ * Fixed-step clock driven by {@link System#nanoTime()}. Each frame call
+ * {@link #update()} to find out how many simulation ticks to run, then draw with
+ * {@link #getAlpha()}, the fraction of a tick left over in the accumulator.
+ * Catch-up is capped at a configurable number of ticks per frame so a stall
+ * (window drag, pause, breakpoint) can't snowball into hundreds of ticks.
+ */
+public class FrameClock {
+    public final static int DEFAULT_TICKS_PER_SECOND = 100;
+    public final static int DEFAULT_MAX_STEPS = 5;
+    private long nanosPerTick;
+    private float stepTime;
+    private int maxSteps;
+    private long previous;
+    private long lag;
+    private int frameTicks;
+    private long droppedTicks;
+    private long totalTicks;
+    private boolean running;
+
+    public FrameClock() {
+        this(DEFAULT_TICKS_PER_SECOND, DEFAULT_MAX_STEPS);
+    }
+
+    public FrameClock(int ticksPerSecond, int maxSteps) {
+        setTicksPerSecond(ticksPerSecond);
+        setMaxSteps(maxSteps);
+        reset();
+    }
+
+    /**
+     * Restarts timing from now and discards any accumulated lag. Call after
+     * anything that stops the render loop so the gap isn't simulated.
+     */
+    public void reset() {
+        previous = System.nanoTime();
+        lag = 0;
+        frameTicks = 0;
+        running = true;
+    }
+
+    /**
+     * Stops accumulating time until the next {@link #reset()}.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Advances the clock to the current time.
+     * @return the number of fixed ticks the caller should simulate this frame.
+     */
+    public int update() {
+        if (!running) {
+            reset();
+        }
+
+        long current = System.nanoTime();
+        lag += current - previous;
+        previous = current;
+
+        frameTicks = (int) Math.min(lag / nanosPerTick, Integer.MAX_VALUE);
+        lag -= frameTicks * nanosPerTick;
+
+        if (frameTicks > maxSteps) {
+            droppedTicks += frameTicks - maxSteps;
+            frameTicks = maxSteps;
+        }
+
+        totalTicks += frameTicks;
+        return frameTicks;
+    }
+
+    /**
+     * @return how far between the last simulated tick and the next one the
+     * current frame lies, from 0 inclusive to 1 exclusive.
+     */
+    public float getAlpha() {
+        return (float) ((double) lag / nanosPerTick);
+    }
+
+    /**
+     * @return the fixed simulation delta in seconds.
+     */
+    public float getStepTime() {
+        return stepTime;
+    }
+
+    public int getTicksPerSecond() {
+        return (int) (1000000000L / nanosPerTick);
+    }
+
+    public void setTicksPerSecond(int ticksPerSecond) {
+        if (ticksPerSecond <= 0) {
+            throw new IllegalArgumentException("ticksPerSecond must be positive: " + ticksPerSecond);
+        }
+        nanosPerTick = 1000000000L / ticksPerSecond;
+        stepTime = nanosPerTick / 1000000000.0f;
+    }
+
+    public int getMaxSteps() {
+        return maxSteps;
+    }
+
+    public void setMaxSteps(int maxSteps) {
+        if (maxSteps <= 0) {
+            throw new IllegalArgumentException("maxSteps must be positive: " + maxSteps);
+        }
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * @return the number of ticks handed out by the last {@link #update()}.
+     */
+    public int getFrameTicks() {
+        return frameTicks;
+    }
+
+    /**
+     * @return the number of ticks thrown away because a frame exceeded the
+     * catch-up limit.
+     */
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    public long getTotalTicks() {
+        return totalTicks;
+    }
+}
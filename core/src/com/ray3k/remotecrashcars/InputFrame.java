@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars;
+
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.Input.Keys;
+
+/**
+ * The game controls held during one fixed tick, packed into bits so a frame
+ * can be recorded, compared and replayed cheaply.
+ */
+public class InputFrame {
+    public final static int UP = 1;
+    public final static int DOWN = 1 << 1;
+    public final static int LEFT = 1 << 2;
+    public final static int RIGHT = 1 << 3;
+    public final static int ESCAPE = 1 << 4;
+    private int bits;
+
+    /**
+     * Reads the current state of the game keys.
+     */
+    public void poll(Input input) {
+        bits = 0;
+        if (input.isKeyPressed(Keys.UP)) {
+            bits |= UP;
+        }
+        if (input.isKeyPressed(Keys.DOWN)) {
+            bits |= DOWN;
+        }
+        if (input.isKeyPressed(Keys.LEFT)) {
+            bits |= LEFT;
+        }
+        if (input.isKeyPressed(Keys.RIGHT)) {
+            bits |= RIGHT;
+        }
+        if (input.isKeyPressed(Keys.ESCAPE)) {
+            bits |= ESCAPE;
+        }
+    }
+
+    /**
+     * @param button one or more of the button constants.
+     * @return true if any of the buttons is held.
+     */
+    public boolean isPressed(int button) {
+        return (bits & button) != 0;
+    }
+
+    public int getBits() {
+        return bits;
+    }
+
+    public void setBits(int bits) {
+        this.bits = bits;
+    }
+}
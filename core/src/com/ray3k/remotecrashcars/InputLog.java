@@ -0,0 +1,289 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Run length encoded recording of the {@link InputFrame} of every tick of a
+ * race, along with the track, model, tick rate and race settings needed to
+ * play it back.
+ * <p>
+ * The file holds a small header followed by one run per change of input: the
+ * frame bits in a byte and the number of ticks they were held as a variable
+ * length integer, so a held key costs two or three bytes however long it is
+ * held.
+ */
+public class InputLog {
+    public final static int MAGIC = 0x52434952;
+    public final static int VERSION = 3;
+    public final static String EXTENSION = "rcr";
+    private final String track;
+    private final String model;
+    private final int ticksPerSecond;
+    private float acceleration;
+    private float maxSpeed;
+    private float friction;
+    private float braking;
+    private float steerAngle;
+    private float inputLatency;
+    private int opponentCount;
+    private final IntArray runs;
+    private int ticks;
+
+    public InputLog(String track, String model, int ticksPerSecond) {
+        this.track = track;
+        this.model = model;
+        this.ticksPerSecond = ticksPerSecond;
+        runs = new IntArray();
+    }
+
+    /**
+     * Appends the frame of the next tick.
+     */
+    public void add(int bits) {
+        if (runs.size > 0 && runs.get(runs.size - 2) == bits && runs.get(runs.size - 1) < Integer.MAX_VALUE) {
+            runs.incr(runs.size - 1, 1);
+        } else {
+            runs.add(bits);
+            runs.add(1);
+        }
+        ticks++;
+    }
+
+    public Playback createPlayback() {
+        return new Playback();
+    }
+
+    /**
+     * Reads frames back in order, one per tick.
+     */
+    public class Playback {
+        private int run;
+        private int remaining;
+        private int tick;
+
+        private Playback() {
+            remaining = runs.size > 0 ? runs.get(1) : 0;
+        }
+
+        /**
+         * Sets the frame to the next recorded tick, or to no buttons once the
+         * log is finished.
+         */
+        public void next(InputFrame frame) {
+            if (isFinished()) {
+                frame.setBits(0);
+                return;
+            }
+            
+            frame.setBits(runs.get(run));
+            tick++;
+            remaining--;
+            if (remaining == 0) {
+                run += 2;
+                if (run < runs.size) {
+                    remaining = runs.get(run + 1);
+                }
+            }
+        }
+
+        public boolean isFinished() {
+            return tick >= ticks;
+        }
+
+        public int getTick() {
+            return tick;
+        }
+    }
+
+    public void write(FileHandle file) throws IOException {
+        DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(file.write(false)));
+        try {
+            stream.writeInt(MAGIC);
+            stream.writeByte(VERSION);
+            stream.writeUTF(track);
+            stream.writeUTF(model);
+            stream.writeShort(ticksPerSecond);
+            stream.writeFloat(acceleration);
+            stream.writeFloat(maxSpeed);
+            stream.writeFloat(friction);
+            stream.writeFloat(braking);
+            stream.writeFloat(steerAngle);
+            stream.writeFloat(inputLatency);
+            stream.writeInt(opponentCount);
+            stream.writeInt(runs.size / 2);
+            for (int i = 0; i < runs.size; i += 2) {
+                stream.writeByte(runs.get(i));
+                writeVarInt(stream, runs.get(i + 1));
+            }
+        } finally {
+            stream.close();
+        }
+    }
+
+    public static InputLog read(FileHandle file) throws IOException {
+        DataInputStream stream = new DataInputStream(new BufferedInputStream(file.read()));
+        try {
+            if (stream.readInt() != MAGIC) {
+                throw new GdxRuntimeException("Not an input log: " + file.path());
+            }
+            int version = stream.readUnsignedByte();
+            if (version != VERSION) {
+                throw new GdxRuntimeException("Unsupported input log version " + version + ": " + file.path());
+            }
+            
+            InputLog log = new InputLog(stream.readUTF(), stream.readUTF(), stream.readUnsignedShort());
+            log.acceleration = stream.readFloat();
+            log.maxSpeed = stream.readFloat();
+            log.friction = stream.readFloat();
+            log.braking = stream.readFloat();
+            log.steerAngle = stream.readFloat();
+            log.inputLatency = stream.readFloat();
+            log.opponentCount = stream.readInt();
+            int runCount = stream.readInt();
+            log.runs.ensureCapacity(runCount * 2);
+            for (int i = 0; i < runCount; i++) {
+                int bits = stream.readUnsignedByte();
+                int count = readVarInt(stream);
+                log.runs.add(bits);
+                log.runs.add(count);
+                log.ticks += count;
+            }
+            return log;
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream stream, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            stream.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        stream.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream stream) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = stream.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed run length");
+    }
+
+    public String getTrack() {
+        return track;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    public float getAcceleration() {
+        return acceleration;
+    }
+
+    public void setAcceleration(float acceleration) {
+        this.acceleration = acceleration;
+    }
+
+    public float getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    public void setMaxSpeed(float maxSpeed) {
+        this.maxSpeed = maxSpeed;
+    }
+
+    public float getFriction() {
+        return friction;
+    }
+
+    public void setFriction(float friction) {
+        this.friction = friction;
+    }
+
+    public float getBraking() {
+        return braking;
+    }
+
+    public void setBraking(float braking) {
+        this.braking = braking;
+    }
+
+    public float getSteerAngle() {
+        return steerAngle;
+    }
+
+    public void setSteerAngle(float steerAngle) {
+        this.steerAngle = steerAngle;
+    }
+
+    public float getInputLatency() {
+        return inputLatency;
+    }
+
+    public void setInputLatency(float inputLatency) {
+        this.inputLatency = inputLatency;
+    }
+
+    public int getOpponentCount() {
+        return opponentCount;
+    }
+
+    public void setOpponentCount(int opponentCount) {
+        this.opponentCount = opponentCount;
+    }
+
+    /**
+     * @return the number of recorded ticks.
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * @return the number of runs, the number of times the input changed plus
+     * one.
+     */
+    public int getRunCount() {
+        return runs.size / 2;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars;
+
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
+
+/**
+ * {@link PolygonSpriteBatch} that counts how often it flushes, so the cost of
+ * a frame can be measured. Spine meshes need a polygon batch, and one batch
+ * for the whole frame lets the track, the cars and the HUD share a single
+ * {@link #begin()} and {@link #end()}.
+ * <p>
+ * Counters cover everything since the last {@link #begin()}. A flush is any
+ * point where the batch had to stop collecting vertices: a texture, blend
+ * or projection change, a full buffer or {@link #end()}. Draw calls are the
+ * flushes that actually had vertices to send.
+ */
+public class RenderBatch extends PolygonSpriteBatch {
+    /**
+     * The most vertices a batch can hold, so that only a texture or state
+     * change ends a run of sprites.
+     */
+    public final static int DEFAULT_SIZE = 32767;
+    private int flushes;
+
+    public RenderBatch() {
+        this(DEFAULT_SIZE);
+    }
+
+    public RenderBatch(int size) {
+        super(size);
+    }
+
+    @Override
+    public void begin() {
+        flushes = 0;
+        super.begin();
+    }
+
+    @Override
+    public void flush() {
+        flushes++;
+        super.flush();
+    }
+
+    /**
+     * @return the number of flushes since the last {@link #begin()}.
+     */
+    public int getFlushes() {
+        return flushes;
+    }
+
+    /**
+     * @return the number of draw calls since the last {@link #begin()}.
+     */
+    public int getDrawCalls() {
+        return renderCalls;
+    }
+}
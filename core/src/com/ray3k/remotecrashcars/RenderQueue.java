@@ -0,0 +1,209 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+import com.esotericsoftware.spine.Skeleton;
+import com.esotericsoftware.spine.Slot;
+import com.esotericsoftware.spine.attachments.Attachment;
+import com.esotericsoftware.spine.attachments.MeshAttachment;
+import com.esotericsoftware.spine.attachments.RegionAttachment;
+import java.util.Comparator;
+
+/**
+ * Everything drawn in one frame, drawn in a single batch pass. Each frame
+ * the queue is {@link #clear() cleared}, filled with {@link Renderable}s and
+ * {@link #draw(PolygonSpriteBatch, float) drawn}.
+ * <p>
+ * Items are drawn layer by layer, each layer with its own projection. Inside
+ * a layer, items with a higher depth are drawn first. Items at the same depth
+ * are grouped by blend state and then by texture, so the batch only flushes
+ * when one of them really changes. Otherwise items keep the order they were
+ * added in. With every car drawn from the same atlas page, the cars cost one
+ * draw call however many there are.
+ */
+public class RenderQueue {
+    public final static int LAYER_BACKGROUND = 0;
+    public final static int LAYER_ENTITIES = 1;
+    public final static int LAYER_EFFECTS = 2;
+    public final static int LAYER_HUD = 3;
+    public final static int LAYERS = 4;
+    private final Array<Item> items;
+    private final Pool<Item> pool;
+    private final Matrix4[] projections;
+    private final Comparator<Item> comparator;
+
+    public RenderQueue() {
+        items = new Array<Item>();
+        pool = new Pool<Item>() {
+            @Override
+            protected Item newObject() {
+                return new Item();
+            }
+        };
+        projections = new Matrix4[LAYERS];
+        comparator = new Comparator<Item>() {
+            @Override
+            public int compare(Item o1, Item o2) {
+                if (o1.layer != o2.layer) {
+                    return o1.layer - o2.layer;
+                } else if (o1.depth != o2.depth) {
+                    return o2.depth - o1.depth;
+                } else if (o1.additive != o2.additive) {
+                    return o1.additive ? 1 : -1;
+                } else {
+                    return o1.texture - o2.texture;
+                }
+            }
+        };
+    }
+
+    /**
+     * Anything that can be queued.
+     */
+    public static interface Renderable {
+        /**
+         * @param delta the interpolation alpha between the previous and
+         * current simulation tick, from 0 to 1.
+         */
+        public void render(PolygonSpriteBatch batch, float delta);
+    }
+
+    /**
+     * Sets the projection a layer is drawn with. The matrix is read when the
+     * queue is drawn, not copied.
+     */
+    public void setProjection(int layer, Matrix4 projection) {
+        projections[layer] = projection;
+    }
+
+    /**
+     * Queues an item for this frame.
+     * @param texture the texture the item draws from, or null if unknown.
+     * @param additive whether the item is drawn with additive blending.
+     */
+    public void add(int layer, int depth, Texture texture, boolean additive, Renderable renderable) {
+        Item item = pool.obtain();
+        item.layer = layer;
+        item.depth = depth;
+        item.texture = texture == null ? 0 : texture.getTextureObjectHandle();
+        item.additive = additive;
+        item.renderable = renderable;
+        items.add(item);
+    }
+
+    public void clear() {
+        pool.freeAll(items);
+        items.clear();
+    }
+
+    /**
+     * Puts the queued items in drawing order. The sort is stable, so items
+     * that compare equal stay in the order they were added in.
+     */
+    public void sort() {
+        items.sort(comparator);
+    }
+
+    /**
+     * Sorts the queue and draws it between one {@link PolygonSpriteBatch#begin()}
+     * and {@link PolygonSpriteBatch#end()}. The queue is left filled, so call
+     * {@link #clear()} before the next frame.
+     */
+    public void draw(PolygonSpriteBatch batch, float delta) {
+        sort();
+        
+        Matrix4 projection = null;
+        boolean additive = false;
+        batch.setColor(1.0f, 1.0f, 1.0f, 1.0f);
+        batch.setBlendFunction(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        batch.begin();
+        for (int i = 0; i < items.size; i++) {
+            Item item = items.get(i);
+            Matrix4 layerProjection = projections[item.layer];
+            if (layerProjection != null && layerProjection != projection) {
+                batch.setProjectionMatrix(layerProjection);
+                projection = layerProjection;
+            }
+            
+            if (item.additive != additive) {
+                batch.setBlendFunction(GL20.GL_SRC_ALPHA, item.additive ? GL20.GL_ONE : GL20.GL_ONE_MINUS_SRC_ALPHA);
+                additive = item.additive;
+            }
+            
+            item.renderable.render(batch, delta);
+        }
+        batch.end();
+        batch.setBlendFunction(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+    }
+
+    /**
+     * @return the number of items queued this frame.
+     */
+    public int getSize() {
+        return items.size;
+    }
+
+    /**
+     * @return the texture of the first region or mesh attachment in the
+     * skeleton's draw order, or null if it has none. Skeletons packed into one
+     * atlas page are drawn entirely from this texture.
+     */
+    public static Texture getTexture(Skeleton skeleton) {
+        Array<Slot> drawOrder = skeleton.getDrawOrder();
+        for (int i = 0; i < drawOrder.size; i++) {
+            Attachment attachment = drawOrder.get(i).getAttachment();
+            TextureRegion region = null;
+            if (attachment instanceof RegionAttachment) {
+                region = ((RegionAttachment) attachment).getRegion();
+            } else if (attachment instanceof MeshAttachment) {
+                region = ((MeshAttachment) attachment).getRegion();
+            }
+            
+            if (region != null) {
+                return region.getTexture();
+            }
+        }
+        return null;
+    }
+
+    private static class Item implements Pool.Poolable {
+        private int layer;
+        private int depth;
+        private int texture;
+        private boolean additive;
+        private Renderable renderable;
+
+        @Override
+        public void reset() {
+            renderable = null;
+        }
+    }
+}
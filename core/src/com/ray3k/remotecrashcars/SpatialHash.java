@@ -0,0 +1,192 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * Uniform grid broadphase over entity collision boxes. Each entity is filed
+ * under every cell its box touches and only moves between buckets when that
+ * cell range changes, so a tick where most entities stay inside their cells
+ * costs next to nothing to maintain. A cell's bucket is returned to a pool as
+ * soon as it empties, so only occupied cells are kept.
+ */
+public class SpatialHash {
+    public final static float DEFAULT_CELL_SIZE = 128.0f;
+    private final LongMap<Array<Entity>> cells;
+    private final ObjectMap<Entity, Proxy> proxies;
+    private final Pool<Array<Entity>> bucketPool;
+    private final float cellSize;
+    private int queryStamp;
+
+    public SpatialHash() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * @param cellSize should be about the size of the larger collision boxes.
+     */
+    public SpatialHash(float cellSize) {
+        this.cellSize = cellSize;
+        cells = new LongMap<Array<Entity>>();
+        proxies = new ObjectMap<Entity, Proxy>();
+        bucketPool = new Pool<Array<Entity>>() {
+            @Override
+            protected Array<Entity> newObject() {
+                return new Array<Entity>(false, 8);
+            }
+        };
+    }
+
+    /**
+     * Files the entity under the cells covered by its current collision box.
+     * Cheap when the covered cells haven't changed since the last call.
+     */
+    public void update(Entity entity) {
+        Rectangle box = entity.getCollisionBox();
+        int minX = cell(box.x);
+        int minY = cell(box.y);
+        int maxX = cell(box.x + box.width);
+        int maxY = cell(box.y + box.height);
+        
+        Proxy proxy = proxies.get(entity);
+        if (proxy == null) {
+            proxy = new Proxy();
+            proxies.put(entity, proxy);
+        } else {
+            if (proxy.minX == minX && proxy.minY == minY && proxy.maxX == maxX && proxy.maxY == maxY) {
+                return;
+            }
+            removeFromCells(entity, proxy);
+        }
+        
+        proxy.minX = minX;
+        proxy.minY = minY;
+        proxy.maxX = maxX;
+        proxy.maxY = maxY;
+        
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                long key = key(x, y);
+                Array<Entity> bucket = cells.get(key);
+                if (bucket == null) {
+                    bucket = bucketPool.obtain();
+                    cells.put(key, bucket);
+                }
+                bucket.add(entity);
+            }
+        }
+    }
+
+    public void remove(Entity entity) {
+        Proxy proxy = proxies.remove(entity);
+        if (proxy != null) {
+            removeFromCells(entity, proxy);
+        }
+    }
+
+    /**
+     * Collects every other entity sharing at least one cell with the given
+     * entity. Candidates still need an exact overlap test.
+     * @param results cleared and filled with each candidate once.
+     */
+    public void query(Entity entity, Array<Entity> results) {
+        results.clear();
+        Proxy proxy = proxies.get(entity);
+        if (proxy == null) {
+            return;
+        }
+        
+        queryStamp++;
+        proxy.queryStamp = queryStamp;
+        for (int x = proxy.minX; x <= proxy.maxX; x++) {
+            for (int y = proxy.minY; y <= proxy.maxY; y++) {
+                Array<Entity> bucket = cells.get(key(x, y));
+                if (bucket != null) {
+                    for (int i = 0; i < bucket.size; i++) {
+                        Entity other = bucket.get(i);
+                        Proxy otherProxy = proxies.get(other);
+                        if (otherProxy.queryStamp != queryStamp) {
+                            otherProxy.queryStamp = queryStamp;
+                            results.add(other);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        for (Array<Entity> bucket : cells.values()) {
+            bucket.clear();
+            bucketPool.free(bucket);
+        }
+        cells.clear();
+        proxies.clear();
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    private void removeFromCells(Entity entity, Proxy proxy) {
+        for (int x = proxy.minX; x <= proxy.maxX; x++) {
+            for (int y = proxy.minY; y <= proxy.maxY; y++) {
+                long key = key(x, y);
+                Array<Entity> bucket = cells.get(key);
+                if (bucket != null) {
+                    bucket.removeValue(entity, true);
+                    if (bucket.size == 0) {
+                        cells.remove(key);
+                        bucketPool.free(bucket);
+                    }
+                }
+            }
+        }
+    }
+
+    private int cell(float coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    /**
+     * Per-entity bookkeeping: the cell range it is filed under and the last
+     * query that returned it.
+     */
+    private static class Proxy {
+        private int minX;
+        private int minY;
+        private int maxX;
+        private int maxY;
+        private int queryStamp;
+    }
+}
@@ -23,14 +23,14 @@
  */
 package com.ray3k.remotecrashcars;
 
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
 import com.ray3k.remotecrashcars.Core;
 
 public abstract class State {
     private Core core;
     
     public abstract void start();
-    public abstract void draw(SpriteBatch spriteBatch, float delta);
+    public abstract void draw(PolygonSpriteBatch spriteBatch, float delta);
     public abstract void act(float delta);
     public abstract void stop();
     public abstract void dispose();
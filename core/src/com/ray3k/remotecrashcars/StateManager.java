@@ -24,7 +24,7 @@
 package com.ray3k.remotecrashcars;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
 import com.badlogic.gdx.utils.ObjectMap;
 import com.ray3k.remotecrashcars.Core;
 
@@ -42,7 +42,11 @@ public class StateManager {
         states.put(name, state);
     }
     
-    public void draw(SpriteBatch spriteBatch, float delta) {
+    /**
+     * @param delta the interpolation alpha between the previous and current
+     * simulation tick, from 0 to 1.
+     */
+    public void draw(PolygonSpriteBatch spriteBatch, float delta) {
         if (loadedState != null) {
             loadedState.draw(spriteBatch, delta);
         }
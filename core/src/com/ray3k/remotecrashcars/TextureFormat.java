@@ -0,0 +1,183 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.PixmapIO;
+import com.badlogic.gdx.graphics.glutils.ETC1.ETC1Data;
+
+/**
+ * Ways an image can be stored for the GPU, from the lossless original down to
+ * block compression. Every format is written by {@link #write(Pixmap,
+ * FileHandle)} to a file whose extension the {@link
+ * com.badlogic.gdx.assets.AssetManager} recognizes, so loading any of them is
+ * an ordinary {@link com.badlogic.gdx.graphics.Texture} load: PNG is decoded,
+ * CIM is inflated straight into its 16 bit format and ETC1 is uploaded
+ * compressed, or decoded to 16 bits where the GL lacks ETC1.
+ */
+public enum TextureFormat {
+    /**
+     * Lossless RGBA8888, 4 bytes per pixel.
+     */
+    PNG("png", 32, true),
+    /**
+     * RGB565, 2 bytes per pixel. Opaque images only.
+     */
+    RGB565("cim", 16, false),
+    /**
+     * RGBA4444, 2 bytes per pixel. Keeps alpha for UI imagery at the cost of
+     * banding in gradients.
+     */
+    RGBA4444("cim", 16, true),
+    /**
+     * ETC1 block compression, half a byte per pixel. Opaque images only,
+     * and only the GPU's memory shrinks when the GL supports it.
+     */
+    ETC1("etc1", 4, false);
+    
+    public final static String ETC1_EXTENSION = "GL_OES_compressed_ETC1_RGB8_texture";
+    private final String extension;
+    private final int bitsPerPixel;
+    private final boolean alpha;
+
+    TextureFormat(String extension, int bitsPerPixel, boolean alpha) {
+        this.extension = extension;
+        this.bitsPerPixel = bitsPerPixel;
+        this.alpha = alpha;
+    }
+
+    /**
+     * Picks the format to load an image in from those it was converted to:
+     * the smallest in video memory on the current GL, and of those the one
+     * listed first, which is the cheapest to load.
+     * @param available bits of {@link #getMask()} for each converted format.
+     * @param alpha whether the image needs its alpha channel.
+     * @return the chosen format, or null if none of them will do.
+     */
+    public static TextureFormat select(int available, boolean alpha) {
+        TextureFormat best = null;
+        for (TextureFormat format : values()) {
+            if ((available & format.getMask()) != 0 && (format.alpha || !alpha) && (best == null || format.getVideoBits() < best.getVideoBits())) {
+                best = format;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the bit for this format in a set of formats.
+     */
+    public int getMask() {
+        return 1 << ordinal();
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @return bits per pixel in the file's texel data, which is also what the
+     * texture takes in video memory where the GL supports the format.
+     */
+    public int getBitsPerPixel() {
+        return bitsPerPixel;
+    }
+
+    /**
+     * @return bits per pixel in video memory on the current GL. ETC1 takes 16
+     * where it has to be decoded.
+     */
+    public int getVideoBits() {
+        return this == ETC1 && !isEtc1Supported() ? 16 : bitsPerPixel;
+    }
+
+    public boolean hasAlpha() {
+        return alpha;
+    }
+
+    private static boolean isEtc1Supported() {
+        return Gdx.graphics != null && Gdx.graphics.supportsExtension(ETC1_EXTENSION);
+    }
+
+    /**
+     * Converts an image and writes it in this format. Formats without alpha
+     * composite the image over black first.
+     */
+    public void write(Pixmap image, FileHandle file) {
+        if (this == PNG) {
+            PixmapIO.writePNG(file, image);
+            return;
+        }
+        
+        Pixmap converted = convert(image, this == RGBA4444 ? Pixmap.Format.RGBA4444 : this == RGB565 ? Pixmap.Format.RGB565 : Pixmap.Format.RGB888);
+        try {
+            if (this == ETC1) {
+                ETC1Data data = com.badlogic.gdx.graphics.glutils.ETC1.encodeImagePKM(converted);
+                try {
+                    data.write(file);
+                } finally {
+                    data.dispose();
+                }
+            } else {
+                PixmapIO.writeCIM(file, converted);
+            }
+        } finally {
+            converted.dispose();
+        }
+    }
+
+    /**
+     * Reads a file written in this format back into a pixmap, as the GPU
+     * would see it.
+     */
+    public Pixmap read(FileHandle file) {
+        if (this == PNG) {
+            return new Pixmap(file);
+        } else if (this == ETC1) {
+            ETC1Data data = new ETC1Data(file);
+            try {
+                return com.badlogic.gdx.graphics.glutils.ETC1.decodeImage(data, Pixmap.Format.RGB888);
+            } finally {
+                data.dispose();
+            }
+        } else {
+            return PixmapIO.readCIM(file);
+        }
+    }
+
+    private static Pixmap convert(Pixmap image, Pixmap.Format format) {
+        Pixmap converted = new Pixmap(image.getWidth(), image.getHeight(), format);
+        if (format == Pixmap.Format.RGBA4444) {
+            converted.setBlending(Pixmap.Blending.None);
+        } else {
+            converted.setColor(Color.BLACK);
+            converted.fill();
+        }
+        converted.drawPixmap(image, 0, 0);
+        return converted;
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars;
+
+import com.badlogic.gdx.Files.FileType;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.math.MathUtils;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Track background split into square tiles that are streamed in around the
+ * camera. Each frame {@link #update(OrthographicCamera)} queues tiles within
+ * {@link #getPrefetch() prefetch} tiles of the view on the
+ * {@link AssetManager}, which loads them in the background, and unloads tiles
+ * more than {@link #getEvict() evict} tiles away. {@link #draw(Batch)}
+ * draws only the loaded tiles the camera can see, so video memory and fill
+ * rate scale with the window rather than the track.
+ * <p>
+ * Tiles are cut from the track image once and cached as separate images in
+ * one or more {@link TextureFormat formats}, next to an index stamped with
+ * the length and modification time of the source image, and are cut again
+ * once either changes. The smallest format in video memory is loaded.
+ */
+public class TiledBackground {
+    public final static int MAGIC = 0x52435442;
+    public final static int VERSION = 2;
+    public final static int DEFAULT_TILE_SIZE = 256;
+    public final static int DEFAULT_PREFETCH = 1;
+    public final static int DEFAULT_EVICT = 2;
+    public final static TextureFormat[] DEFAULT_FORMATS = {TextureFormat.PNG, TextureFormat.RGB565};
+    private final AssetManager assetManager;
+    private final TextureFormat format;
+    private final int tileSize;
+    private final int width;
+    private final int height;
+    private final int columns;
+    private final int rows;
+    private final String[] paths;
+    private final Texture[] textures;
+    private final boolean[] requested;
+    private int prefetch;
+    private int evict;
+    private int firstColumn;
+    private int lastColumn;
+    private int firstRow;
+    private int lastRow;
+    private int residentTiles;
+    private int drawnTiles;
+
+    private TiledBackground(AssetManager assetManager, FileHandle directory, TextureFormat format, int tileSize, int width, int height) {
+        this.assetManager = assetManager;
+        this.format = format;
+        this.tileSize = tileSize;
+        this.width = width;
+        this.height = height;
+        columns = (width + tileSize - 1) / tileSize;
+        rows = (height + tileSize - 1) / tileSize;
+        paths = new String[columns * rows];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                paths[row * columns + column] = getTileFile(directory, format, column, row).path();
+            }
+        }
+        textures = new Texture[paths.length];
+        requested = new boolean[paths.length];
+        prefetch = DEFAULT_PREFETCH;
+        evict = DEFAULT_EVICT;
+        lastColumn = -1;
+        lastRow = -1;
+    }
+
+    /**
+     * Opens the tiles of a track image, cutting them first if there are no up
+     * to date ones. Nothing is loaded until the first
+     * {@link #update(OrthographicCamera)}.
+     */
+    public static TiledBackground load(AssetManager assetManager, String texturePath) {
+        prepare(texturePath);
+        return read(assetManager, getIndexFile(texturePath), Gdx.files.local(texturePath));
+    }
+
+    /**
+     * Cuts the tiles of a track image unless up to date ones exist. Only files
+     * are touched, so this may be called from any thread.
+     */
+    public static void prepare(String texturePath) {
+        FileHandle source = Gdx.files.local(texturePath);
+        FileHandle index = getIndexFile(texturePath);
+        if (!isUpToDate(index, source)) {
+            try {
+                bake(source, index, DEFAULT_TILE_SIZE, DEFAULT_FORMATS);
+            } catch (IOException e) {
+                Gdx.app.error(TiledBackground.class.getSimpleName(), "Unable to write tiles " + index.path(), e);
+            }
+        }
+    }
+
+    /**
+     * @return whether the index exists, matches the source image and lists at
+     * least one format.
+     */
+    private static boolean isUpToDate(FileHandle index, FileHandle source) {
+        if (index.type() == FileType.Classpath || !index.exists()) {
+            return false;
+        }
+        
+        DataInputStream stream = new DataInputStream(index.read(64));
+        try {
+            return stream.readInt() == MAGIC && stream.readInt() == VERSION && stream.readLong() == source.length() && stream.readLong() == source.lastModified() && stream.readInt() != 0;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * @return the background described by the index in the best format it
+     * lists, or null if it is missing or out of date.
+     */
+    private static TiledBackground read(AssetManager assetManager, FileHandle index, FileHandle source) {
+        if (index.type() == FileType.Classpath || !index.exists()) {
+            return null;
+        }
+        
+        DataInputStream stream = new DataInputStream(index.read(64));
+        try {
+            if (stream.readInt() != MAGIC || stream.readInt() != VERSION || stream.readLong() != source.length() || stream.readLong() != source.lastModified()) {
+                return null;
+            }
+            TextureFormat format = TextureFormat.select(stream.readInt(), false);
+            int tileSize = stream.readInt();
+            int width = stream.readInt();
+            int height = stream.readInt();
+            return format == null ? null : new TiledBackground(assetManager, getTileDirectory(index), format, tileSize, width, height);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * Cuts an opaque image into tiles, writes them in each of the given formats
+     * and then writes their index. The index is written last, so an
+     * interrupted bake is simply redone.
+     */
+    public static void bake(FileHandle source, FileHandle index, int tileSize, TextureFormat... formats) throws IOException {
+        Pixmap image = new Pixmap(source);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        try {
+            int columns = (width + tileSize - 1) / tileSize;
+            int rows = (height + tileSize - 1) / tileSize;
+            FileHandle directory = getTileDirectory(index);
+            
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    int tileWidth = Math.min(tileSize, width - column * tileSize);
+                    int tileHeight = Math.min(tileSize, height - row * tileSize);
+                    Pixmap tile = new Pixmap(tileWidth, tileHeight, image.getFormat());
+                    try {
+                        tile.setBlending(Pixmap.Blending.None);
+                        tile.drawPixmap(image, 0, 0, column * tileSize, height - row * tileSize - tileHeight, tileWidth, tileHeight);
+                        for (TextureFormat format : formats) {
+                            format.write(tile, getTileFile(directory, format, column, row));
+                        }
+                    } finally {
+                        tile.dispose();
+                    }
+                }
+            }
+        } finally {
+            image.dispose();
+        }
+        
+        DataOutputStream stream = new DataOutputStream(index.write(false));
+        try {
+            stream.writeInt(MAGIC);
+            stream.writeInt(VERSION);
+            stream.writeLong(source.length());
+            stream.writeLong(source.lastModified());
+            int mask = 0;
+            for (TextureFormat format : formats) {
+                mask |= format.getMask();
+            }
+            stream.writeInt(mask);
+            stream.writeInt(tileSize);
+            stream.writeInt(width);
+            stream.writeInt(height);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * @return the local file holding the tile index of the given track image.
+     */
+    public static FileHandle getIndexFile(String texturePath) {
+        return Gdx.files.local(Core.DATA_PATH + "/cache/tiles/" + Gdx.files.local(texturePath).nameWithoutExtension() + ".tiles");
+    }
+
+    private static FileHandle getTileDirectory(FileHandle index) {
+        return index.sibling(index.nameWithoutExtension());
+    }
+
+    private static FileHandle getTileFile(FileHandle directory, TextureFormat format, int column, int row) {
+        return directory.child(format.name().toLowerCase()).child(column + "-" + row + "." + format.getExtension());
+    }
+
+    /**
+     * Queues the tiles near the camera, unloads distant ones and collects any
+     * that have finished loading. Call once a frame before drawing.
+     */
+    public void update(OrthographicCamera camera) {
+        float halfWidth = camera.viewportWidth * camera.zoom / 2.0f;
+        float halfHeight = camera.viewportHeight * camera.zoom / 2.0f;
+        firstColumn = MathUtils.floor((camera.position.x - halfWidth) / tileSize);
+        lastColumn = MathUtils.floor((camera.position.x + halfWidth) / tileSize);
+        firstRow = MathUtils.floor((camera.position.y - halfHeight) / tileSize);
+        lastRow = MathUtils.floor((camera.position.y + halfHeight) / tileSize);
+        
+        residentTiles = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int index = row * columns + column;
+                int distance = Math.max(Math.max(firstColumn - column, column - lastColumn), Math.max(firstRow - row, row - lastRow));
+                if (distance <= prefetch && !requested[index]) {
+                    assetManager.load(paths[index], Texture.class);
+                    requested[index] = true;
+                } else if (distance > evict && requested[index]) {
+                    assetManager.unload(paths[index]);
+                    requested[index] = false;
+                    textures[index] = null;
+                }
+                
+                if (requested[index] && textures[index] == null && assetManager.isLoaded(paths[index], Texture.class)) {
+                    textures[index] = assetManager.get(paths[index], Texture.class);
+                }
+                if (textures[index] != null) {
+                    residentTiles++;
+                }
+            }
+        }
+        
+        assetManager.update();
+    }
+
+    /**
+     * Blocks until every queued tile is loaded, for instance so the first
+     * frame of a race isn't drawn with holes.
+     */
+    public void finishLoading() {
+        for (int i = 0; i < paths.length; i++) {
+            if (requested[i] && textures[i] == null) {
+                assetManager.finishLoadingAsset(paths[i]);
+                textures[i] = assetManager.get(paths[i], Texture.class);
+                residentTiles++;
+            }
+        }
+    }
+
+    /**
+     * @return whether every queued tile had finished loading by the last
+     * {@link #update(OrthographicCamera)}.
+     */
+    public boolean isLoaded() {
+        for (int i = 0; i < paths.length; i++) {
+            if (requested[i] && textures[i] == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Draws the loaded tiles inside the view found by the last
+     * {@link #update(OrthographicCamera)}. Tiles still loading are left out.
+     */
+    public void draw(Batch batch) {
+        drawnTiles = 0;
+        for (int row = Math.max(firstRow, 0); row <= Math.min(lastRow, rows - 1); row++) {
+            for (int column = Math.max(firstColumn, 0); column <= Math.min(lastColumn, columns - 1); column++) {
+                Texture texture = textures[row * columns + column];
+                if (texture != null) {
+                    batch.draw(texture, column * tileSize, row * tileSize);
+                    drawnTiles++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Unloads every tile.
+     */
+    public void dispose() {
+        for (int i = 0; i < paths.length; i++) {
+            if (requested[i]) {
+                assetManager.unload(paths[i]);
+                requested[i] = false;
+                textures[i] = null;
+            }
+        }
+        residentTiles = 0;
+    }
+
+    /**
+     * @return the format tiles are loaded in.
+     */
+    public TextureFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return an estimate of the video memory the resident tiles take, in
+     * bytes.
+     */
+    public long getVideoMemory() {
+        return (long) residentTiles * tileSize * tileSize * format.getVideoBits() / 8L;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getTileCount() {
+        return paths.length;
+    }
+
+    /**
+     * @return the number of tiles in video memory as of the last update.
+     */
+    public int getResidentTiles() {
+        return residentTiles;
+    }
+
+    /**
+     * @return the number of tiles the last draw call drew.
+     */
+    public int getDrawnTiles() {
+        return drawnTiles;
+    }
+
+    public int getPrefetch() {
+        return prefetch;
+    }
+
+    /**
+     * @param prefetch how many tiles beyond the view to start loading.
+     */
+    public void setPrefetch(int prefetch) {
+        this.prefetch = prefetch;
+        evict = Math.max(evict, prefetch + 1);
+    }
+
+    public int getEvict() {
+        return evict;
+    }
+
+    /**
+     * @param evict how many tiles beyond the view a tile may be before it is
+     * unloaded. Kept above the prefetch distance so tiles at the edge don't
+     * load and unload every frame.
+     */
+    public void setEvict(int evict) {
+        this.evict = Math.max(evict, prefetch + 1);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.effects;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.utils.Pool;
+import com.ray3k.remotecrashcars.RenderQueue;
+
+/**
+ * Short-lived visual effect that plays once and is then put back in the
+ * {@link EffectPool} it came from, to be started again by a later crash.
+ * Effects are stepped with the simulation by an {@link EffectManager}, which
+ * retires them as soon as they are {@link #isComplete() complete}. A looping
+ * effect never completes and plays until the manager is cleared.
+ */
+public abstract class Effect implements RenderQueue.Renderable, Pool.Poolable {
+    private final EffectPool pool;
+    private float x;
+    private float y;
+    private boolean looping;
+
+    public Effect(EffectPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Plays the effect from the beginning at the given position.
+     */
+    public void start(float x, float y) {
+        start(x, y, false);
+    }
+
+    /**
+     * Plays the effect from the beginning at the given position.
+     * @param looping whether the effect repeats instead of completing.
+     */
+    public void start(float x, float y, boolean looping) {
+        this.x = x;
+        this.y = y;
+        this.looping = looping;
+        restart();
+    }
+
+    /**
+     * Rewinds the effect to its first frame at {@link #getX()},
+     * {@link #getY()}.
+     */
+    protected abstract void restart();
+
+    /**
+     * Advances the effect by one simulation tick.
+     */
+    public abstract void update(float delta);
+
+    /**
+     * @return whether the effect has played to the end. Always false while
+     * looping.
+     */
+    public abstract boolean isComplete();
+
+    /**
+     * @return the texture the effect draws from, or null if unknown.
+     */
+    public abstract Texture getTexture();
+
+    /**
+     * @return whether the effect is drawn with additive blending.
+     */
+    public boolean isAdditive() {
+        return false;
+    }
+
+    /**
+     * Returns the effect to its pool.
+     */
+    public void free() {
+        pool.free(this);
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    public EffectPool getPool() {
+        return pool;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public boolean isLooping() {
+        return looping;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.effects;
+
+import com.badlogic.gdx.utils.Array;
+import com.ray3k.remotecrashcars.RenderQueue;
+
+/**
+ * The effects playing in a race. Effects are taken from their pool when
+ * {@link #spawn(EffectPool, float, float) spawned}, stepped each tick and
+ * given back to the pool on the tick they complete, so the list only ever
+ * holds effects that are still visible.
+ */
+public class EffectManager {
+    private final Array<Effect> effects;
+
+    public EffectManager() {
+        effects = new Array<Effect>();
+    }
+
+    /**
+     * Starts an effect from the pool at the given position.
+     */
+    public Effect spawn(EffectPool pool, float x, float y) {
+        return spawn(pool, x, y, false);
+    }
+
+    /**
+     * Starts an effect from the pool at the given position.
+     * @param looping whether the effect repeats until {@link #clear()}.
+     */
+    public Effect spawn(EffectPool pool, float x, float y, boolean looping) {
+        Effect effect = pool.obtain();
+        effect.start(x, y, looping);
+        effects.add(effect);
+        return effect;
+    }
+
+    /**
+     * Steps every effect and retires the ones that have completed.
+     */
+    public void act(float delta) {
+        for (int i = effects.size - 1; i >= 0; i--) {
+            Effect effect = effects.get(i);
+            effect.update(delta);
+            if (effect.isComplete()) {
+                effects.removeIndex(i);
+                effect.free();
+            }
+        }
+    }
+
+    /**
+     * Queues every effect on the effects layer.
+     */
+    public void draw(RenderQueue renderQueue) {
+        for (int i = 0; i < effects.size; i++) {
+            Effect effect = effects.get(i);
+            renderQueue.add(RenderQueue.LAYER_EFFECTS, 0, effect.getTexture(), effect.isAdditive(), effect);
+        }
+    }
+
+    /**
+     * Retires every effect, for instance when the race ends.
+     */
+    public void clear() {
+        for (int i = 0; i < effects.size; i++) {
+            effects.get(i).free();
+        }
+        effects.clear();
+    }
+
+    /**
+     * @return the number of effects playing.
+     */
+    public int getSize() {
+        return effects.size;
+    }
+}
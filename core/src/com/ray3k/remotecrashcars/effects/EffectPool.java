@@ -0,0 +1,51 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.effects;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * Pool of one kind of {@link Effect}, in the manner of
+ * {@link com.badlogic.gdx.graphics.g2d.ParticleEffectPool}. Subclasses build
+ * new effects from data they share, so an effect is only allocated the first
+ * time the pool runs dry and is reused after that.
+ */
+public abstract class EffectPool extends Pool<Effect> {
+    public EffectPool(int initialCapacity, int max) {
+        super(initialCapacity, max);
+    }
+
+    /**
+     * Makes sure at least the given number of effects are free, creating them
+     * up front so the first crashes of a race don't allocate.
+     */
+    public void fill(int count) {
+        Array<Effect> effects = new Array<Effect>(count);
+        for (int i = 0; i < count; i++) {
+            effects.add(obtain());
+        }
+        freeAll(effects);
+    }
+}
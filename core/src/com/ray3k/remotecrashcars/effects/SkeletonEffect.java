@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.effects;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
+import com.esotericsoftware.spine.AnimationState;
+import com.esotericsoftware.spine.AnimationStateData;
+import com.esotericsoftware.spine.Skeleton;
+import com.esotericsoftware.spine.SkeletonRenderer;
+import com.ray3k.remotecrashcars.RenderQueue;
+
+/**
+ * {@link Effect} that plays one Spine animation once, or over and over when
+ * looping. The skeleton and its animation state are made once per effect and
+ * rewound on each start.
+ */
+public class SkeletonEffect extends Effect {
+    private final SkeletonRenderer skeletonRenderer;
+    private final Skeleton skeleton;
+    private final AnimationState animationState;
+    private final String animationName;
+    private final float duration;
+    private final Texture texture;
+    private float time;
+
+    public SkeletonEffect(EffectPool pool, SkeletonRenderer skeletonRenderer, AnimationStateData animationStateData, String animationName) {
+        super(pool);
+        this.skeletonRenderer = skeletonRenderer;
+        skeleton = new Skeleton(animationStateData.getSkeletonData());
+        animationState = new AnimationState(animationStateData);
+        this.animationName = animationName;
+        duration = animationStateData.getSkeletonData().findAnimation(animationName).getDuration();
+        texture = RenderQueue.getTexture(skeleton);
+    }
+
+    @Override
+    protected void restart() {
+        time = 0.0f;
+        skeleton.setToSetupPose();
+        skeleton.setPosition(getX(), getY());
+        animationState.clearTracks();
+        animationState.setAnimation(0, animationName, isLooping());
+        animationState.apply(skeleton);
+        skeleton.updateWorldTransform();
+    }
+
+    @Override
+    public void update(float delta) {
+        time += delta;
+        animationState.update(delta);
+        animationState.apply(skeleton);
+        skeleton.updateWorldTransform();
+    }
+
+    @Override
+    public boolean isComplete() {
+        return !isLooping() && time >= duration;
+    }
+
+    @Override
+    public void render(PolygonSpriteBatch batch, float delta) {
+        skeletonRenderer.draw(batch, skeleton);
+    }
+
+    @Override
+    public Texture getTexture() {
+        return texture;
+    }
+
+    public Skeleton getSkeleton() {
+        return skeleton;
+    }
+
+    /**
+     * Pool of effects that play the same animation of one skeleton. The
+     * animation state data is shared by every effect in the pool.
+     */
+    public static class SkeletonEffectPool extends EffectPool {
+        private final SkeletonRenderer skeletonRenderer;
+        private final AnimationStateData animationStateData;
+        private final String animationName;
+
+        public SkeletonEffectPool(SkeletonRenderer skeletonRenderer, AnimationStateData animationStateData, String animationName, int initialCapacity, int max) {
+            super(initialCapacity, max);
+            this.skeletonRenderer = skeletonRenderer;
+            this.animationStateData = animationStateData;
+            this.animationName = animationName;
+        }
+
+        @Override
+        protected Effect newObject() {
+            return new SkeletonEffect(this, skeletonRenderer, animationStateData, animationName);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.entities;
+
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * Fixed length delay for one value per tick, backed by a primitive ring
+ * buffer. {@link #push(float)} costs the same whatever the delay, and nothing
+ * is allocated unless the delay grows past the buffer's capacity.
+ */
+public class DelayLine {
+    private float[] buffer;
+    private int mask;
+    private int head;
+    private int delay;
+
+    public DelayLine() {
+        this(0);
+    }
+
+    public DelayLine(int delay) {
+        buffer = new float[1];
+        setDelay(delay);
+    }
+
+    /**
+     * Adds this tick's value to the line.
+     * @return the value pushed delay ticks ago, or the last value passed to
+     * {@link #fill(float)} if the line hasn't run that long yet.
+     */
+    public float push(float value) {
+        buffer[head] = value;
+        float delayed = buffer[(head - delay) & mask];
+        head = (head + 1) & mask;
+        return delayed;
+    }
+
+    /**
+     * Forgets every pushed value, as if value had been pushed for the whole
+     * length of the delay.
+     */
+    public void fill(float value) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = value;
+        }
+        head = 0;
+    }
+
+    public int getDelay() {
+        return delay;
+    }
+
+    /**
+     * Changes the delay in ticks and refills the line with zeros. Does nothing
+     * if the delay is unchanged.
+     */
+    public void setDelay(int delay) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("delay must not be negative: " + delay);
+        }
+        if (delay == this.delay && buffer.length > delay) {
+            return;
+        }
+        
+        if (delay >= buffer.length) {
+            buffer = new float[MathUtils.nextPowerOfTwo(delay + 1)];
+            mask = buffer.length - 1;
+        }
+        this.delay = delay;
+        fill(0.0f);
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.entities;
+
+import com.badlogic.gdx.Files.FileType;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Signed distance to the track walls, sampled on a regular grid and read back
+ * with bilinear interpolation. Distances are positive on the track and
+ * negative inside walls. Because the distance changes by at most one unit per
+ * unit moved, {@link #getSafeDistance(float, float)} is a lower bound of the
+ * true distance and can be used to skip exact collision tests.
+ */
+public class DistanceField {
+    public final static int MAGIC = 0x52435344;
+    public final static int VERSION = 1;
+    public final static float DEFAULT_CELL_SIZE = 8.0f;
+    private final static int HEADER_BYTES = 4 * 2 + 8 * 2 + 4 * 5;
+    private final float originX;
+    private final float originY;
+    private final float cellSize;
+    private final int width;
+    private final int height;
+    private final float[] distances;
+    private final float margin;
+
+    /**
+     * @param width number of samples along x.
+     * @param height number of samples along y.
+     * @param distances width * height samples, row by row from the origin.
+     */
+    public DistanceField(float originX, float originY, float cellSize, int width, int height, float[] distances) {
+        this.originX = originX;
+        this.originY = originY;
+        this.cellSize = cellSize;
+        this.width = width;
+        this.height = height;
+        this.distances = distances;
+        margin = cellSize * 1.5f;
+    }
+
+    /**
+     * Samples the distance to the walls of the tree across a square world
+     * starting at the origin, splitting the rows across one thread per core.
+     */
+    public static DistanceField bake(final TriangleTree tree, float worldSize, final float cellSize) {
+        final int size = MathUtils.ceil(worldSize / cellSize) + 1;
+        final float[] distances = new float[size * size];
+        final float[] edges = findBoundaryEdges(tree.getTriangles());
+        
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<Object>> futures = new ArrayList<Future<Object>>();
+            for (int thread = 0; thread < threads; thread++) {
+                final int firstRow = thread;
+                final int rowStep = threads;
+                futures.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        for (int row = firstRow; row < size; row += rowStep) {
+                            float y = row * cellSize;
+                            for (int column = 0; column < size; column++) {
+                                float x = column * cellSize;
+                                float distance = distanceToEdges(edges, x, y);
+                                distances[row * size + column] = tree.contains(x, y) ? -distance : distance;
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            
+            for (Future<Object> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            throw new GdxRuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new GdxRuntimeException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        
+        return new DistanceField(0.0f, 0.0f, cellSize, size, size, distances);
+    }
+
+    /**
+     * @return the edges, four floats each, that belong to only one triangle.
+     * Edges shared by two triangles lie inside a wall and never hold the
+     * nearest wall point.
+     */
+    private static float[] findBoundaryEdges(float[] triangles) {
+        ObjectIntMap<String> counts = new ObjectIntMap<String>();
+        for (int i = 0; i < triangles.length; i += 6) {
+            for (int j = 0; j < 3; j++) {
+                counts.getAndIncrement(edgeKey(triangles, i + j * 2, i + (j + 1) % 3 * 2), 0, 1);
+            }
+        }
+        
+        FloatArray edges = new FloatArray();
+        for (int i = 0; i < triangles.length; i += 6) {
+            for (int j = 0; j < 3; j++) {
+                int a = i + j * 2;
+                int b = i + (j + 1) % 3 * 2;
+                if (counts.get(edgeKey(triangles, a, b), 0) == 1) {
+                    edges.addAll(triangles[a], triangles[a + 1], triangles[b], triangles[b + 1]);
+                }
+            }
+        }
+        return edges.toArray();
+    }
+
+    private static String edgeKey(float[] triangles, int a, int b) {
+        if (triangles[a] > triangles[b] || triangles[a] == triangles[b] && triangles[a + 1] > triangles[b + 1]) {
+            int temp = a;
+            a = b;
+            b = temp;
+        }
+        return triangles[a] + "," + triangles[a + 1] + "," + triangles[b] + "," + triangles[b + 1];
+    }
+
+    private static float distanceToEdges(float[] edges, float x, float y) {
+        float best = Float.MAX_VALUE;
+        for (int i = 0; i < edges.length; i += 4) {
+            float ax = edges[i];
+            float ay = edges[i + 1];
+            float dx = edges[i + 2] - ax;
+            float dy = edges[i + 3] - ay;
+            float length = dx * dx + dy * dy;
+            float t = length == 0 ? 0 : MathUtils.clamp(((x - ax) * dx + (y - ay) * dy) / length, 0.0f, 1.0f);
+            float px = ax + dx * t - x;
+            float py = ay + dy * t - y;
+            best = Math.min(best, px * px + py * py);
+        }
+        return (float) Math.sqrt(best);
+    }
+
+    /**
+     * @return the interpolated signed distance to the nearest wall. Points off
+     * the grid are clamped to its edge.
+     */
+    public float getDistance(float x, float y) {
+        float gx = MathUtils.clamp((x - originX) / cellSize, 0.0f, width - 1.0f);
+        float gy = MathUtils.clamp((y - originY) / cellSize, 0.0f, height - 1.0f);
+        int column = Math.min((int) gx, width - 2);
+        int row = Math.min((int) gy, height - 2);
+        float fx = gx - column;
+        float fy = gy - row;
+        
+        int i = row * width + column;
+        float bottom = distances[i] + (distances[i + 1] - distances[i]) * fx;
+        float top = distances[i + width] + (distances[i + width + 1] - distances[i + width]) * fx;
+        return bottom + (top - bottom) * fy;
+    }
+
+    /**
+     * @return a distance no greater than the true distance to the nearest
+     * wall, accounting for interpolation error.
+     */
+    public float getSafeDistance(float x, float y) {
+        return getDistance(x, y) - margin;
+    }
+
+    /**
+     * Sets normal to the direction away from the nearest wall, the normalized
+     * gradient of the field.
+     * @return normal for chaining.
+     */
+    public Vector2 getNormal(float x, float y, Vector2 normal) {
+        float gx = MathUtils.clamp((x - originX) / cellSize, 0.0f, width - 1.0f);
+        float gy = MathUtils.clamp((y - originY) / cellSize, 0.0f, height - 1.0f);
+        int column = Math.min((int) gx, width - 2);
+        int row = Math.min((int) gy, height - 2);
+        float fx = gx - column;
+        float fy = gy - row;
+        
+        int i = row * width + column;
+        float d00 = distances[i];
+        float d10 = distances[i + 1];
+        float d01 = distances[i + width];
+        float d11 = distances[i + width + 1];
+        normal.set((d10 - d00) * (1.0f - fy) + (d11 - d01) * fy, (d01 - d00) * (1.0f - fx) + (d11 - d10) * fx);
+        return normal.nor();
+    }
+
+    public float getOriginX() {
+        return originX;
+    }
+
+    public float getOriginY() {
+        return originY;
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public float[] getDistances() {
+        return distances;
+    }
+
+    /**
+     * @return the field read from the cache, or null if the cache is missing,
+     * out of date or can't be read.
+     */
+    public static DistanceField read(FileHandle cache, FileHandle source) {
+        if (cache.type() == FileType.Classpath || !cache.exists()) {
+            return null;
+        }
+        
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(cache.file(), "r");
+            FileChannel channel = file.getChannel();
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            ByteBuffer buffer = TrackCache.readFully(channel);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != source.length() || buffer.getLong() != source.lastModified()) {
+                return null;
+            }
+            
+            float originX = buffer.getFloat();
+            float originY = buffer.getFloat();
+            float cellSize = buffer.getFloat();
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            if (width < 2 || height < 2 || buffer.remaining() != width * height * 4) {
+                return null;
+            }
+            
+            float[] distances = new float[width * height];
+            buffer.asFloatBuffer().get(distances);
+            return new DistanceField(originX, originY, cellSize, width, height, distances);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the field to the cache, stamped with the source skeleton's length
+     * and modification time.
+     */
+    public void write(FileHandle cache, FileHandle source) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + distances.length * 4);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(source.length());
+        buffer.putLong(source.lastModified());
+        buffer.putFloat(originX);
+        buffer.putFloat(originY);
+        buffer.putFloat(cellSize);
+        buffer.putInt(width);
+        buffer.putInt(height);
+        buffer.asFloatBuffer().put(distances);
+        buffer.rewind();
+        
+        cache.parent().mkdirs();
+        FileOutputStream stream = new FileOutputStream(cache.file());
+        try {
+            FileChannel channel = stream.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            stream.close();
+        }
+    }
+}
@@ -24,7 +24,7 @@
 
 package com.ray3k.remotecrashcars.entities;
 
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
 import com.ray3k.remotecrashcars.Entity;
 import com.ray3k.remotecrashcars.states.GameOverState;
 import com.ray3k.remotecrashcars.states.GameState;
@@ -58,7 +58,7 @@ public class GameOverTimerEntity extends Entity {
     }
 
     @Override
-    public void draw(SpriteBatch spriteBatch, float delta) {
+    public void draw(PolygonSpriteBatch spriteBatch, float delta) {
     }
 
     @Override
@@ -21,50 +21,69 @@
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
  * THE SOFTWARE.
  */
-
 package com.ray3k.remotecrashcars.entities;
 
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.esotericsoftware.spine.AnimationState;
-import com.esotericsoftware.spine.AnimationStateData;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
+import com.badlogic.gdx.math.MathUtils;
+import com.esotericsoftware.spine.Bone;
 import com.esotericsoftware.spine.Skeleton;
-import com.esotericsoftware.spine.SkeletonBounds;
 import com.esotericsoftware.spine.SkeletonData;
-import com.ray3k.remotecrashcars.Core;
 import com.ray3k.remotecrashcars.Entity;
+import com.ray3k.remotecrashcars.RenderQueue;
 import com.ray3k.remotecrashcars.states.GameState;
 
-public class ExplosionEntity extends Entity {
-    private GameState gameState;
+/**
+ * Translucent replay of a recorded {@link GhostLap}, drawn behind the player.
+ * Call {@link #restart()} whenever a lap starts so the ghost sets off with the
+ * player.
+ */
+public class GhostEntity extends Entity {
+    public final static float ALPHA = .35f;
     private Skeleton skeleton;
-    private AnimationState animationState;
-    private SkeletonBounds skeletonBounds;
+    private Bone rotateBone;
+    private GhostLap.Playback playback;
+    private float boneRotation;
+    private float previousBoneRotation;
     
-    public ExplosionEntity (GameState gameState) {
+    public GhostEntity(GameState gameState, String skeletonPath, GhostLap lap) {
         super(gameState.getEntityManager(), gameState.getCore());
-        this.gameState = gameState;
-        SkeletonData skeletonData = getCore().getAssetManager().get(Core.DATA_PATH + "/spine/explosion.json", SkeletonData.class);
+        SkeletonData skeletonData = getCore().getAssetManager().get(skeletonPath, SkeletonData.class);
         skeleton = new Skeleton(skeletonData);
-        AnimationStateData animationStateData = new AnimationStateData(skeletonData);
-        animationStateData.setDefaultMix(.25f);
-        animationState = new AnimationState(animationStateData);
-        animationState.setAnimation(0, "animation", true);
-        
-        skeletonBounds = new SkeletonBounds();
-        skeletonBounds.update(skeleton, true);
+        setTexture(RenderQueue.getTexture(skeleton));
+        skeleton.getColor().a = ALPHA;
+        rotateBone = skeleton.findBone(VehicleHull.ROTATE_BONE);
+        playback = lap.createPlayback();
+        setDepth(10);
+        restart();
+    }
+    
+    /**
+     * Rewinds the ghost to the start of its lap.
+     */
+    public void restart() {
+        playback.reset();
+        apply();
+        storePreviousTransform();
     }
     
+    private void apply() {
+        setPosition(playback.getX(), playback.getY());
+        boneRotation = playback.getRotation();
+    }
+
+    public void setColor(Color color) {
+        skeleton.findSlot("tint").getColor().set(color);
+    }
+
     @Override
     public void create() {
     }
 
     @Override
     public void act(float delta) {
-        skeleton.setPosition(getX(), getY());
-        animationState.update(delta);
-        skeleton.updateWorldTransform();
-        animationState.apply(skeleton);
-        skeletonBounds.update(skeleton, true);
+        playback.advance();
+        apply();
     }
 
     @Override
@@ -72,16 +91,28 @@ public class ExplosionEntity extends Entity {
     }
 
     @Override
-    public void draw(SpriteBatch spriteBatch, float delta) {
+    public void draw(PolygonSpriteBatch spriteBatch, float delta) {
+        if (playback.isFinished()) {
+            return;
+        }
+        
+        skeleton.setPosition(MathUtils.lerp(getPreviousX(), getX(), delta), MathUtils.lerp(getPreviousY(), getY(), delta));
+        rotateBone.setRotation(MathUtils.lerpAngleDeg(previousBoneRotation, boneRotation, delta));
+        skeleton.updateWorldTransform();
         getCore().getSkeletonRenderer().draw(spriteBatch, skeleton);
     }
 
     @Override
     public void destroy() {
-        new GameOverTimerEntity(gameState, 1.5f);
     }
 
     @Override
     public void collision(Entity other) {
     }
+
+    @Override
+    public void storePreviousTransform() {
+        super.storePreviousTransform();
+        previousBoneRotation = boneRotation;
+    }
 }
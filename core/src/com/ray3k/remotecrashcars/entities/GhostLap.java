@@ -0,0 +1,312 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.entities;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.ByteArray;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Compact recording of one lap for ghost playback. Every {@link #SAMPLE_TICKS}
+ * ticks the vehicle's position and body rotation are quantized to
+ * integers and stored as zigzag varint deltas from the previous
+ * sample, which keeps a typical lap to a few kilobytes. Playback decodes one
+ * sample at a time and interpolates the ticks in between.
+ * <p>
+ * Neither recording nor playback allocates once the buffer has grown to the
+ * length of a lap.
+ */
+public class GhostLap {
+    public final static int MAGIC = 0x52434748;
+    public final static int VERSION = 2;
+    public final static int SAMPLE_TICKS = 4;
+    private final static float POSITION_SCALE = 8.0f;
+    private final static float ROTATION_SCALE = 65536.0f / 360.0f;
+    private final ByteArray data;
+    private int ticks;
+    private int samples;
+    private float time;
+    private int lastX;
+    private int lastY;
+    private int lastRotation;
+    private float pendingX;
+    private float pendingY;
+    private float pendingRotation;
+
+    public GhostLap() {
+        data = new ByteArray();
+    }
+
+    /**
+     * Clears the recording to start a new lap.
+     */
+    public void reset() {
+        data.clear();
+        ticks = 0;
+        samples = 0;
+        time = 0.0f;
+        lastX = 0;
+        lastY = 0;
+        lastRotation = 0;
+    }
+
+    /**
+     * Records the vehicle at the end of the next tick.
+     */
+    public void record(float x, float y, float rotation) {
+        if (ticks % SAMPLE_TICKS == 0) {
+            encode(x, y, rotation);
+        }
+        pendingX = x;
+        pendingY = y;
+        pendingRotation = rotation;
+        ticks++;
+    }
+
+    /**
+     * Ends the lap, storing the last tick so playback ends exactly where the
+     * vehicle crossed the line.
+     */
+    public void finish(float time) {
+        this.time = time;
+        if (ticks > 0 && (ticks - 1) % SAMPLE_TICKS != 0) {
+            encode(pendingX, pendingY, pendingRotation);
+        }
+    }
+
+    private void encode(float x, float y, float rotation) {
+        int qx = MathUtils.round(x * POSITION_SCALE);
+        int qy = MathUtils.round(y * POSITION_SCALE);
+        int qRotation = MathUtils.round(rotation * ROTATION_SCALE) & 0xFFFF;
+        
+        writeVarInt(zigzag(qx - lastX));
+        writeVarInt(zigzag(qy - lastY));
+        writeVarInt(zigzag((short) (qRotation - lastRotation)));
+        
+        lastX = qx;
+        lastY = qy;
+        lastRotation = qRotation;
+        samples++;
+    }
+
+    /**
+     * Replaces this recording with a copy of another one.
+     */
+    public void set(GhostLap other) {
+        data.clear();
+        data.addAll(other.data);
+        ticks = other.ticks;
+        samples = other.samples;
+        time = other.time;
+        lastX = other.lastX;
+        lastY = other.lastY;
+        lastRotation = other.lastRotation;
+        pendingX = other.pendingX;
+        pendingY = other.pendingY;
+        pendingRotation = other.pendingRotation;
+    }
+
+    public Playback createPlayback() {
+        return new Playback();
+    }
+
+    /**
+     * Steps through the lap one tick at a time.
+     */
+    public class Playback {
+        private int position;
+        private int tick;
+        private int decoded;
+        private int previousX, previousY, previousRotation;
+        private int nextX, nextY, nextRotation;
+
+        private Playback() {
+            reset();
+        }
+
+        /**
+         * Rewinds to the first tick of the lap.
+         */
+        public void reset() {
+            position = 0;
+            tick = 0;
+            decoded = 0;
+            nextX = 0;
+            nextY = 0;
+            nextRotation = 0;
+            decode();
+            decode();
+        }
+
+        /**
+         * Moves to the next tick, stopping on the last one.
+         */
+        public void advance() {
+            if (isFinished()) {
+                return;
+            }
+            tick++;
+            if (tick % SAMPLE_TICKS == 0) {
+                decode();
+            }
+        }
+
+        private void decode() {
+            previousX = nextX;
+            previousY = nextY;
+            previousRotation = nextRotation;
+            
+            if (decoded < samples) {
+                nextX += unzigzag(readVarInt());
+                nextY += unzigzag(readVarInt());
+                nextRotation = (nextRotation + unzigzag(readVarInt())) & 0xFFFF;
+                decoded++;
+            }
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data.get(position++);
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+
+        /**
+         * @return how far the current tick lies between the decoded samples.
+         * The last pair may be closer together than {@link #SAMPLE_TICKS}.
+         */
+        private float getFraction() {
+            int start = tick - tick % SAMPLE_TICKS;
+            int span = Math.min(SAMPLE_TICKS, ticks - 1 - start);
+            return span <= 0 ? 0.0f : (tick - start) / (float) span;
+        }
+
+        public float getX() {
+            return MathUtils.lerp(previousX, nextX, getFraction()) / POSITION_SCALE;
+        }
+
+        public float getY() {
+            return MathUtils.lerp(previousY, nextY, getFraction()) / POSITION_SCALE;
+        }
+
+        public float getRotation() {
+            return (previousRotation + (short) (nextRotation - previousRotation) * getFraction()) / ROTATION_SCALE;
+        }
+
+        public boolean isFinished() {
+            return tick >= ticks - 1;
+        }
+    }
+
+    private void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            data.add((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        data.add((byte) value);
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * @return the lap read from the file, or null if there is no valid lap.
+     */
+    public static GhostLap read(FileHandle file) {
+        if (!file.exists()) {
+            return null;
+        }
+        
+        DataInputStream stream = new DataInputStream(new BufferedInputStream(file.read()));
+        try {
+            if (stream.readInt() != MAGIC || stream.readUnsignedByte() != VERSION || stream.readUnsignedByte() != SAMPLE_TICKS) {
+                return null;
+            }
+            
+            GhostLap lap = new GhostLap();
+            lap.time = stream.readFloat();
+            lap.ticks = stream.readInt();
+            lap.samples = stream.readInt();
+            byte[] bytes = new byte[stream.readInt()];
+            stream.readFully(bytes);
+            lap.data.addAll(bytes);
+            return lap;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    public void write(FileHandle file) throws IOException {
+        DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(file.write(false)));
+        try {
+            stream.writeInt(MAGIC);
+            stream.writeByte(VERSION);
+            stream.writeByte(SAMPLE_TICKS);
+            stream.writeFloat(time);
+            stream.writeInt(ticks);
+            stream.writeInt(samples);
+            stream.writeInt(data.size);
+            stream.write(data.items, 0, data.size);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * @return the lap time in seconds.
+     */
+    public float getTime() {
+        return time;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * @return the size of the encoded samples in bytes.
+     */
+    public int getSize() {
+        return data.size;
+    }
+}
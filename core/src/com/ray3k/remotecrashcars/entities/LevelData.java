@@ -21,14 +21,14 @@
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
  * THE SOFTWARE.
  */
-
 package com.ray3k.remotecrashcars.entities;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.EarClippingTriangulator;
-import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Polygon;
-import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.FloatArray;
 import com.badlogic.gdx.utils.ShortArray;
@@ -40,78 +40,290 @@ import com.esotericsoftware.spine.SkeletonData;
 import com.esotericsoftware.spine.attachments.PointAttachment;
 import com.ray3k.remotecrashcars.Core;
 import com.ray3k.remotecrashcars.states.GameState;
+import java.io.IOException;
 
+/**
+ * Collision and lap data of a track. Walls come from the skeleton's bounding
+ * box attachments. Gate 0 is the start line, between the start1 and start2
+ * points; the gates after it are checkpoint1a/checkpoint1b,
+ * checkpoint2a/checkpoint2b and so on, or the middle1/middle2 line on tracks
+ * without numbered checkpoints.
+ */
 public class LevelData {
-    private Skeleton skeleton;
-    private AnimationState animationState;
-    private SkeletonBounds skeletonBounds;
-    private EarClippingTriangulator triangulator;
+    public final static float WORLD_SIZE = 2048.0f;
+    public final static int RAY_STRIDE = 3;
+    private final static float MIN_MARCH_STEP = 4.0f;
     private Array<Polygon> polygons;
-    private PointAttachment playerSpawnPoint;
-    private Vector2 start1;
-    private Vector2 start2;
-    private Vector2 middle1;
-    private Vector2 middle2;
+    private TriangleTree tree;
+    private DistanceField distanceField;
+    private float spawnX;
+    private float spawnY;
+    private float spawnRotation;
+    private float[] checkpoints;
 
-    public LevelData(GameState gameState, Core core, String trackPath) {
-        SkeletonData skeletonData = core.getAssetManager().get(trackPath, SkeletonData.class);
-        skeleton = new Skeleton(skeletonData);
+    /**
+     * Loads the track from its binary cache, building it from the skeleton and
+     * writing the cache first if there is no up to date one. The distance
+     * field is cached the same way.
+     * @param distanceField whether to load or bake the track's distance field.
+     */
+    public static LevelData load(Core core, String trackPath, boolean distanceField) {
+        FileHandle source = Gdx.files.internal(trackPath);
+        FileHandle cache = getCacheFile(trackPath);
+        LevelData levelData = TrackCache.read(cache, source);
+        
+        if (levelData == null) {
+            levelData = new LevelData(core.getAssetManager().get(trackPath, SkeletonData.class));
+            try {
+                TrackCache.write(levelData, cache, source);
+            } catch (IOException e) {
+                Gdx.app.error(LevelData.class.getSimpleName(), "Unable to write track cache " + cache.path(), e);
+            }
+        }
+        
+        if (distanceField) {
+            FileHandle fieldCache = getDistanceFieldFile(trackPath);
+            levelData.distanceField = DistanceField.read(fieldCache, source);
+            
+            if (levelData.distanceField == null) {
+                levelData.distanceField = DistanceField.bake(levelData.tree, WORLD_SIZE, DistanceField.DEFAULT_CELL_SIZE);
+                try {
+                    levelData.distanceField.write(fieldCache, source);
+                } catch (IOException e) {
+                    Gdx.app.error(LevelData.class.getSimpleName(), "Unable to write distance field " + fieldCache.path(), e);
+                }
+            }
+        }
+        return levelData;
+    }
+    
+    /**
+     * @return the local file holding the binary cache of the given track
+     * skeleton.
+     */
+    public static FileHandle getCacheFile(String trackPath) {
+        return Gdx.files.local(Core.DATA_PATH + "/cache/" + Gdx.files.internal(trackPath).nameWithoutExtension() + ".bin");
+    }
+    
+    /**
+     * @return the local file holding the distance field of the given track
+     * skeleton.
+     */
+    public static FileHandle getDistanceFieldFile(String trackPath) {
+        return Gdx.files.local(Core.DATA_PATH + "/cache/" + Gdx.files.internal(trackPath).nameWithoutExtension() + ".sdf");
+    }
+    
+    public LevelData(SkeletonData skeletonData) {
+        Skeleton skeleton = new Skeleton(skeletonData);
         AnimationStateData animationStateData = new AnimationStateData(skeletonData);
         animationStateData.setDefaultMix(.25f);
-        animationState = new AnimationState(animationStateData);
+        AnimationState animationState = new AnimationState(animationStateData);
         animationState.setAnimation(0, "animation", true);
         
-        skeletonBounds = new SkeletonBounds();
+        SkeletonBounds skeletonBounds = new SkeletonBounds();
         skeleton.setPosition(0.0f, 0.0f);
         skeleton.updateWorldTransform();
         animationState.apply(skeleton);
         skeletonBounds.update(skeleton, true);
         
-        triangulator = new EarClippingTriangulator();
-        polygons = new Array<Polygon>();
+        EarClippingTriangulator triangulator = new EarClippingTriangulator();
+        FloatArray triangles = new FloatArray();
         for (FloatArray floats : skeletonBounds.getPolygons()) {
-            ShortArray points = triangulator.computeTriangles(floats.items);
+            ShortArray points = triangulator.computeTriangles(floats.items, 0, floats.size);
             
-            for (int i = 0; i < points.size; i += 3) {
-                float[] verts = new float[6];
-                for (int j = 0; j < 3; j++) {
-                    verts[j*2] = floats.get(points.get(i + j) * 2);
-                    verts[j*2+1] = floats.get(points.get(i + j) * 2 + 1);
-                }
-                
-                polygons.add(new Polygon(verts));
+            for (int i = 0; i < points.size; i++) {
+                triangles.add(floats.get(points.get(i) * 2));
+                triangles.add(floats.get(points.get(i) * 2 + 1));
             }
         }
+        tree = new TriangleTree(triangles.toArray());
         
-        playerSpawnPoint = (PointAttachment) skeleton.getAttachment("player", "player");
+        PointAttachment playerSpawnPoint = (PointAttachment) skeleton.getAttachment("player", "player");
+        spawnX = playerSpawnPoint.getX();
+        spawnY = playerSpawnPoint.getY();
+        spawnRotation = playerSpawnPoint.getRotation();
     
-        PointAttachment start1 = (PointAttachment) skeleton.getAttachment("start1", "start1");
-        PointAttachment start2 = (PointAttachment) skeleton.getAttachment("start2", "start2");
-        this.start1 = new Vector2(start1.getX(), start1.getY());
-        this.start2 = new Vector2(start2.getX(), start2.getY());
-        
-        PointAttachment middle1 = (PointAttachment) skeleton.getAttachment("middle1", "middle1");
-        PointAttachment middle2 = (PointAttachment) skeleton.getAttachment("middle2", "middle2");
-        this.middle1 = new Vector2(middle1.getX(), middle1.getY());
-        this.middle2 = new Vector2(middle2.getX(), middle2.getY());
+        FloatArray gates = new FloatArray();
+        addCheckpoint(skeleton, "start1", "start2", gates);
+        if (skeleton.findSlot("checkpoint1a") != null) {
+            for (int i = 1; skeleton.findSlot("checkpoint" + i + "a") != null; i++) {
+                addCheckpoint(skeleton, "checkpoint" + i + "a", "checkpoint" + i + "b", gates);
+            }
+        } else {
+            addCheckpoint(skeleton, "middle1", "middle2", gates);
+        }
+        checkpoints = gates.toArray();
+    }
+    
+    private static void addCheckpoint(Skeleton skeleton, String name1, String name2, FloatArray gates) {
+        PointAttachment point1 = (PointAttachment) skeleton.getAttachment(name1, name1);
+        PointAttachment point2 = (PointAttachment) skeleton.getAttachment(name2, name2);
+        gates.addAll(point1.getX(), point1.getY(), point2.getX(), point2.getY());
+    }
+    
+    LevelData(TriangleTree tree, float spawnX, float spawnY, float spawnRotation, float[] checkpoints) {
+        this.tree = tree;
+        this.spawnX = spawnX;
+        this.spawnY = spawnY;
+        this.spawnRotation = spawnRotation;
+        this.checkpoints = checkpoints;
     }
 
+    /**
+     * @return the wall triangles as polygons, created on first use.
+     */
     public Array<Polygon> getPolygons() {
+        if (polygons == null) {
+            polygons = new Array<Polygon>();
+            float[] triangles = tree.getTriangles();
+            for (int i = 0; i < triangles.length; i += 6) {
+                float[] verts = new float[6];
+                System.arraycopy(triangles, i, verts, 0, 6);
+                polygons.add(new Polygon(verts));
+            }
+        }
         return polygons;
     }
+
+    public TriangleTree getTree() {
+        return tree;
+    }
+
+    public DistanceField getDistanceField() {
+        return distanceField;
+    }
+
+    public void setDistanceField(DistanceField distanceField) {
+        this.distanceField = distanceField;
+    }
+    
+    /**
+     * @param polygon a convex polygon in world space.
+     * @return true if the polygon touches any wall.
+     */
+    public boolean overlapsWall(Polygon polygon) {
+        float[] vertices = polygon.getTransformedVertices();
+        return tree.overlapsConvex(vertices, 0, vertices.length);
+    }
+    
+    /**
+     * Cheap broad test for a shape that fits in the given circle.
+     * @return true if the distance field proves the circle can't touch a wall.
+     * Always false without a distance field.
+     */
+    public boolean isClear(float x, float y, float radius) {
+        return distanceField != null && distanceField.getSafeDistance(x, y) > radius;
+    }
+    
+    public boolean isInsideWall(float x, float y) {
+        return tree.contains(x, y);
+    }
+    
+    /**
+     * Casts rays from a pose against the walls, like the feelers of a sensor.
+     * With a distance field each ray first marches forward as far as the
+     * field proves clear, then the rest of it is searched exactly in the
+     * {@link TriangleTree}. Doesn't allocate and is safe to call from several
+     * threads at once.
+     * @param rotation heading of the pose in degrees.
+     * @param angles direction of each ray in degrees, relative to the
+     * rotation.
+     * @param range how far each ray reaches.
+     * @param results {@link #RAY_STRIDE} floats per ray: the distance to the
+     * first wall hit, or range if there is none, then the unit normal of the
+     * wall at the hit, or zero if there is none.
+     */
+    public void castRays(float x, float y, float rotation, float[] angles, float range, float[] results) {
+        castRays(x, y, rotation, angles, 0, angles.length, range, results, 0);
+    }
     
-    public void spawnPlayer(GameState gameState, Color color, String skeletonPath) {
+    /**
+     * @param count the number of rays, starting at angles[angleOffset].
+     * @param resultOffset where the first ray's results are written.
+     * @see #castRays(float, float, float, float[], float, float[])
+     */
+    public void castRays(float x, float y, float rotation, float[] angles, int angleOffset, int count, float range, float[] results, int resultOffset) {
+        for (int i = 0; i < count; i++) {
+            int o = resultOffset + i * RAY_STRIDE;
+            float angle = rotation + angles[angleOffset + i];
+            float cos = MathUtils.cosDeg(angle);
+            float sin = MathUtils.sinDeg(angle);
+            
+            float clear = 0.0f;
+            if (distanceField != null) {
+                float step = distanceField.getSafeDistance(x, y);
+                while (step > MIN_MARCH_STEP && clear < range) {
+                    clear += step;
+                    step = distanceField.getSafeDistance(x + cos * clear, y + sin * clear);
+                }
+            }
+            
+            float t = clear >= range ? -1.0f : tree.castSegment(x + cos * clear, y + sin * clear, x + cos * range, y + sin * range, results, o + 1);
+            if (t < 0) {
+                results[o] = range;
+                results[o + 1] = 0.0f;
+                results[o + 2] = 0.0f;
+            } else {
+                results[o] = clear + t * (range - clear);
+            }
+        }
+    }
+    
+    public PlayerEntity spawnPlayer(GameState gameState, Color color, String skeletonPath) {
         PlayerEntity playerEntity = new PlayerEntity(gameState, skeletonPath);
-        playerEntity.setPosition(playerSpawnPoint.getX(), playerSpawnPoint.getY());
-        playerEntity.setRotation(playerSpawnPoint.getRotation());
+        playerEntity.spawn(spawnX, spawnY, spawnRotation);
         playerEntity.setColor(color);
+        return playerEntity;
     }
     
-    public boolean checkCollisionStart(Polygon polygon) {
-        return Intersector.intersectSegmentPolygon(start1, start2, polygon);
+    /**
+     * Tests whether a point moving from x1, y1 to x2, y2 this tick crossed a
+     * checkpoint gate. A point ending exactly on the gate counts as crossing
+     * it this tick, not the next.
+     * @param index the gate, 0 being the start line.
+     */
+    public boolean crossesCheckpoint(int index, float x1, float y1, float x2, float y2) {
+        int o = index * 4;
+        float ax = checkpoints[o];
+        float ay = checkpoints[o + 1];
+        float ex = checkpoints[o + 2] - ax;
+        float ey = checkpoints[o + 3] - ay;
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float denominator = dx * ey - dy * ex;
+        if (denominator == 0) {
+            return false;
+        }
+        
+        float t = ((ax - x1) * ey - (ay - y1) * ex) / denominator;
+        float u = ((ax - x1) * dy - (ay - y1) * dx) / denominator;
+        return t > 0 && t <= 1 && u >= 0 && u <= 1;
     }
     
-    public boolean checkCollisionMiddle(Polygon polygon) {
-        return Intersector.intersectSegmentPolygon(middle1, middle2, polygon);
+    public float getSpawnX() {
+        return spawnX;
+    }
+
+    public float getSpawnY() {
+        return spawnY;
+    }
+
+    public float getSpawnRotation() {
+        return spawnRotation;
+    }
+
+    /**
+     * @return the number of checkpoint gates, including the start line.
+     */
+    public int getCheckpointCount() {
+        return checkpoints.length / 4;
+    }
+
+    /**
+     * @return the end points of each gate in lap order, four floats per gate,
+     * starting with the start line.
+     */
+    public float[] getCheckpoints() {
+        return checkpoints;
     }
 }
@@ -0,0 +1,160 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.entities;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Polygon;
+import com.badlogic.gdx.utils.Array;
+import com.esotericsoftware.spine.Bone;
+import com.esotericsoftware.spine.Skeleton;
+import com.esotericsoftware.spine.SkeletonData;
+import com.ray3k.remotecrashcars.Entity;
+import com.ray3k.remotecrashcars.RenderQueue;
+import com.ray3k.remotecrashcars.states.GameState;
+
+/**
+ * Computer controlled vehicle driven around the track's {@link RacingLine} by
+ * a {@link RacingDriver}. It uses the same handling and latency as the player
+ * but doesn't collide with other vehicles. An opponent that hits a wall is put
+ * back on the line where it crashed, at rest, instead of exploding. With
+ * {@link GameState#setOpponentExplosionsEnabled(boolean)} it leaves an
+ * explosion behind as well.
+ */
+public class OpponentEntity extends Entity {
+    public final static Color[] COLORS = {Color.RED, Color.GREEN, Color.YELLOW, Color.ORANGE, Color.CYAN, Color.MAGENTA, Color.WHITE, Color.PURPLE};
+    private GameState gameState;
+    private Skeleton skeleton;
+    private Bone rotateBone;
+    private VehicleSimulator simulator;
+    private RacingDriver driver;
+    private VehicleInput input;
+    private VehicleHull hull;
+    private Array<Polygon> polygons;
+    private int crashes;
+    private float boneRotation;
+    private float previousBoneRotation;
+    
+    public OpponentEntity(GameState gameState, String skeletonPath, RacingLine racingLine) {
+        super(gameState.getEntityManager(), gameState.getCore());
+        this.gameState = gameState;
+        SkeletonData skeletonData = getCore().getAssetManager().get(skeletonPath, SkeletonData.class);
+        skeleton = new Skeleton(skeletonData);
+        setTexture(RenderQueue.getTexture(skeleton));
+        rotateBone = skeleton.findBone(VehicleHull.ROTATE_BONE);
+        simulator = new VehicleSimulator();
+        driver = new RacingDriver(simulator, racingLine);
+        input = new VehicleInput();
+        hull = VehicleHull.get(skeletonData);
+        polygons = hull.createPolygons();
+        setDepth(5);
+    }
+    
+    /**
+     * Places the opponent at rest on the racing line, discarding its previous
+     * transform.
+     * @param distance how far along the line from the start.
+     */
+    public void spawn(float distance) {
+        driver.reset(distance);
+        setPosition(simulator.getX(), simulator.getY());
+        setRotation(simulator.getRotation());
+        boneRotation = simulator.getRotation();
+        storePreviousTransform();
+    }
+
+    public void setColor(Color color) {
+        skeleton.findSlot("tint").getColor().set(color);
+    }
+
+    @Override
+    public void create() {
+    }
+
+    @Override
+    public void act(float delta) {
+        simulator.setTuning(gameState.getAcceleration(), gameState.getMaxSpeed(), gameState.getFriction(), gameState.getBraking(), gameState.getSteerAngle());
+        simulator.setLatency(MathUtils.round(gameState.getInputLatency() / delta));
+        driver.drive(input, delta);
+        simulator.step(input, delta);
+        
+        setPosition(simulator.getX(), simulator.getY());
+        setRotation(simulator.getRotation());
+        boneRotation = simulator.getBodyRotation();
+        
+        LevelData levelData = gameState.getLevelData();
+        if (!levelData.isClear(getX() + hull.getPivotX(), getY() + hull.getPivotY(), hull.getRadius())) {
+            hull.transform(polygons, getX(), getY(), boneRotation);
+            for (Polygon polygon : polygons) {
+                if (levelData.overlapsWall(polygon)) {
+                    crashes++;
+                    if (gameState.isOpponentExplosionsEnabled()) {
+                        gameState.spawnExplosion(getX(), getY(), false);
+                    }
+                    spawn(driver.getDistance());
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void act_end(float delta) {
+    }
+
+    @Override
+    public void draw(PolygonSpriteBatch spriteBatch, float delta) {
+        skeleton.setPosition(MathUtils.lerp(getPreviousX(), getX(), delta), MathUtils.lerp(getPreviousY(), getY(), delta));
+        rotateBone.setRotation(MathUtils.lerpAngleDeg(previousBoneRotation, boneRotation, delta));
+        skeleton.updateWorldTransform();
+        getCore().getSkeletonRenderer().draw(spriteBatch, skeleton);
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    @Override
+    public void collision(Entity other) {
+    }
+
+    @Override
+    public void storePreviousTransform() {
+        super.storePreviousTransform();
+        previousBoneRotation = boneRotation;
+    }
+
+    public RacingDriver getDriver() {
+        return driver;
+    }
+
+    /**
+     * @return how many times the opponent has hit a wall and been put back
+     * on the line.
+     */
+    public int getCrashes() {
+        return crashes;
+    }
+}
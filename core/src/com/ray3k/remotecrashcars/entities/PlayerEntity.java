@@ -25,64 +25,56 @@
 package com.ray3k.remotecrashcars.entities;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.Input.Keys;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.math.EarClippingTriangulator;
-import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Polygon;
-import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.FloatArray;
-import com.badlogic.gdx.utils.ShortArray;
 import com.esotericsoftware.spine.AnimationState;
 import com.esotericsoftware.spine.AnimationStateData;
 import com.esotericsoftware.spine.Bone;
 import com.esotericsoftware.spine.Skeleton;
-import com.esotericsoftware.spine.SkeletonBounds;
 import com.esotericsoftware.spine.SkeletonData;
 import com.esotericsoftware.spine.Slot;
 import com.ray3k.remotecrashcars.Entity;
+import com.ray3k.remotecrashcars.RenderQueue;
+import com.ray3k.remotecrashcars.InputFrame;
 import com.ray3k.remotecrashcars.states.GameState;
 
 public class PlayerEntity extends Entity {
     private GameState gameState;
     private Skeleton skeleton;
     private AnimationState animationState;
-    private SkeletonBounds skeletonBounds;
-    private static final Vector2 temp = new Vector2();
     private Bone rotateBone;
-    private float carSpeed;
+    private VehicleSimulator simulator;
+    private VehicleInput input;
     private Slot tintSlot;
-    private EarClippingTriangulator triangulator;
+    private VehicleHull hull;
     private Array<Polygon> polygons;
-    private float steerAngle;
-    private FloatArray steerAngles;
-    private static final int MAX_STEER_ANGLES = 1;
-    private boolean hitMiddle;
+    private int nextCheckpoint;
     private long engineID;
+    private float boneRotation;
+    private float previousBoneRotation;
     
     public PlayerEntity (GameState gameState, String skeletonPath) {
         super(gameState.getEntityManager(), gameState.getCore());
         this.gameState = gameState;
         SkeletonData skeletonData = getCore().getAssetManager().get(skeletonPath, SkeletonData.class);
         skeleton = new Skeleton(skeletonData);
+        setTexture(RenderQueue.getTexture(skeleton));
         AnimationStateData animationStateData = new AnimationStateData(skeletonData);
         animationStateData.setDefaultMix(.25f);
         animationState = new AnimationState(animationStateData);
         animationState.setAnimation(0, "animation", true);
         
-        skeletonBounds = new SkeletonBounds();
-        skeletonBounds.update(skeleton, true);
-        rotateBone = skeleton.findBone("bone");
+        rotateBone = skeleton.findBone(VehicleHull.ROTATE_BONE);
         tintSlot = skeleton.findSlot("tint");
-        carSpeed = 0.0f;
+        simulator = new VehicleSimulator();
+        input = new VehicleInput();
         
-        triangulator = new EarClippingTriangulator();
-        polygons = new Array<Polygon>();
-        steerAngle = 0.0f;
-        steerAngles = new FloatArray();
-        hitMiddle = false;
+        hull = VehicleHull.get(skeletonData);
+        polygons = hull.createPolygons();
+        nextCheckpoint = gameState.getLevelData().getCheckpointCount() > 1 ? 1 : 0;
         engineID = gameState.playEngineSound();
     }
     
@@ -91,129 +83,45 @@ public class PlayerEntity extends Entity {
     }
 
     @Override
-    public void act(float delta) {temp.set(Gdx.input.getX(), Gdx.graphics.getHeight() - Gdx.input.getY());
-        skeleton.setPosition(getX(), getY());
+    public void act(float delta) {
         animationState.update(delta);
-        skeleton.updateWorldTransform();
         animationState.apply(skeleton);
-        skeletonBounds.update(skeleton, true);
-
-        if (Gdx.input.isKeyPressed(Keys.UP)) {
-            carSpeed += gameState.getAcceleration() * delta;
-        } else if (Gdx.input.isKeyPressed(Keys.DOWN)) {
-            carSpeed -= gameState.getBraking() * delta;
-        }
-        
-        carSpeed -= gameState.getFriction() * delta;
-        if (carSpeed < 0) {
-            carSpeed = 0;
-        } else if (carSpeed > gameState.getMaxSpeed()) {
-            carSpeed = gameState.getMaxSpeed();
-        }
-        
-        gameState.adjustEnginePitch(engineID, .5f + .5f * carSpeed / gameState.getMaxSpeed());
-        
-        if (Gdx.input.isKeyPressed(Keys.LEFT)) {
-            steerAngle = approach(steerAngle, gameState.getSteerAngle(), gameState.getSteerAngle() * 2.0f * delta);
-        } else if (Gdx.input.isKeyPressed(Keys.RIGHT)) {
-            steerAngle = approach(steerAngle, -gameState.getSteerAngle(), gameState.getSteerAngle() * 2.0f * delta);
-        } else {
-            steerAngle = approach(steerAngle, 0.0f, gameState.getSteerAngle() * 3.0f * delta);
-        }
-        
-        steerAngles.add(steerAngle);
-        if (steerAngles.size > MAX_STEER_ANGLES) {
-            steerAngles.removeIndex(0);
-        }
-
-        float wheelBase = 70.0f;
-        
-        Vector2 frontWheel = new Vector2(wheelBase / 2.0f, 0.0f);
-        frontWheel.rotate(getRotation());
-        frontWheel.add(getPosition());
         
-        Vector2 backWheel = new Vector2(-wheelBase / 2.0f, 0.0f);
-        backWheel.rotate(getRotation());
-        backWheel.add(getPosition());
+        InputFrame frame = gameState.getInputFrame();
+        input.set(frame.isPressed(InputFrame.UP), frame.isPressed(InputFrame.DOWN), frame.isPressed(InputFrame.LEFT), frame.isPressed(InputFrame.RIGHT));
+        simulator.setTuning(gameState.getAcceleration(), gameState.getMaxSpeed(), gameState.getFriction(), gameState.getBraking(), gameState.getSteerAngle());
+        simulator.setLatency(MathUtils.round(gameState.getInputLatency() / delta));
+        simulator.step(input, delta);
         
-        temp.set(carSpeed * delta, 0.0f);
-        temp.rotate(getRotation());
-        backWheel.add(temp);
+        gameState.adjustEnginePitch(engineID, .5f + .5f * simulator.getSpeed() / gameState.getMaxSpeed());
         
-        temp.set(carSpeed * delta, 0.0f);
-        temp.rotate(getRotation() + steerAngles.first());
-        frontWheel.add(temp);
+        setPosition(simulator.getX(), simulator.getY());
+        setRotation(simulator.getRotation());
+        boneRotation = simulator.getBodyRotation();
+        rotateBone.setRotation(boneRotation);
         
-        setPosition((frontWheel.x + backWheel.x) / 2.0f, (frontWheel.y + backWheel.y) / 2.0f);
+        hull.transform(polygons, getX(), getY(), boneRotation);
         
-        temp.set(frontWheel);
-        temp.sub(backWheel);
-        setRotation(temp.angle());
-        rotateBone.setRotation(getRotation() + (steerAngle - steerAngles.first()));
-        
-        float cameraX = getX();
-        if (cameraX < Gdx.graphics.getWidth() / 2.0f) {
-            cameraX = Gdx.graphics.getWidth() / 2.0f;
-        } else if (cameraX > 2048 - Gdx.graphics.getWidth() / 2.0f) {
-            cameraX = 2048 - Gdx.graphics.getWidth() / 2.0f;
-        }
-        
-        float cameraY = getY();
-        if (cameraY < Gdx.graphics.getHeight() / 2.0f) {
-            cameraY = Gdx.graphics.getHeight() / 2.0f;
-        } else if (cameraY > 2048 - Gdx.graphics.getHeight() / 2.0f) {
-            cameraY = 2048 - Gdx.graphics.getHeight() / 2.0f;
-        }
-        
-        gameState.getGameCamera().position.set(cameraX, cameraY, 0.0f);
-        
-        polygons.clear();
-        for (FloatArray floats : skeletonBounds.getPolygons()) {
-            ShortArray points = triangulator.computeTriangles(floats.items);
-            
-            for (int i = 0; i < points.size; i += 3) {
-                float[] verts = new float[6];
-                for (int j = 0; j < 3; j++) {
-                    verts[j*2] = floats.get((points.get(i + j) * 2) % floats.size);
-                    verts[j*2+1] = floats.get((points.get(i + j) * 2 + 1) % floats.size);
-                }
-                
-                polygons.add(new Polygon(verts));
-            }
-        }
-        
-        for (Polygon polygon : gameState.getLevelData().getPolygons()) {
+        LevelData levelData = gameState.getLevelData();
+        if (!levelData.isClear(getX() + hull.getPivotX(), getY() + hull.getPivotY(), hull.getRadius())) {
             for (Polygon carPolygon : polygons) {
-                if (Intersector.overlapConvexPolygons(polygon, carPolygon)) {
+                if (levelData.overlapsWall(carPolygon)) {
                     dispose();
                     break;
                 }
             }
-            
-            if (isDestroyed()) {
-                break;
-            }
         }
         
-        if (hitMiddle) {
-            for(Polygon polygon : polygons) {
-                if (gameState.getLevelData().checkCollisionStart(polygon)) {
-                    hitMiddle = false;
-                    gameState.setTime(0.0f);
-                    gameState.playBeepSound();
-                    break;
-                }
-            }
-        } else {
-            for(Polygon polygon : polygons) {
-                if (gameState.getLevelData().checkCollisionMiddle(polygon)) {
-                    hitMiddle = true;
-                    break;
-                }
+        if (levelData.crossesCheckpoint(nextCheckpoint, getPreviousX(), getPreviousY(), getX(), getY())) {
+            if (nextCheckpoint == 0) {
+                gameState.completeLap();
+            } else {
+                gameState.completeSector(nextCheckpoint);
             }
+            nextCheckpoint = (nextCheckpoint + 1) % levelData.getCheckpointCount();
         }
         
-        if (Gdx.input.isKeyPressed(Keys.ESCAPE)) {
+        if (frame.isPressed(InputFrame.ESCAPE)) {
             dispose();
         }
     }
@@ -223,15 +131,41 @@ public class PlayerEntity extends Entity {
     }
 
     @Override
-    public void draw(SpriteBatch spriteBatch, float delta) {
+    public void draw(PolygonSpriteBatch spriteBatch, float delta) {
+        skeleton.setPosition(MathUtils.lerp(getPreviousX(), getX(), delta), MathUtils.lerp(getPreviousY(), getY(), delta));
+        rotateBone.setRotation(MathUtils.lerpAngleDeg(previousBoneRotation, boneRotation, delta));
+        skeleton.updateWorldTransform();
         getCore().getSkeletonRenderer().draw(spriteBatch, skeleton);
+        rotateBone.setRotation(boneRotation);
+    }
+    
+    /**
+     * Centers the game camera on the car's interpolated position, clamped to
+     * the edges of the track.
+     * @param delta the interpolation alpha passed to draw.
+     */
+    public void updateCamera(float delta) {
+        float cameraX = MathUtils.lerp(getPreviousX(), getX(), delta);
+        if (cameraX < Gdx.graphics.getWidth() / 2.0f) {
+            cameraX = Gdx.graphics.getWidth() / 2.0f;
+        } else if (cameraX > 2048 - Gdx.graphics.getWidth() / 2.0f) {
+            cameraX = 2048 - Gdx.graphics.getWidth() / 2.0f;
+        }
+        
+        float cameraY = MathUtils.lerp(getPreviousY(), getY(), delta);
+        if (cameraY < Gdx.graphics.getHeight() / 2.0f) {
+            cameraY = Gdx.graphics.getHeight() / 2.0f;
+        } else if (cameraY > 2048 - Gdx.graphics.getHeight() / 2.0f) {
+            cameraY = 2048 - Gdx.graphics.getHeight() / 2.0f;
+        }
+        
+        gameState.getGameCamera().position.set(cameraX, cameraY, 0.0f);
     }
 
     @Override
     public void destroy() {
         new GameOverTimerEntity(gameState, 1.5f);
-        ExplosionEntity explosion = new ExplosionEntity(gameState);
-        explosion.setPosition(getX(), getY());
+        gameState.spawnExplosion(getX(), getY(), true);
         gameState.playExplosionSound();
         gameState.stopEngineSound(engineID);
     }
@@ -240,22 +174,39 @@ public class PlayerEntity extends Entity {
     public void collision(Entity other) {
     }
 
+    @Override
+    public void storePreviousTransform() {
+        super.storePreviousTransform();
+        previousBoneRotation = boneRotation;
+    }
+
+    /**
+     * Places the car at rest, discarding its previous transform.
+     */
+    public void spawn(float x, float y, float rotation) {
+        simulator.reset(x, y, rotation);
+        setPosition(x, y);
+        setRotation(rotation);
+        boneRotation = rotation;
+        storePreviousTransform();
+    }
+
+    public float getCarSpeed() {
+        return simulator.getSpeed();
+    }
+
+    /**
+     * @return the angle the car body is drawn at this tick.
+     */
+    public float getBoneRotation() {
+        return boneRotation;
+    }
+
+    public VehicleSimulator getSimulator() {
+        return simulator;
+    }
+
     public void setColor(Color color) {
         tintSlot.getColor().set(color);
     }
-    
-    public float approach(float value, float target, float increment) {
-        if (target < value) {
-            value -= increment;
-            if (value < target) {
-                value = target;
-            }
-        } else if (target > value) {
-            value += increment;
-            if (value > target) {
-                value = target;
-            }
-        }
-        return value;
-    }
 }
@@ -0,0 +1,279 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.entities;
+
+import com.badlogic.gdx.ai.steer.Steerable;
+import com.badlogic.gdx.ai.steer.SteeringAcceleration;
+import com.badlogic.gdx.ai.steer.behaviors.FollowPath;
+import com.badlogic.gdx.ai.utils.Location;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * Drives a {@link VehicleSimulator} around a {@link RacingLine}. A gdx-ai
+ * {@link FollowPath} behavior picks a target point on the line a speed
+ * dependent distance ahead of the vehicle, the steering is turned toward the
+ * pure pursuit angle for that point and the throttle holds the line's target
+ * speed. Nothing is searched or allocated per tick.
+ */
+public class RacingDriver implements Steerable<Vector2> {
+    public final static float MIN_LOOK_AHEAD = 64.0f;
+    public final static float LOOK_AHEAD_TIME = .25f;
+    private final static float SPEED_SLACK = 25.0f;
+    private final VehicleSimulator simulator;
+    private final RacingLine racingLine;
+    private final FollowPath<Vector2, RacingLine.Param> followPath;
+    private final SteeringAcceleration<Vector2> steering;
+    private final Vector2 position;
+    private final Vector2 linearVelocity;
+    private float skill;
+    private float zeroLinearSpeedThreshold;
+    private float maxLinearAcceleration;
+    private float maxAngularSpeed;
+    private float maxAngularAcceleration;
+    private boolean tagged;
+
+    public RacingDriver(VehicleSimulator simulator, RacingLine racingLine) {
+        this.simulator = simulator;
+        this.racingLine = racingLine;
+        position = new Vector2();
+        linearVelocity = new Vector2();
+        followPath = new FollowPath<Vector2, RacingLine.Param>(this, racingLine, MIN_LOOK_AHEAD);
+        steering = new SteeringAcceleration<Vector2>(new Vector2());
+        skill = 1.0f;
+        zeroLinearSpeedThreshold = .001f;
+    }
+
+    /**
+     * Places the vehicle at rest on the line, facing along it.
+     * @param distance how far along the line from the start.
+     */
+    public void reset(float distance) {
+        racingLine.calculateTargetPosition(position, followPath.getPathParam(), distance);
+        simulator.reset(position.x, position.y, racingLine.getRotation(distance));
+        followPath.getPathParam().reset();
+    }
+
+    /**
+     * Sets the controls for the next step of the vehicle.
+     */
+    public void drive(VehicleInput input, float delta) {
+        float rotation = simulator.getRotation();
+        float speed = simulator.getSpeed();
+        position.set(simulator.getX(), simulator.getY());
+        linearVelocity.set(MathUtils.cosDeg(rotation) * speed, MathUtils.sinDeg(rotation) * speed);
+        
+        followPath.setPathOffset(MIN_LOOK_AHEAD + speed * LOOK_AHEAD_TIME);
+        followPath.calculateSteering(steering);
+        
+        Vector2 target = followPath.getInternalTargetPosition();
+        float distance = Math.max(position.dst(target), 1.0f);
+        float alpha = MathUtils.atan2(target.y - position.y, target.x - position.x) * MathUtils.radiansToDegrees - rotation;
+        float targetSteerAngle = MathUtils.atan2(2.0f * simulator.getWheelBase() * MathUtils.sinDeg(alpha), distance) * MathUtils.radiansToDegrees;
+        float tolerance = simulator.getMaxSteerAngle() * 2.0f * delta;
+        float steerAngle = simulator.getSteerAngle();
+        
+        float targetSpeed = skill * racingLine.getSpeed(followPath.getPathParam().getDistance());
+        input.set(speed < targetSpeed, speed > targetSpeed + SPEED_SLACK, steerAngle < targetSteerAngle - tolerance, steerAngle > targetSteerAngle + tolerance);
+    }
+
+    /**
+     * @return how far along the line the vehicle was when it last drove.
+     */
+    public float getDistance() {
+        return followPath.getPathParam().getDistance();
+    }
+
+    public VehicleSimulator getSimulator() {
+        return simulator;
+    }
+
+    public RacingLine getRacingLine() {
+        return racingLine;
+    }
+
+    public float getSkill() {
+        return skill;
+    }
+
+    /**
+     * @param skill the fraction of the racing line's target speeds to drive
+     * at.
+     */
+    public void setSkill(float skill) {
+        this.skill = skill;
+    }
+
+    @Override
+    public Vector2 getLinearVelocity() {
+        return linearVelocity;
+    }
+
+    @Override
+    public float getAngularVelocity() {
+        return 0.0f;
+    }
+
+    @Override
+    public float getBoundingRadius() {
+        return simulator.getWheelBase() / 2.0f;
+    }
+
+    @Override
+    public boolean isTagged() {
+        return tagged;
+    }
+
+    @Override
+    public void setTagged(boolean tagged) {
+        this.tagged = tagged;
+    }
+
+    @Override
+    public Vector2 getPosition() {
+        return position;
+    }
+
+    @Override
+    public float getOrientation() {
+        return simulator.getRotation() * MathUtils.degreesToRadians;
+    }
+
+    /**
+     * Does nothing; the heading belongs to the simulator.
+     */
+    @Override
+    public void setOrientation(float orientation) {
+    }
+
+    @Override
+    public float vectorToAngle(Vector2 vector) {
+        return MathUtils.atan2(vector.y, vector.x);
+    }
+
+    @Override
+    public Vector2 angleToVector(Vector2 outVector, float angle) {
+        return outVector.set(MathUtils.cos(angle), MathUtils.sin(angle));
+    }
+
+    @Override
+    public Location<Vector2> newLocation() {
+        return new Point();
+    }
+
+    @Override
+    public float getZeroLinearSpeedThreshold() {
+        return zeroLinearSpeedThreshold;
+    }
+
+    @Override
+    public void setZeroLinearSpeedThreshold(float value) {
+        zeroLinearSpeedThreshold = value;
+    }
+
+    @Override
+    public float getMaxLinearSpeed() {
+        return simulator.getMaxSpeed();
+    }
+
+    /**
+     * Does nothing; the top speed is part of the simulator's tuning.
+     */
+    @Override
+    public void setMaxLinearSpeed(float maxLinearSpeed) {
+    }
+
+    @Override
+    public float getMaxLinearAcceleration() {
+        return maxLinearAcceleration;
+    }
+
+    @Override
+    public void setMaxLinearAcceleration(float maxLinearAcceleration) {
+        this.maxLinearAcceleration = maxLinearAcceleration;
+    }
+
+    @Override
+    public float getMaxAngularSpeed() {
+        return maxAngularSpeed;
+    }
+
+    @Override
+    public void setMaxAngularSpeed(float maxAngularSpeed) {
+        this.maxAngularSpeed = maxAngularSpeed;
+    }
+
+    @Override
+    public float getMaxAngularAcceleration() {
+        return maxAngularAcceleration;
+    }
+
+    @Override
+    public void setMaxAngularAcceleration(float maxAngularAcceleration) {
+        this.maxAngularAcceleration = maxAngularAcceleration;
+    }
+    
+    /**
+     * A bare position and orientation, handed to gdx-ai behaviors that need
+     * a location of their own.
+     */
+    private static class Point implements Location<Vector2> {
+        private final Vector2 position;
+        private float orientation;
+
+        public Point() {
+            position = new Vector2();
+        }
+
+        @Override
+        public Vector2 getPosition() {
+            return position;
+        }
+
+        @Override
+        public float getOrientation() {
+            return orientation;
+        }
+
+        @Override
+        public void setOrientation(float orientation) {
+            this.orientation = orientation;
+        }
+
+        @Override
+        public float vectorToAngle(Vector2 vector) {
+            return MathUtils.atan2(vector.y, vector.x);
+        }
+
+        @Override
+        public Vector2 angleToVector(Vector2 outVector, float angle) {
+            return outVector.set(MathUtils.cos(angle), MathUtils.sin(angle));
+        }
+
+        @Override
+        public Location<Vector2> newLocation() {
+            return new Point();
+        }
+    }
+}
@@ -0,0 +1,671 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.entities;
+
+import com.badlogic.gdx.Files.FileType;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.ai.steer.utils.Path;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.ray3k.remotecrashcars.Core;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Closed line around a track for AI drivers to follow, with a target speed at
+ * every point. The line is traced once from the wall geometry as the cheapest
+ * path over a {@link DistanceField} from the start line through every
+ * checkpoint in order and back, where steps near the walls cost more. It is
+ * then resampled to even spacing and smoothed.
+ * <p>
+ * The points are cached next to the {@link TrackCache}. Target speeds come
+ * from the curvature of the line and the handling values, so they are
+ * recomputed with {@link #setSpeedProfile(float, float, float)} instead.
+ * <p>
+ * Queries go through a {@link Param} that remembers the segment an agent was
+ * last found on and only searches a few segments around it, so following the
+ * line costs the same on any track.
+ */
+public class RacingLine implements Path<Vector2, RacingLine.Param> {
+    public final static int MAGIC = 0x5243524C;
+    public final static int VERSION = 1;
+    public final static float SPACING = 16.0f;
+    public final static float DEFAULT_LATERAL_ACCELERATION = 900.0f;
+    private final static int HEADER_BYTES = 4 * 2 + 8 * 2 + 4;
+    private final static float MIN_CLEARANCE = 24.0f;
+    private final static float CENTRE_WEIGHT = 128.0f;
+    private final static float MAX_GATE_EXTENSION = 512.0f;
+    private final static float DIAGONAL = 1.4142135f;
+    private final static int SMOOTHING_PASSES = 8;
+    private final static int CURVATURE_SPAN = 2;
+    private final static int SEARCH_BEHIND = 2;
+    private final static int SEARCH_AHEAD = 8;
+    private final float[] points;
+    private final float[] distances;
+    private final float[] curvatures;
+    private final float[] speeds;
+    private final Vector2 startPoint;
+
+    /**
+     * @param points x and y of each point in driving order. The last point
+     * joins back to the first.
+     */
+    public RacingLine(float[] points) {
+        this.points = points;
+        int count = points.length / 2;
+        
+        distances = new float[count + 1];
+        for (int i = 0; i < count; i++) {
+            int j = (i + 1) % count;
+            distances[i + 1] = distances[i] + Vector2.dst(points[i * 2], points[i * 2 + 1], points[j * 2], points[j * 2 + 1]);
+        }
+        
+        curvatures = new float[count];
+        for (int i = 0; i < count; i++) {
+            int a = (i - CURVATURE_SPAN + count) % count;
+            int c = (i + CURVATURE_SPAN) % count;
+            curvatures[i] = curvature(points[a * 2], points[a * 2 + 1], points[i * 2], points[i * 2 + 1], points[c * 2], points[c * 2 + 1]);
+        }
+        
+        speeds = new float[count];
+        startPoint = new Vector2(points[0], points[1]);
+    }
+    
+    /**
+     * @return the reciprocal of the radius of the circle through the three
+     * points, or 0 if they are in a line.
+     */
+    private static float curvature(float x1, float y1, float x2, float y2, float x3, float y3) {
+        float cross = (x2 - x1) * (y3 - y1) - (y2 - y1) * (x3 - x1);
+        float product = Vector2.dst(x1, y1, x2, y2) * Vector2.dst(x2, y2, x3, y3) * Vector2.dst(x1, y1, x3, y3);
+        return product == 0 ? 0.0f : Math.abs(2.0f * cross / product);
+    }
+    
+    /**
+     * Loads the track's racing line from its cache, tracing it and writing the
+     * cache first if there is no up to date one.
+     */
+    public static RacingLine load(LevelData levelData, String trackPath) {
+        FileHandle source = Gdx.files.internal(trackPath);
+        FileHandle cache = getCacheFile(trackPath);
+        RacingLine racingLine = read(cache, source);
+        
+        if (racingLine == null) {
+            racingLine = trace(levelData);
+            try {
+                racingLine.write(cache, source);
+            } catch (IOException e) {
+                Gdx.app.error(RacingLine.class.getSimpleName(), "Unable to write racing line " + cache.path(), e);
+            }
+        }
+        return racingLine;
+    }
+    
+    /**
+     * @return the local file holding the racing line of the given track
+     * skeleton.
+     */
+    public static FileHandle getCacheFile(String trackPath) {
+        return Gdx.files.local(Core.DATA_PATH + "/cache/" + Gdx.files.internal(trackPath).nameWithoutExtension() + ".line");
+    }
+    
+    /**
+     * Traces the centre line of the track as the cheapest path over the nodes
+     * of the distance field that goes through every checkpoint in order. Each
+     * step costs more the nearer it is to a wall, so the path keeps to the
+     * middle of the track. Every gate other than the one being searched for is
+     * extended to the walls and blocked, so the path can't turn back or sneak
+     * around a gate.
+     * @throws IllegalStateException if a checkpoint can't be reached.
+     */
+    public static RacingLine trace(LevelData levelData) {
+        DistanceField field = levelData.getDistanceField();
+        if (field == null) {
+            field = DistanceField.bake(levelData.getTree(), LevelData.WORLD_SIZE, DistanceField.DEFAULT_CELL_SIZE);
+        }
+        int width = field.getWidth();
+        int height = field.getHeight();
+        float cellSize = field.getCellSize();
+        float[] clearances = field.getDistances();
+        
+        int checkpointCount = levelData.getCheckpointCount();
+        IntArray[] gates = new IntArray[checkpointCount];
+        int[] gateOf = new int[width * height];
+        Arrays.fill(gateOf, -1);
+        for (int i = 0; i < checkpointCount; i++) {
+            gates[i] = rasterizeGate(levelData, field, i);
+            for (int j = 0; j < gates[i].size; j++) {
+                gateOf[gates[i].get(j)] = i;
+            }
+        }
+        
+        float[] checkpoints = levelData.getCheckpoints();
+        float forwardX = checkpoints[1] - checkpoints[3];
+        float forwardY = checkpoints[2] - checkpoints[0];
+        if (forwardX * MathUtils.cosDeg(levelData.getSpawnRotation()) + forwardY * MathUtils.sinDeg(levelData.getSpawnRotation()) < 0) {
+            forwardX = -forwardX;
+            forwardY = -forwardY;
+        }
+        float length = (float) Math.sqrt(forwardX * forwardX + forwardY * forwardY);
+        forwardX *= 3.0f * cellSize / length;
+        forwardY *= 3.0f * cellSize / length;
+        
+        int middle = gates[0].get(0);
+        for (int i = 1; i < gates[0].size; i++) {
+            if (clearances[gates[0].get(i)] > clearances[middle]) {
+                middle = gates[0].get(i);
+            }
+        }
+        float middleX = field.getOriginX() + middle % width * cellSize;
+        float middleY = field.getOriginY() + middle / width * cellSize;
+        int start = findNode(field, middleX + forwardX, middleY + forwardY);
+        int end = findNode(field, middleX - forwardX, middleY - forwardY);
+        
+        IntArray path = new IntArray();
+        path.add(start);
+        for (int i = 1; i <= checkpointCount; i++) {
+            int target = i < checkpointCount ? i : -1;
+            if (!findPath(field, gateOf, path.peek(), target, end, path)) {
+                throw new IllegalStateException("Unable to trace a racing line to checkpoint " + (i % checkpointCount) + ".");
+            }
+        }
+        
+        float[] points = new float[path.size * 2];
+        for (int i = 0; i < path.size; i++) {
+            points[i * 2] = field.getOriginX() + path.get(i) % width * cellSize;
+            points[i * 2 + 1] = field.getOriginY() + path.get(i) / width * cellSize;
+        }
+        points = resample(points);
+        for (int pass = 0; pass < SMOOTHING_PASSES; pass++) {
+            points = smooth(points);
+        }
+        return new RacingLine(resample(points));
+    }
+    
+    /**
+     * @return the nodes of the distance field around a gate, extended past
+     * its end points to the walls. The band is two nodes thick so a diagonal
+     * step can't slip through it.
+     */
+    private static IntArray rasterizeGate(LevelData levelData, DistanceField field, int gate) {
+        float[] checkpoints = levelData.getCheckpoints();
+        float x1 = checkpoints[gate * 4];
+        float y1 = checkpoints[gate * 4 + 1];
+        float x2 = checkpoints[gate * 4 + 2];
+        float y2 = checkpoints[gate * 4 + 3];
+        float length = Vector2.dst(x1, y1, x2, y2);
+        float directionX = (x2 - x1) / length;
+        float directionY = (y2 - y1) / length;
+        float step = field.getCellSize() / 2.0f;
+        
+        IntArray nodes = new IntArray();
+        for (int side = -1; side <= 1; side += 2) {
+            for (float t = length / 2.0f; t >= -MAX_GATE_EXTENSION && t <= length + MAX_GATE_EXTENSION; t += side * step) {
+                float x = x1 + directionX * t;
+                float y = y1 + directionY * t;
+                if (field.getDistance(x, y) <= 0) {
+                    if (t < 0 || t > length) {
+                        break;
+                    }
+                    continue;
+                }
+                
+                int column = MathUtils.clamp((int) ((x - field.getOriginX()) / field.getCellSize()), 0, field.getWidth() - 2);
+                int row = MathUtils.clamp((int) ((y - field.getOriginY()) / field.getCellSize()), 0, field.getHeight() - 2);
+                int node = row * field.getWidth() + column;
+                nodes.add(node);
+                nodes.add(node + 1);
+                nodes.add(node + field.getWidth());
+                nodes.add(node + field.getWidth() + 1);
+            }
+        }
+        return nodes;
+    }
+    
+    private static int findNode(DistanceField field, float x, float y) {
+        int column = MathUtils.clamp(MathUtils.round((x - field.getOriginX()) / field.getCellSize()), 0, field.getWidth() - 1);
+        int row = MathUtils.clamp(MathUtils.round((y - field.getOriginY()) / field.getCellSize()), 0, field.getHeight() - 1);
+        return row * field.getWidth() + column;
+    }
+    
+    /**
+     * Dijkstra's search over the eight-connected nodes of the field. Nodes
+     * closer to a wall than {@link #MIN_CLEARANCE} and nodes on any gate
+     * but the target one and the one source is on can't be entered.
+     * @param targetGate the gate to reach, or -1 to reach targetNode instead.
+     * @param path receives the nodes after source up to the one reached.
+     * @return false if nothing could be reached.
+     */
+    private static boolean findPath(DistanceField field, int[] gateOf, int source, int targetGate, int targetNode, IntArray path) {
+        int width = field.getWidth();
+        int height = field.getHeight();
+        float cellSize = field.getCellSize();
+        float[] clearances = field.getDistances();
+        float[] costs = new float[width * height];
+        int[] previous = new int[width * height];
+        Arrays.fill(costs, Float.MAX_VALUE);
+        costs[source] = 0.0f;
+        int sourceGate = gateOf[source];
+        
+        IntArray heapNodes = new IntArray();
+        FloatArray heapCosts = new FloatArray();
+        push(heapNodes, heapCosts, source, 0.0f);
+        while (heapNodes.size > 0) {
+            int node = heapNodes.first();
+            float cost = heapCosts.first();
+            pop(heapNodes, heapCosts);
+            if (cost > costs[node]) {
+                continue;
+            }
+            
+            if (node != source && (targetGate == -1 ? node == targetNode : gateOf[node] == targetGate)) {
+                int first = path.size;
+                for (int i = node; i != source; i = previous[i]) {
+                    path.add(i);
+                }
+                for (int i = first, j = path.size - 1; i < j; i++, j--) {
+                    path.swap(i, j);
+                }
+                return true;
+            }
+            
+            int column = node % width;
+            int row = node / width;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int neighborColumn = column + dx;
+                    int neighborRow = row + dy;
+                    if (dx == 0 && dy == 0 || neighborColumn < 0 || neighborRow < 0 || neighborColumn >= width || neighborRow >= height) {
+                        continue;
+                    }
+                    
+                    int neighbor = neighborRow * width + neighborColumn;
+                    float clearance = clearances[neighbor];
+                    if (clearance < MIN_CLEARANCE || gateOf[neighbor] != -1 && gateOf[neighbor] != targetGate && gateOf[neighbor] != sourceGate) {
+                        continue;
+                    }
+                    
+                    float weight = CENTRE_WEIGHT / clearance;
+                    float neighborCost = cost + (dx != 0 && dy != 0 ? DIAGONAL : 1.0f) * cellSize * (1.0f + weight * weight);
+                    if (neighborCost < costs[neighbor]) {
+                        costs[neighbor] = neighborCost;
+                        previous[neighbor] = node;
+                        push(heapNodes, heapCosts, neighbor, neighborCost);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+    
+    private static void push(IntArray heapNodes, FloatArray heapCosts, int node, float cost) {
+        heapNodes.add(node);
+        heapCosts.add(cost);
+        int i = heapNodes.size - 1;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heapCosts.get(parent) <= cost) {
+                break;
+            }
+            heapNodes.set(i, heapNodes.get(parent));
+            heapCosts.set(i, heapCosts.get(parent));
+            i = parent;
+        }
+        heapNodes.set(i, node);
+        heapCosts.set(i, cost);
+    }
+    
+    private static void pop(IntArray heapNodes, FloatArray heapCosts) {
+        int node = heapNodes.pop();
+        float cost = heapCosts.pop();
+        int size = heapNodes.size;
+        if (size == 0) {
+            return;
+        }
+        
+        int i = 0;
+        while (true) {
+            int child = i * 2 + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heapCosts.get(child + 1) < heapCosts.get(child)) {
+                child++;
+            }
+            if (heapCosts.get(child) >= cost) {
+                break;
+            }
+            heapNodes.set(i, heapNodes.get(child));
+            heapCosts.set(i, heapCosts.get(child));
+            i = child;
+        }
+        heapNodes.set(i, node);
+        heapCosts.set(i, cost);
+    }
+    
+    /**
+     * @return the closed line through the given points, with points spaced
+     * as close to {@link #SPACING} apart as divides its length evenly.
+     */
+    private static float[] resample(float[] line) {
+        RacingLine racingLine = new RacingLine(line);
+        int count = Math.max(3, MathUtils.round(racingLine.getLength() / SPACING));
+        float step = racingLine.getLength() / count;
+        
+        float[] points = new float[count * 2];
+        Vector2 point = new Vector2();
+        Param param = racingLine.createParam();
+        for (int i = 0; i < count; i++) {
+            racingLine.calculateTargetPosition(point, param, i * step);
+            points[i * 2] = point.x;
+            points[i * 2 + 1] = point.y;
+        }
+        return points;
+    }
+    
+    private static float[] smooth(float[] line) {
+        int count = line.length / 2;
+        float[] points = new float[line.length];
+        for (int i = 0; i < count; i++) {
+            int a = (i - 1 + count) % count;
+            int c = (i + 1) % count;
+            points[i * 2] = (line[a * 2] + 2.0f * line[i * 2] + line[c * 2]) / 4.0f;
+            points[i * 2 + 1] = (line[a * 2 + 1] + 2.0f * line[i * 2 + 1] + line[c * 2 + 1]) / 4.0f;
+        }
+        return points;
+    }
+    
+    /**
+     * Sets the target speed at each point to the fastest the curvature allows,
+     * lowered wherever the car has to start braking for a slower point ahead.
+     * @param lateralAcceleration how hard a car can corner, the limit on the
+     * square of the speed times the curvature.
+     */
+    public void setSpeedProfile(float maxSpeed, float braking, float lateralAcceleration) {
+        int count = speeds.length;
+        for (int i = 0; i < count; i++) {
+            float speed = curvatures[i] > 0 ? (float) Math.sqrt(lateralAcceleration / curvatures[i]) : maxSpeed;
+            speeds[i] = Math.min(speed, maxSpeed);
+        }
+        
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = count - 1; i >= 0; i--) {
+                int next = (i + 1) % count;
+                float segment = distances[i + 1] - distances[i];
+                float speed = (float) Math.sqrt(speeds[next] * speeds[next] + 2.0f * braking * segment);
+                if (speed < speeds[i]) {
+                    speeds[i] = speed;
+                }
+            }
+        }
+    }
+    
+    /**
+     * @return the index of the segment the given distance along the line falls
+     * on.
+     */
+    private int findSegment(float distance) {
+        int low = 0;
+        int high = speeds.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (distances[middle] <= distance) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * @return distance wrapped into the length of one lap.
+     */
+    public float wrap(float distance) {
+        float length = getLength();
+        distance %= length;
+        return distance < 0 ? distance + length : distance;
+    }
+    
+    /**
+     * @return the target speed at the given distance along the line.
+     */
+    public float getSpeed(float distance) {
+        distance = wrap(distance);
+        int segment = findSegment(distance);
+        float alpha = (distance - distances[segment]) / (distances[segment + 1] - distances[segment]);
+        return MathUtils.lerp(speeds[segment], speeds[(segment + 1) % speeds.length], alpha);
+    }
+    
+    /**
+     * @return the heading in degrees of the line at the given distance.
+     */
+    public float getRotation(float distance) {
+        int i = findSegment(wrap(distance));
+        int j = (i + 1) % speeds.length;
+        float rotation = MathUtils.atan2(points[j * 2 + 1] - points[i * 2 + 1], points[j * 2] - points[i * 2]) * MathUtils.radiansToDegrees;
+        return rotation < 0 ? rotation + 360.0f : rotation;
+    }
+    
+    @Override
+    public Param createParam() {
+        return new Param();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return false;
+    }
+
+    @Override
+    public float getLength() {
+        return distances[distances.length - 1];
+    }
+
+    @Override
+    public Vector2 getStartPoint() {
+        return startPoint;
+    }
+
+    @Override
+    public Vector2 getEndPoint() {
+        return startPoint;
+    }
+
+    /**
+     * Projects the position onto the nearest segment near the one param was
+     * last on, or onto the whole line if param hasn't been used yet.
+     */
+    @Override
+    public float calculateDistance(Vector2 position, Param param) {
+        int count = speeds.length;
+        int first = 0;
+        int last = count - 1;
+        if (param.segment >= 0) {
+            first = param.segment - SEARCH_BEHIND;
+            last = param.segment + SEARCH_AHEAD;
+        }
+        
+        float bestDistance = Float.MAX_VALUE;
+        int bestSegment = 0;
+        float bestAlpha = 0.0f;
+        for (int s = first; s <= last; s++) {
+            int i = (s + count) % count;
+            int j = (i + 1) % count;
+            float x1 = points[i * 2];
+            float y1 = points[i * 2 + 1];
+            float dx = points[j * 2] - x1;
+            float dy = points[j * 2 + 1] - y1;
+            float lengthSquared = dx * dx + dy * dy;
+            float alpha = lengthSquared == 0 ? 0.0f : MathUtils.clamp(((position.x - x1) * dx + (position.y - y1) * dy) / lengthSquared, 0.0f, 1.0f);
+            float distance = Vector2.dst2(position.x, position.y, x1 + dx * alpha, y1 + dy * alpha);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestSegment = i;
+                bestAlpha = alpha;
+            }
+        }
+        
+        param.segment = bestSegment;
+        param.distance = MathUtils.lerp(distances[bestSegment], distances[bestSegment + 1], bestAlpha);
+        return param.distance;
+    }
+
+    @Override
+    public void calculateTargetPosition(Vector2 out, Param param, float targetDistance) {
+        float distance = wrap(targetDistance);
+        int i = findSegment(distance);
+        int j = (i + 1) % speeds.length;
+        float alpha = (distance - distances[i]) / (distances[i + 1] - distances[i]);
+        out.set(MathUtils.lerp(points[i * 2], points[j * 2], alpha), MathUtils.lerp(points[i * 2 + 1], points[j * 2 + 1], alpha));
+    }
+
+    public int getPointCount() {
+        return speeds.length;
+    }
+
+    /**
+     * @return x and y of each point in driving order.
+     */
+    public float[] getPoints() {
+        return points;
+    }
+
+    public float[] getCurvatures() {
+        return curvatures;
+    }
+
+    public float[] getSpeeds() {
+        return speeds;
+    }
+
+    /**
+     * @return the racing line read from the cache, or null if the cache is
+     * missing, out of date or can't be read.
+     */
+    public static RacingLine read(FileHandle cache, FileHandle source) {
+        if (cache.type() == FileType.Classpath || !cache.exists()) {
+            return null;
+        }
+        
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(cache.file(), "r");
+            FileChannel channel = file.getChannel();
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            ByteBuffer buffer = TrackCache.readFully(channel);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != source.length() || buffer.getLong() != source.lastModified()) {
+                return null;
+            }
+            
+            int count = buffer.getInt();
+            if (count < 3 || buffer.remaining() != count * 2 * 4) {
+                return null;
+            }
+            
+            float[] points = new float[count * 2];
+            buffer.asFloatBuffer().get(points);
+            return new RacingLine(points);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the points to the cache, stamped with the source skeleton's length
+     * and modification time.
+     */
+    public void write(FileHandle cache, FileHandle source) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + points.length * 4);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(source.length());
+        buffer.putLong(source.lastModified());
+        buffer.putInt(points.length / 2);
+        buffer.asFloatBuffer().put(points);
+        buffer.rewind();
+        
+        cache.parent().mkdirs();
+        FileOutputStream stream = new FileOutputStream(cache.file());
+        try {
+            FileChannel channel = stream.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            stream.close();
+        }
+    }
+    
+    /**
+     * Where an agent is along the line. Remembers the segment it was found on
+     * so the next search can start there.
+     */
+    public static class Param implements Path.PathParam {
+        private float distance;
+        private int segment;
+
+        public Param() {
+            segment = -1;
+        }
+
+        @Override
+        public float getDistance() {
+            return distance;
+        }
+
+        @Override
+        public void setDistance(float distance) {
+            this.distance = distance;
+        }
+
+        /**
+         * Makes the next {@link RacingLine#calculateDistance(Vector2, Param)}
+         * search the whole line, for when the agent has jumped.
+         */
+        public void reset() {
+            segment = -1;
+        }
+    }
+}
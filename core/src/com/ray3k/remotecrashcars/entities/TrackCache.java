@@ -0,0 +1,178 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.entities;
+
+import com.badlogic.gdx.Files.FileType;
+import com.badlogic.gdx.files.FileHandle;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Binary track collision file holding everything {@link LevelData} derives
+ * from a track skeleton: the wall triangles with their {@link TriangleTree}
+ * nodes, the spawn point and the checkpoint gates. Reading pulls the
+ * file into memory with a single channel read and bulk copies each section
+ * into its array, so setup time is a few memory copies no matter how detailed
+ * the track is. The file is closed as soon as it has been read, so it is never
+ * left locked while the game runs.
+ * <p>
+ * A cache records the length and modification time of the skeleton it was
+ * built from and is ignored once either changes.
+ */
+public class TrackCache {
+    public final static int MAGIC = 0x52434354;
+    public final static int VERSION = 2;
+    private final static int HEADER_BYTES = 5 * 4 + 8 * 2 + 3 * 4;
+
+    /**
+     * @return the level read from the cache, or null if the cache is missing,
+     * out of date or can't be read.
+     */
+    public static LevelData read(FileHandle cache, FileHandle source) {
+        if (cache.type() == FileType.Classpath || !cache.exists()) {
+            return null;
+        }
+        
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(cache.file(), "r");
+            FileChannel channel = file.getChannel();
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            ByteBuffer buffer = readFully(channel);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != source.length() || buffer.getLong() != source.lastModified()) {
+                return null;
+            }
+            
+            int triangleFloats = buffer.getInt();
+            int nodes = buffer.getInt();
+            int checkpointFloats = buffer.getInt();
+            if (buffer.remaining() != 3 * 4 + checkpointFloats * 4 + triangleFloats * 4 + nodes * 6 * 4) {
+                return null;
+            }
+            
+            float spawnX = buffer.getFloat();
+            float spawnY = buffer.getFloat();
+            float spawnRotation = buffer.getFloat();
+            
+            float[] checkpoints = new float[checkpointFloats];
+            float[] triangles = new float[triangleFloats];
+            float[] nodeBounds = new float[nodes * 4];
+            int[] nodeStarts = new int[nodes];
+            int[] nodeCounts = new int[nodes];
+            buffer.asFloatBuffer().get(checkpoints);
+            buffer.position(buffer.position() + checkpoints.length * 4);
+            buffer.asFloatBuffer().get(triangles);
+            buffer.position(buffer.position() + triangles.length * 4);
+            buffer.asFloatBuffer().get(nodeBounds);
+            buffer.position(buffer.position() + nodeBounds.length * 4);
+            buffer.asIntBuffer().get(nodeStarts);
+            buffer.position(buffer.position() + nodeStarts.length * 4);
+            buffer.asIntBuffer().get(nodeCounts);
+            
+            TriangleTree tree = new TriangleTree(triangles, nodeBounds, nodeStarts, nodeCounts);
+            return new LevelData(tree, spawnX, spawnY, spawnRotation, checkpoints);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the whole channel into a heap buffer. Unlike a mapped buffer this
+     * holds nothing open once the channel is closed.
+     * @return the contents, flipped and ready to read.
+     */
+    static ByteBuffer readFully(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Writes the level to the cache, stamped with the source skeleton's length
+     * and modification time.
+     */
+    public static void write(LevelData levelData, FileHandle cache, FileHandle source) throws IOException {
+        TriangleTree tree = levelData.getTree();
+        int nodes = tree.getNodeCount();
+        int triangleFloats = tree.getTriangles().length;
+        float[] checkpoints = levelData.getCheckpoints();
+        
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + checkpoints.length * 4 + triangleFloats * 4 + nodes * 6 * 4);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(source.length());
+        buffer.putLong(source.lastModified());
+        buffer.putInt(triangleFloats);
+        buffer.putInt(nodes);
+        buffer.putInt(checkpoints.length);
+        
+        buffer.putFloat(levelData.getSpawnX());
+        buffer.putFloat(levelData.getSpawnY());
+        buffer.putFloat(levelData.getSpawnRotation());
+        
+        buffer.asFloatBuffer().put(checkpoints);
+        buffer.position(buffer.position() + checkpoints.length * 4);
+        buffer.asFloatBuffer().put(tree.getTriangles());
+        buffer.position(buffer.position() + triangleFloats * 4);
+        buffer.asFloatBuffer().put(tree.getNodeBounds(), 0, nodes * 4);
+        buffer.position(buffer.position() + nodes * 4 * 4);
+        buffer.asIntBuffer().put(tree.getNodeStarts(), 0, nodes);
+        buffer.position(buffer.position() + nodes * 4);
+        buffer.asIntBuffer().put(tree.getNodeCounts(), 0, nodes);
+        buffer.rewind();
+        
+        cache.parent().mkdirs();
+        FileOutputStream stream = new FileOutputStream(cache.file());
+        try {
+            FileChannel channel = stream.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            stream.close();
+        }
+    }
+}
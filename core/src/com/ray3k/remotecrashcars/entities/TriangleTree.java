@@ -0,0 +1,489 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.entities;
+
+import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Static bounding volume hierarchy over a soup of triangles, used for the
+ * track walls. Nodes live in flat arrays: an internal node's left child is the
+ * next node and its right child is stored in {@code nodeStarts}, a leaf holds
+ * {@code nodeCounts} triangles starting at {@code nodeStarts} in the reordered
+ * triangle array. Queries only read the arrays, so one tree can be shared by
+ * any number of threads.
+ */
+public class TriangleTree {
+    public final static int LEAF_SIZE = 4;
+    private final float[] triangles;
+    private final float[] nodeBounds;
+    private final int[] nodeStarts;
+    private final int[] nodeCounts;
+    private int nodes;
+
+    /**
+     * @param triangles six floats per triangle. The array is reordered in
+     * place to match the tree layout.
+     */
+    public TriangleTree(float[] triangles) {
+        this.triangles = triangles;
+        int count = getTriangleCount();
+        int maxNodes = Math.max(1, 2 * count - 1);
+        nodeBounds = new float[maxNodes * 4];
+        nodeStarts = new int[maxNodes];
+        nodeCounts = new int[maxNodes];
+        
+        float[] centroids = new float[count * 2];
+        for (int i = 0; i < count; i++) {
+            int o = i * 6;
+            centroids[i * 2] = (triangles[o] + triangles[o + 2] + triangles[o + 4]) / 3.0f;
+            centroids[i * 2 + 1] = (triangles[o + 1] + triangles[o + 3] + triangles[o + 5]) / 3.0f;
+        }
+        
+        nodes = 0;
+        if (count > 0) {
+            build(0, count, centroids);
+        } else {
+            nodes = 1;
+            nodeBounds[0] = Float.MAX_VALUE;
+            nodeBounds[1] = Float.MAX_VALUE;
+            nodeBounds[2] = -Float.MAX_VALUE;
+            nodeBounds[3] = -Float.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Restores a tree from arrays previously obtained through the getters,
+     * without rebuilding it.
+     */
+    public TriangleTree(float[] triangles, float[] nodeBounds, int[] nodeStarts, int[] nodeCounts) {
+        this.triangles = triangles;
+        this.nodeBounds = nodeBounds;
+        this.nodeStarts = nodeStarts;
+        this.nodeCounts = nodeCounts;
+        nodes = nodeStarts.length;
+    }
+
+    private int build(int from, int to, float[] centroids) {
+        int node = nodes++;
+        
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        float cMinX = Float.MAX_VALUE, cMinY = Float.MAX_VALUE, cMaxX = -Float.MAX_VALUE, cMaxY = -Float.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            for (int j = 0; j < 3; j++) {
+                float x = triangles[i * 6 + j * 2];
+                float y = triangles[i * 6 + j * 2 + 1];
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+            }
+            cMinX = Math.min(cMinX, centroids[i * 2]);
+            cMinY = Math.min(cMinY, centroids[i * 2 + 1]);
+            cMaxX = Math.max(cMaxX, centroids[i * 2]);
+            cMaxY = Math.max(cMaxY, centroids[i * 2 + 1]);
+        }
+        nodeBounds[node * 4] = minX;
+        nodeBounds[node * 4 + 1] = minY;
+        nodeBounds[node * 4 + 2] = maxX;
+        nodeBounds[node * 4 + 3] = maxY;
+        
+        if (to - from <= LEAF_SIZE) {
+            nodeStarts[node] = from;
+            nodeCounts[node] = to - from;
+            return node;
+        }
+        
+        int axis = cMaxX - cMinX >= cMaxY - cMinY ? 0 : 1;
+        int mid = (from + to) / 2;
+        select(from, to - 1, mid, axis, centroids);
+        
+        build(from, mid, centroids);
+        nodeStarts[node] = build(mid, to, centroids);
+        nodeCounts[node] = 0;
+        return node;
+    }
+
+    /**
+     * Partially sorts triangles so the one at index k has the median
+     * centroid along the axis, with smaller ones before it.
+     */
+    private void select(int left, int right, int k, int axis, float[] centroids) {
+        while (right > left) {
+            float pivot = centroids[((left + right) / 2) * 2 + axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (centroids[i * 2 + axis] < pivot) {
+                    i++;
+                }
+                while (centroids[j * 2 + axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i, j, centroids);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b, float[] centroids) {
+        for (int i = 0; i < 6; i++) {
+            float temp = triangles[a * 6 + i];
+            triangles[a * 6 + i] = triangles[b * 6 + i];
+            triangles[b * 6 + i] = temp;
+        }
+        for (int i = 0; i < 2; i++) {
+            float temp = centroids[a * 2 + i];
+            centroids[a * 2 + i] = centroids[b * 2 + i];
+            centroids[b * 2 + i] = temp;
+        }
+    }
+
+    /**
+     * Appends the index of every triangle whose bounds overlap the box.
+     * @return the number of triangles added.
+     */
+    public int query(float minX, float minY, float maxX, float maxY, IntArray results) {
+        int size = results.size;
+        query(0, minX, minY, maxX, maxY, results);
+        return results.size - size;
+    }
+
+    private void query(int node, float minX, float minY, float maxX, float maxY, IntArray results) {
+        if (!overlapsNode(node, minX, minY, maxX, maxY)) {
+            return;
+        }
+        
+        if (nodeCounts[node] > 0) {
+            for (int i = nodeStarts[node], n = i + nodeCounts[node]; i < n; i++) {
+                if (overlapsTriangle(i, minX, minY, maxX, maxY)) {
+                    results.add(i);
+                }
+            }
+        } else {
+            query(node + 1, minX, minY, maxX, maxY, results);
+            query(nodeStarts[node], minX, minY, maxX, maxY, results);
+        }
+    }
+
+    /**
+     * Exact test of a convex polygon against the walls.
+     * @param vertices x, y pairs of a convex polygon in world space.
+     */
+    public boolean overlapsConvex(float[] vertices, int offset, int count) {
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int i = offset; i < offset + count; i += 2) {
+            minX = Math.min(minX, vertices[i]);
+            minY = Math.min(minY, vertices[i + 1]);
+            maxX = Math.max(maxX, vertices[i]);
+            maxY = Math.max(maxY, vertices[i + 1]);
+        }
+        return overlapsConvex(0, vertices, offset, count, minX, minY, maxX, maxY);
+    }
+
+    private boolean overlapsConvex(int node, float[] vertices, int offset, int count, float minX, float minY, float maxX, float maxY) {
+        if (!overlapsNode(node, minX, minY, maxX, maxY)) {
+            return false;
+        }
+        
+        if (nodeCounts[node] > 0) {
+            for (int i = nodeStarts[node], n = i + nodeCounts[node]; i < n; i++) {
+                if (overlapsTriangle(i, minX, minY, maxX, maxY) && overlapsTriangle(i, vertices, offset, count)) {
+                    return true;
+                }
+            }
+            return false;
+        } else {
+            return overlapsConvex(node + 1, vertices, offset, count, minX, minY, maxX, maxY) || overlapsConvex(nodeStarts[node], vertices, offset, count, minX, minY, maxX, maxY);
+        }
+    }
+
+    /**
+     * @return true if the point lies inside any triangle.
+     */
+    public boolean contains(float x, float y) {
+        return contains(0, x, y);
+    }
+
+    private boolean contains(int node, float x, float y) {
+        if (!overlapsNode(node, x, y, x, y)) {
+            return false;
+        }
+        
+        if (nodeCounts[node] > 0) {
+            for (int i = nodeStarts[node], n = i + nodeCounts[node]; i < n; i++) {
+                int o = i * 6;
+                if (Intersector.isPointInTriangle(x, y, triangles[o], triangles[o + 1], triangles[o + 2], triangles[o + 3], triangles[o + 4], triangles[o + 5])) {
+                    return true;
+                }
+            }
+            return false;
+        } else {
+            return contains(node + 1, x, y) || contains(nodeStarts[node], x, y);
+        }
+    }
+
+    /**
+     * Finds the first wall hit travelling from x1, y1 to x2, y2.
+     * @param normal if not null, set to the unit normal of the wall edge that
+     * was hit, facing back toward the start point. Asking for the normal
+     * allocates; use {@link #castSegment(float, float, float, float, float[], int)}
+     * in hot loops.
+     * @return the fraction of the segment travelled before the hit, from 0 to
+     * 1, or -1 if the segment is clear. A start point inside a wall returns 0.
+     */
+    public float castSegment(float x1, float y1, float x2, float y2, Vector2 normal) {
+        if (normal == null) {
+            return castSegment(x1, y1, x2, y2, null, 0);
+        }
+        
+        float[] hitNormal = new float[2];
+        float t = castSegment(x1, y1, x2, y2, hitNormal, 0);
+        if (t >= 0) {
+            normal.set(hitNormal[0], hitNormal[1]);
+        }
+        return t;
+    }
+
+    /**
+     * Finds the first wall hit travelling from x1, y1 to x2, y2 without
+     * allocating.
+     * @param normal if not null, the unit normal of the wall edge that was hit
+     * is written to offset and offset + 1, facing back toward the start point.
+     * Left untouched if the segment is clear.
+     * @return the fraction of the segment travelled before the hit, from 0 to
+     * 1, or -1 if the segment is clear. A start point inside a wall returns 0.
+     */
+    public float castSegment(float x1, float y1, float x2, float y2, float[] normal, int offset) {
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float inverseDx = dx == 0 ? 0.0f : 1.0f / dx;
+        float inverseDy = dy == 0 ? 0.0f : 1.0f / dy;
+        if (segmentEntry(0, x1, y1, dx, dy, inverseDx, inverseDy, 2.0f) > 1.0f) {
+            return -1.0f;
+        }
+        
+        float t = castSegment(0, x1, y1, dx, dy, inverseDx, inverseDy, 2.0f, normal, offset);
+        return t > 1.0f ? -1.0f : t;
+    }
+
+    private float castSegment(int node, float x, float y, float dx, float dy, float inverseDx, float inverseDy, float best, float[] normal, int offset) {
+        if (nodeCounts[node] > 0) {
+            for (int i = nodeStarts[node], n = i + nodeCounts[node]; i < n; i++) {
+                int o = i * 6;
+                int inside = 0;
+                for (int j = 0; j < 3; j++) {
+                    float ax = triangles[o + j * 2];
+                    float ay = triangles[o + j * 2 + 1];
+                    float ex = triangles[o + (j + 1) % 3 * 2] - ax;
+                    float ey = triangles[o + (j + 1) % 3 * 2 + 1] - ay;
+                    float side = (ax - x) * ey - (ay - y) * ex;
+                    inside += side > 0 ? 1 : side < 0 ? -1 : 0;
+                    
+                    float denominator = dx * ey - dy * ex;
+                    if (denominator == 0) {
+                        continue;
+                    }
+                    
+                    float t = side / denominator;
+                    if (t < 0 || t >= best) {
+                        continue;
+                    }
+                    float u = ((ax - x) * dy - (ay - y) * dx) / denominator;
+                    if (u >= 0 && u <= 1) {
+                        best = t;
+                        if (normal != null) {
+                            float length = (float) Math.sqrt(ex * ex + ey * ey);
+                            float sign = ey * dx - ex * dy > 0 ? -1.0f : 1.0f;
+                            normal[offset] = sign * ey / length;
+                            normal[offset + 1] = -sign * ex / length;
+                        }
+                    }
+                }
+                
+                if (best > 0 && (inside == 3 || inside == -3)) {
+                    best = 0;
+                    if (normal != null) {
+                        float length = (float) Math.sqrt(dx * dx + dy * dy);
+                        normal[offset] = length == 0 ? 0.0f : -dx / length;
+                        normal[offset + 1] = length == 0 ? 0.0f : -dy / length;
+                    }
+                }
+            }
+            return best;
+        }
+        
+        int near = node + 1;
+        int far = nodeStarts[node];
+        float nearEntry = segmentEntry(near, x, y, dx, dy, inverseDx, inverseDy, best);
+        float farEntry = segmentEntry(far, x, y, dx, dy, inverseDx, inverseDy, best);
+        if (farEntry < nearEntry) {
+            int swap = near;
+            near = far;
+            far = swap;
+            float swapEntry = nearEntry;
+            nearEntry = farEntry;
+            farEntry = swapEntry;
+        }
+        
+        if (nearEntry <= best) {
+            best = castSegment(near, x, y, dx, dy, inverseDx, inverseDy, best, normal, offset);
+        }
+        if (farEntry <= best) {
+            best = castSegment(far, x, y, dx, dy, inverseDx, inverseDy, best, normal, offset);
+        }
+        return best;
+    }
+
+    private boolean overlapsNode(int node, float minX, float minY, float maxX, float maxY) {
+        int o = node * 4;
+        return minX <= nodeBounds[o + 2] && maxX >= nodeBounds[o] && minY <= nodeBounds[o + 3] && maxY >= nodeBounds[o + 1];
+    }
+
+    private boolean overlapsTriangle(int triangle, float minX, float minY, float maxX, float maxY) {
+        int o = triangle * 6;
+        return minX <= Math.max(triangles[o], Math.max(triangles[o + 2], triangles[o + 4]))
+                && maxX >= Math.min(triangles[o], Math.min(triangles[o + 2], triangles[o + 4]))
+                && minY <= Math.max(triangles[o + 1], Math.max(triangles[o + 3], triangles[o + 5]))
+                && maxY >= Math.min(triangles[o + 1], Math.min(triangles[o + 3], triangles[o + 5]));
+    }
+
+    /**
+     * Separating axis test of a triangle against a convex polygon. Intersector
+     * is not used because its offset overload ignores the offset when closing
+     * the first polygon.
+     */
+    private boolean overlapsTriangle(int triangle, float[] vertices, int offset, int count) {
+        int o = triangle * 6;
+        for (int i = 0; i < 3; i++) {
+            float x1 = triangles[o + i * 2];
+            float y1 = triangles[o + i * 2 + 1];
+            float x2 = triangles[o + (i + 1) % 3 * 2];
+            float y2 = triangles[o + (i + 1) % 3 * 2 + 1];
+            if (separates(o, y1 - y2, x2 - x1, vertices, offset, count)) {
+                return false;
+            }
+        }
+        
+        int end = offset + count;
+        for (int i = offset; i < end; i += 2) {
+            int next = i + 2 < end ? i + 2 : offset;
+            if (separates(o, vertices[i + 1] - vertices[next + 1], vertices[next] - vertices[i], vertices, offset, count)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean separates(int o, float axisX, float axisY, float[] vertices, int offset, int count) {
+        float min1 = Float.MAX_VALUE, max1 = -Float.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            float p = axisX * triangles[o + i * 2] + axisY * triangles[o + i * 2 + 1];
+            min1 = Math.min(min1, p);
+            max1 = Math.max(max1, p);
+        }
+        
+        float min2 = Float.MAX_VALUE, max2 = -Float.MAX_VALUE;
+        for (int i = offset; i < offset + count; i += 2) {
+            float p = axisX * vertices[i] + axisY * vertices[i + 1];
+            min2 = Math.min(min2, p);
+            max2 = Math.max(max2, p);
+        }
+        return max1 < min2 || max2 < min1;
+    }
+
+    /**
+     * Slab test of the segment against the node bounds, limited to the part of
+     * the segment before the best hit so far.
+     * @return the fraction of the segment at which it enters the bounds, or
+     * infinity if it misses them.
+     */
+    private float segmentEntry(int node, float x, float y, float dx, float dy, float inverseDx, float inverseDy, float best) {
+        int o = node * 4;
+        float tMin = 0.0f;
+        float tMax = Math.min(best, 1.0f);
+        
+        if (dx == 0) {
+            if (x < nodeBounds[o] || x > nodeBounds[o + 2]) {
+                return Float.POSITIVE_INFINITY;
+            }
+        } else {
+            float t1 = (nodeBounds[o] - x) * inverseDx;
+            float t2 = (nodeBounds[o + 2] - x) * inverseDx;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+        }
+        
+        if (dy == 0) {
+            if (y < nodeBounds[o + 1] || y > nodeBounds[o + 3]) {
+                return Float.POSITIVE_INFINITY;
+            }
+        } else {
+            float t1 = (nodeBounds[o + 1] - y) * inverseDy;
+            float t2 = (nodeBounds[o + 3] - y) * inverseDy;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+        }
+        
+        return tMin <= tMax ? tMin : Float.POSITIVE_INFINITY;
+    }
+
+    public int getTriangleCount() {
+        return triangles.length / 6;
+    }
+
+    /**
+     * @return six floats per triangle, in tree order.
+     */
+    public float[] getTriangles() {
+        return triangles;
+    }
+
+    public int getNodeCount() {
+        return nodes;
+    }
+
+    public float[] getNodeBounds() {
+        return nodeBounds;
+    }
+
+    public int[] getNodeStarts() {
+        return nodeStarts;
+    }
+
+    public int[] getNodeCounts() {
+        return nodeCounts;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.entities;
+
+import com.badlogic.gdx.math.EarClippingTriangulator;
+import com.badlogic.gdx.math.Polygon;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ShortArray;
+import com.esotericsoftware.spine.Bone;
+import com.esotericsoftware.spine.Skeleton;
+import com.esotericsoftware.spine.SkeletonBounds;
+import com.esotericsoftware.spine.SkeletonData;
+
+/**
+ * Collision hull of a vehicle skeleton, decomposed into convex pieces once and
+ * shared by every vehicle using the same {@link SkeletonData}. Pieces are
+ * stored relative to the rotating bone, so a vehicle only has to position and
+ * rotate its polygons each tick.
+ */
+public class VehicleHull {
+    public final static String ROTATE_BONE = "bone";
+    private final static ObjectMap<SkeletonData, VehicleHull> hulls = new ObjectMap<SkeletonData, VehicleHull>();
+    private final Array<float[]> pieces;
+    private final float pivotX;
+    private final float pivotY;
+    private float radius;
+
+    private VehicleHull(SkeletonData skeletonData) {
+        Skeleton skeleton = new Skeleton(skeletonData);
+        skeleton.setPosition(0.0f, 0.0f);
+        Bone bone = skeleton.findBone(ROTATE_BONE);
+        bone.setRotation(0.0f);
+        skeleton.updateWorldTransform();
+        pivotX = bone.getWorldX();
+        pivotY = bone.getWorldY();
+        
+        SkeletonBounds skeletonBounds = new SkeletonBounds();
+        skeletonBounds.update(skeleton, false);
+        
+        pieces = new Array<float[]>();
+        EarClippingTriangulator triangulator = new EarClippingTriangulator();
+        for (FloatArray floats : skeletonBounds.getPolygons()) {
+            float[] verts = new float[floats.size];
+            for (int i = 0; i < floats.size; i += 2) {
+                verts[i] = floats.get(i) - pivotX;
+                verts[i + 1] = floats.get(i + 1) - pivotY;
+                radius = Math.max(radius, (float) Math.sqrt(verts[i] * verts[i] + verts[i + 1] * verts[i + 1]));
+            }
+            
+            if (isConvex(verts)) {
+                pieces.add(verts);
+            } else {
+                ShortArray points = triangulator.computeTriangles(verts);
+                for (int i = 0; i < points.size; i += 3) {
+                    float[] triangle = new float[6];
+                    for (int j = 0; j < 3; j++) {
+                        triangle[j * 2] = verts[points.get(i + j) * 2];
+                        triangle[j * 2 + 1] = verts[points.get(i + j) * 2 + 1];
+                    }
+                    pieces.add(triangle);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the hull for this skeleton, building it on first use.
+     */
+    public static synchronized VehicleHull get(SkeletonData skeletonData) {
+        VehicleHull hull = hulls.get(skeletonData);
+        if (hull == null) {
+            hull = new VehicleHull(skeletonData);
+            hulls.put(skeletonData, hull);
+        }
+        return hull;
+    }
+
+    /**
+     * @return one polygon per convex piece. The vertex arrays are shared, so
+     * the polygons must only ever be moved and rotated, not edited.
+     */
+    public Array<Polygon> createPolygons() {
+        Array<Polygon> polygons = new Array<Polygon>(pieces.size);
+        for (float[] piece : pieces) {
+            polygons.add(new Polygon(piece));
+        }
+        return polygons;
+    }
+
+    /**
+     * Moves polygons made by {@link #createPolygons()} to a vehicle placed at
+     * x, y with its rotate bone at the given angle.
+     */
+    public void transform(Array<Polygon> polygons, float x, float y, float rotation) {
+        for (int i = 0; i < polygons.size; i++) {
+            Polygon polygon = polygons.get(i);
+            polygon.setPosition(x + pivotX, y + pivotY);
+            polygon.setRotation(rotation);
+        }
+    }
+
+    public Array<float[]> getPieces() {
+        return pieces;
+    }
+
+    /**
+     * @return distance from the pivot to the farthest hull vertex.
+     */
+    public float getRadius() {
+        return radius;
+    }
+
+    public float getPivotX() {
+        return pivotX;
+    }
+
+    public float getPivotY() {
+        return pivotY;
+    }
+
+    private static boolean isConvex(float[] verts) {
+        int count = verts.length / 2;
+        if (count < 3) {
+            return false;
+        }
+        
+        int sign = 0;
+        for (int i = 0; i < count; i++) {
+            float ax = verts[i * 2];
+            float ay = verts[i * 2 + 1];
+            float bx = verts[(i + 1) % count * 2];
+            float by = verts[(i + 1) % count * 2 + 1];
+            float cx = verts[(i + 2) % count * 2];
+            float cy = verts[(i + 2) % count * 2 + 1];
+            float cross = (bx - ax) * (cy - by) - (by - ay) * (cx - bx);
+            if (cross != 0) {
+                int crossSign = cross > 0 ? 1 : -1;
+                if (sign == 0) {
+                    sign = crossSign;
+                } else if (sign != crossSign) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
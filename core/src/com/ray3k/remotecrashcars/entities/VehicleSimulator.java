@@ -0,0 +1,248 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.entities;
+
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * Bicycle model kinematics of a single vehicle. The front and back wheels sit
+ * half a wheel base ahead of and behind the vehicle's position; each tick both
+ * roll forward, the front one turned by the steering angle, and the vehicle is
+ * placed between them facing from back to front.
+ * <p>
+ * Throttle and steering reach the vehicle {@link #getLatency() latency} ticks
+ * after they are given, like a cheap remote control. The steering wheel turns
+ * at once and the body is drawn turned by it, but the front wheel follows the
+ * delayed angle.
+ * <p>
+ * All state is primitive and stepping never allocates, so any number of
+ * simulators can be stepped without a window or an {@link PlayerEntity}.
+ */
+public class VehicleSimulator {
+    public final static float DEFAULT_WHEEL_BASE = 70.0f;
+    private float x;
+    private float y;
+    private float rotation;
+    private float speed;
+    private float steerAngle;
+    private float appliedSteerAngle;
+    private final DelayLine steerDelay;
+    private final DelayLine throttleDelay;
+    private float wheelBase;
+    private float acceleration;
+    private float maxSpeed;
+    private float friction;
+    private float braking;
+    private float maxSteerAngle;
+
+    public VehicleSimulator() {
+        steerDelay = new DelayLine();
+        throttleDelay = new DelayLine();
+        wheelBase = DEFAULT_WHEEL_BASE;
+    }
+
+    /**
+     * Copies the handling values, usually from
+     * {@link com.ray3k.remotecrashcars.states.GameState}.
+     */
+    public void setTuning(float acceleration, float maxSpeed, float friction, float braking, float maxSteerAngle) {
+        this.acceleration = acceleration;
+        this.maxSpeed = maxSpeed;
+        this.friction = friction;
+        this.braking = braking;
+        this.maxSteerAngle = maxSteerAngle;
+    }
+
+    /**
+     * Places the vehicle at rest with its wheels straight.
+     */
+    public void reset(float x, float y, float rotation) {
+        this.x = x;
+        this.y = y;
+        this.rotation = rotation;
+        speed = 0.0f;
+        steerAngle = 0.0f;
+        appliedSteerAngle = 0.0f;
+        steerDelay.fill(0.0f);
+        throttleDelay.fill(0.0f);
+    }
+
+    /**
+     * Sets the whole state of a vehicle, for instance one received from a
+     * server. Inputs in flight are replaced with the given ones, so this is
+     * only exact with no latency.
+     */
+    public void restore(float x, float y, float rotation, float speed, float steerAngle) {
+        this.x = x;
+        this.y = y;
+        this.rotation = rotation;
+        this.speed = speed;
+        this.steerAngle = steerAngle;
+        appliedSteerAngle = steerAngle;
+        steerDelay.fill(steerAngle);
+        throttleDelay.fill(0.0f);
+    }
+
+    public void step(VehicleInput input, float delta) {
+        float throttle = throttleDelay.push(input.accelerate ? 1.0f : input.brake ? -1.0f : 0.0f);
+        if (throttle > 0) {
+            speed += acceleration * delta;
+        } else if (throttle < 0) {
+            speed -= braking * delta;
+        }
+        
+        speed -= friction * delta;
+        if (speed < 0) {
+            speed = 0;
+        } else if (speed > maxSpeed) {
+            speed = maxSpeed;
+        }
+        
+        if (input.left) {
+            steerAngle = approach(steerAngle, maxSteerAngle, maxSteerAngle * 2.0f * delta);
+        } else if (input.right) {
+            steerAngle = approach(steerAngle, -maxSteerAngle, maxSteerAngle * 2.0f * delta);
+        } else {
+            steerAngle = approach(steerAngle, 0.0f, maxSteerAngle * 3.0f * delta);
+        }
+        
+        appliedSteerAngle = steerDelay.push(steerAngle);
+        
+        float radians = rotation * MathUtils.degreesToRadians;
+        float cos = (float) Math.cos(radians);
+        float sin = (float) Math.sin(radians);
+        float steerRadians = (rotation + appliedSteerAngle) * MathUtils.degreesToRadians;
+        float distance = speed * delta;
+        
+        float backX = x - cos * wheelBase / 2.0f + cos * distance;
+        float backY = y - sin * wheelBase / 2.0f + sin * distance;
+        float frontX = x + cos * wheelBase / 2.0f + (float) Math.cos(steerRadians) * distance;
+        float frontY = y + sin * wheelBase / 2.0f + (float) Math.sin(steerRadians) * distance;
+        
+        x = (frontX + backX) / 2.0f;
+        y = (frontY + backY) / 2.0f;
+        rotation = (float) Math.atan2(frontY - backY, frontX - backX) * MathUtils.radiansToDegrees;
+        if (rotation < 0) {
+            rotation += 360;
+        }
+    }
+
+    /**
+     * @return the angle the body is drawn at: the heading, turned by how far
+     * the wheel is ahead of the steering that is actually being applied.
+     */
+    public float getBodyRotation() {
+        return rotation + (steerAngle - getAppliedSteerAngle());
+    }
+
+    /**
+     * @return the steering angle acting on the front wheel this tick.
+     */
+    public float getAppliedSteerAngle() {
+        return appliedSteerAngle;
+    }
+
+    public static float approach(float value, float target, float increment) {
+        if (target < value) {
+            value -= increment;
+            if (value < target) {
+                value = target;
+            }
+        } else if (target > value) {
+            value += increment;
+            if (value > target) {
+                value = target;
+            }
+        }
+        return value;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public float getRotation() {
+        return rotation;
+    }
+
+    public float getSpeed() {
+        return speed;
+    }
+
+    public void setSpeed(float speed) {
+        this.speed = speed;
+    }
+
+    public float getSteerAngle() {
+        return steerAngle;
+    }
+
+    /**
+     * @return how many ticks throttle and steering take to reach the vehicle.
+     */
+    public int getLatency() {
+        return steerDelay.getDelay();
+    }
+
+    /**
+     * Changes the input delay. Inputs already in flight are dropped, so only
+     * change it between races or while the value is unchanged.
+     */
+    public void setLatency(int latency) {
+        steerDelay.setDelay(latency);
+        throttleDelay.setDelay(latency);
+    }
+
+    public float getWheelBase() {
+        return wheelBase;
+    }
+
+    public void setWheelBase(float wheelBase) {
+        this.wheelBase = wheelBase;
+    }
+
+    public float getAcceleration() {
+        return acceleration;
+    }
+
+    public float getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    public float getFriction() {
+        return friction;
+    }
+
+    public float getBraking() {
+        return braking;
+    }
+
+    public float getMaxSteerAngle() {
+        return maxSteerAngle;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.net;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.ray3k.remotecrashcars.entities.VehicleSimulator;
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format shared by {@link RaceServer} and {@link RaceClient}. Every
+ * datagram starts with a one byte type. Vehicle states travel as
+ * {@link #FIELD_COUNT} quantized ints, and each vehicle in a snapshot is
+ * written as a bit mask of the fields that changed since the baseline the
+ * client acknowledged, followed by the zigzag variable length deltas of those
+ * fields.
+ */
+public class NetProtocol {
+    public final static int PROTOCOL_VERSION = 1;
+    public final static int MAX_PACKET_SIZE = 1200;
+    public final static int MAX_CARS = 127;
+    public final static int MAX_INPUTS = 32;
+    public final static byte CONNECT = 1;
+    public final static byte INPUT = 2;
+    public final static byte DISCONNECT = 3;
+    public final static byte ACCEPT = 4;
+    public final static byte REJECT = 5;
+    public final static byte SNAPSHOT = 6;
+    public final static int X = 0;
+    public final static int Y = 1;
+    public final static int ROTATION = 2;
+    public final static int SPEED = 3;
+    public final static int STEER_ANGLE = 4;
+    public final static int NEXT_CHECKPOINT = 5;
+    public final static int LAPS = 6;
+    public final static int CRASHES = 7;
+    public final static int FIELD_COUNT = 8;
+    public final static float POSITION_SCALE = 16.0f;
+    public final static float ROTATION_SCALE = 65536.0f / 360.0f;
+    public final static float SPEED_SCALE = 8.0f;
+    public final static float STEER_SCALE = 64.0f;
+    /**
+     * Set on the vehicle id byte of a snapshot entry when the vehicle has
+     * left the race.
+     */
+    public final static int REMOVED = 0x80;
+    /**
+     * The most bytes one vehicle entry can take: id, mask and a five byte
+     * varint per field.
+     */
+    public final static int MAX_CAR_BYTES = 2 + FIELD_COUNT * 5;
+    /**
+     * The bytes in front of the vehicles of a snapshot: type, sequence,
+     * baseline sequence, tick, last processed input tick, the client's
+     * vehicle id and the vehicle count.
+     */
+    public final static int SNAPSHOT_HEADER_BYTES = 1 + 4 * 4 + 2;
+    /**
+     * The most bytes of vehicle data that fit in one snapshot packet.
+     */
+    public final static int MAX_SNAPSHOT_BUDGET = MAX_PACKET_SIZE - SNAPSHOT_HEADER_BYTES;
+    
+    /**
+     * Writes the quantized state of a vehicle to fields, starting at offset.
+     */
+    public static void quantize(VehicleSimulator simulator, int nextCheckpoint, int laps, int crashes, int[] fields, int offset) {
+        fields[offset + X] = MathUtils.round(simulator.getX() * POSITION_SCALE);
+        fields[offset + Y] = MathUtils.round(simulator.getY() * POSITION_SCALE);
+        fields[offset + ROTATION] = MathUtils.round(simulator.getRotation() * ROTATION_SCALE) & 0xFFFF;
+        fields[offset + SPEED] = MathUtils.round(simulator.getSpeed() * SPEED_SCALE);
+        fields[offset + STEER_ANGLE] = MathUtils.round(simulator.getSteerAngle() * STEER_SCALE);
+        fields[offset + NEXT_CHECKPOINT] = nextCheckpoint;
+        fields[offset + LAPS] = laps;
+        fields[offset + CRASHES] = crashes;
+    }
+    
+    public static float getX(int[] fields, int offset) {
+        return fields[offset + X] / POSITION_SCALE;
+    }
+    
+    public static float getY(int[] fields, int offset) {
+        return fields[offset + Y] / POSITION_SCALE;
+    }
+    
+    public static float getRotation(int[] fields, int offset) {
+        return fields[offset + ROTATION] / ROTATION_SCALE;
+    }
+    
+    public static float getSpeed(int[] fields, int offset) {
+        return fields[offset + SPEED] / SPEED_SCALE;
+    }
+    
+    public static float getSteerAngle(int[] fields, int offset) {
+        return fields[offset + STEER_ANGLE] / STEER_SCALE;
+    }
+    
+    /**
+     * Writes one vehicle of a snapshot as the fields that differ from the
+     * baseline. Nothing is written if the vehicle is unchanged.
+     * @param baseline the client's acknowledged view, or an empty one.
+     * @return false if the vehicle was unchanged and nothing was written.
+     */
+    public static boolean writeCar(ByteBuffer buffer, int car, int[] fields, int offset, Snapshot baseline) {
+        int mask = 0;
+        int[] base = baseline.getFields();
+        int baseOffset = car * FIELD_COUNT;
+        boolean present = baseline.isPresent(car);
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if (!present || fields[offset + i] != base[baseOffset + i]) {
+                mask |= 1 << i;
+            }
+        }
+        if (present && mask == 0) {
+            return false;
+        }
+        
+        buffer.put((byte) car);
+        buffer.put((byte) mask);
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if ((mask & 1 << i) != 0) {
+                int delta = fields[offset + i] - (present ? base[baseOffset + i] : 0);
+                if (i == ROTATION) {
+                    delta = (short) delta;
+                }
+                writeVarInt(buffer, delta);
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Reads one vehicle entry written by
+     * {@link #writeCar(ByteBuffer, int, int[], int, Snapshot)} into target.
+     */
+    public static void readCar(ByteBuffer buffer, Snapshot target, Snapshot baseline) {
+        int id = buffer.get() & 0xFF;
+        int car = id & ~REMOVED;
+        if ((id & REMOVED) != 0) {
+            target.remove(car);
+            return;
+        }
+        
+        int mask = buffer.get() & 0xFF;
+        int[] fields = target.getFields();
+        int[] base = baseline.getFields();
+        int offset = car * FIELD_COUNT;
+        boolean present = baseline.isPresent(car);
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            int value = present ? base[offset + i] : 0;
+            if ((mask & 1 << i) != 0) {
+                value += readVarInt(buffer);
+                if (i == ROTATION) {
+                    value &= 0xFFFF;
+                }
+            }
+            fields[offset + i] = value;
+        }
+        target.setPresent(car, true);
+    }
+    
+    public static void writeVarInt(ByteBuffer buffer, int value) {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            buffer.put((byte) (zigzag & 0x7F | 0x80));
+            zigzag >>>= 7;
+        }
+        buffer.put((byte) zigzag);
+    }
+    
+    public static int readVarInt(ByteBuffer buffer) {
+        int zigzag = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = buffer.get();
+            zigzag |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0 && shift < 35);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.net;
+
+import com.ray3k.remotecrashcars.InputFrame;
+import com.ray3k.remotecrashcars.entities.VehicleInput;
+import com.ray3k.remotecrashcars.entities.VehicleSimulator;
+
+/**
+ * Runs the local vehicle ahead of the server. Every tick
+ * {@link #predict(int, int, float)} steps a {@link VehicleSimulator} with the
+ * input just sent and records the input and resulting state in a preallocated
+ * ring. When a snapshot says which input the server simulated last,
+ * {@link #reconcile(int[], int, int, float)} compares the server's state with
+ * the one predicted for that tick; if they disagree the simulator is rewound
+ * to the server's state and every later input is replayed.
+ * <p>
+ * Small corrections are hidden by drawing the vehicle offset by the error,
+ * fading out over a few ticks. Large ones, such as the server respawning the
+ * vehicle after a crash, snap. Networked races must run without input
+ * latency, as the state restored from a snapshot has no inputs in flight.
+ */
+public class PredictedVehicle {
+    public final static int HISTORY = 128;
+    public final static float POSITION_TOLERANCE = 0.25f;
+    public final static float ROTATION_TOLERANCE = 0.5f;
+    public final static float SPEED_TOLERANCE = 1.0f;
+    public final static float STEER_TOLERANCE = 0.1f;
+    public final static float SNAP_DISTANCE = 64.0f;
+    public final static float CORRECTION_DECAY = 0.85f;
+    private final static int STATE_SIZE = 5;
+    private final VehicleSimulator simulator;
+    private final VehicleInput input;
+    private final int[] inputs;
+    private final int[] ticks;
+    private final float[] states;
+    private int newestTick;
+    private int reconciledTick;
+    private int crashes;
+    private float correctionX;
+    private float correctionY;
+    private int rollbacks;
+    private long replayedTicks;
+    private int snaps;
+    private float maxError;
+
+    public PredictedVehicle() {
+        simulator = new VehicleSimulator();
+        input = new VehicleInput();
+        inputs = new int[HISTORY];
+        ticks = new int[HISTORY];
+        states = new float[HISTORY * STATE_SIZE];
+        reset(0.0f, 0.0f, 0.0f);
+    }
+
+    /**
+     * Copies the handling values, usually the ones the server sent with
+     * {@link RaceClient#isAccepted() accept}.
+     */
+    public void setTuning(float acceleration, float maxSpeed, float friction, float braking, float steerAngle) {
+        simulator.setTuning(acceleration, maxSpeed, friction, braking, steerAngle);
+    }
+
+    /**
+     * Places the vehicle at rest and forgets every prediction.
+     */
+    public void reset(float x, float y, float rotation) {
+        simulator.reset(x, y, rotation);
+        for (int i = 0; i < HISTORY; i++) {
+            ticks[i] = Integer.MIN_VALUE;
+        }
+        newestTick = -1;
+        reconciledTick = -1;
+        correctionX = 0.0f;
+        correctionY = 0.0f;
+    }
+
+    /**
+     * Steps the vehicle with the input for a tick and records the outcome.
+     * @param tick the tick the input was sent to the server with.
+     * @param bits the {@link InputFrame} bits held for the tick.
+     */
+    public void predict(int tick, int bits, float delta) {
+        correctionX *= CORRECTION_DECAY;
+        correctionY *= CORRECTION_DECAY;
+        step(tick, bits, delta);
+        newestTick = tick;
+    }
+
+    /**
+     * Checks a server state against the prediction made for the same input
+     * tick, rewinding and replaying if they differ.
+     * @param fields quantized vehicle fields from a {@link Snapshot}.
+     * @param offset index of this vehicle's first field.
+     * @param processedTick the last input tick the server had simulated when
+     * the state was taken.
+     * @return true if the prediction was corrected.
+     */
+    public boolean reconcile(int[] fields, int offset, int processedTick, float delta) {
+        if (processedTick <= reconciledTick || processedTick > newestTick) {
+            return false;
+        }
+        reconciledTick = processedTick;
+        
+        float x = NetProtocol.getX(fields, offset);
+        float y = NetProtocol.getY(fields, offset);
+        float rotation = NetProtocol.getRotation(fields, offset);
+        float speed = NetProtocol.getSpeed(fields, offset);
+        float steerAngle = NetProtocol.getSteerAngle(fields, offset);
+        boolean crashed = fields[offset + NetProtocol.CRASHES] != crashes;
+        crashes = fields[offset + NetProtocol.CRASHES];
+        
+        int index = processedTick & HISTORY - 1;
+        boolean recorded = ticks[index] == processedTick && newestTick - processedTick < HISTORY;
+        if (recorded && !crashed) {
+            int state = index * STATE_SIZE;
+            float error = Math.max(Math.abs(states[state] - x), Math.abs(states[state + 1] - y));
+            float rotationError = ((rotation - states[state + 2]) % 360.0f + 540.0f) % 360.0f - 180.0f;
+            if (error <= POSITION_TOLERANCE && Math.abs(rotationError) <= ROTATION_TOLERANCE
+                    && Math.abs(states[state + 3] - speed) <= SPEED_TOLERANCE
+                    && Math.abs(states[state + 4] - steerAngle) <= STEER_TOLERANCE) {
+                return false;
+            }
+            maxError = Math.max(maxError, error);
+        }
+        
+        float previousX = getX();
+        float previousY = getY();
+        simulator.restore(x, y, rotation, speed, steerAngle);
+        int replayed = 0;
+        if (recorded) {
+            for (int tick = processedTick + 1; tick <= newestTick; tick++) {
+                step(tick, inputs[tick & HISTORY - 1], delta);
+                replayed++;
+            }
+        } else {
+            newestTick = processedTick;
+        }
+        rollbacks++;
+        replayedTicks += replayed;
+        
+        correctionX = previousX - simulator.getX();
+        correctionY = previousY - simulator.getY();
+        if (crashed || correctionX * correctionX + correctionY * correctionY > SNAP_DISTANCE * SNAP_DISTANCE) {
+            correctionX = 0.0f;
+            correctionY = 0.0f;
+            snaps++;
+        }
+        return true;
+    }
+
+    private void step(int tick, int bits, float delta) {
+        input.set((bits & InputFrame.UP) != 0, (bits & InputFrame.DOWN) != 0, (bits & InputFrame.LEFT) != 0, (bits & InputFrame.RIGHT) != 0);
+        simulator.step(input, delta);
+        
+        int index = tick & HISTORY - 1;
+        inputs[index] = bits;
+        ticks[index] = tick;
+        int state = index * STATE_SIZE;
+        states[state] = simulator.getX();
+        states[state + 1] = simulator.getY();
+        states[state + 2] = simulator.getRotation();
+        states[state + 3] = simulator.getSpeed();
+        states[state + 4] = simulator.getSteerAngle();
+    }
+
+    /**
+     * @return the x position to draw the vehicle at, including what is left
+     * of the last correction.
+     */
+    public float getX() {
+        return simulator.getX() + correctionX;
+    }
+
+    /**
+     * @return the y position to draw the vehicle at, including what is left
+     * of the last correction.
+     */
+    public float getY() {
+        return simulator.getY() + correctionY;
+    }
+
+    public VehicleSimulator getSimulator() {
+        return simulator;
+    }
+
+    public int getNewestTick() {
+        return newestTick;
+    }
+
+    /**
+     * @return the number of times the prediction was rewound.
+     */
+    public int getRollbacks() {
+        return rollbacks;
+    }
+
+    /**
+     * @return the total number of ticks replayed after rewinding.
+     */
+    public long getReplayedTicks() {
+        return replayedTicks;
+    }
+
+    /**
+     * @return the number of corrections too large to smooth.
+     */
+    public int getSnaps() {
+        return snaps;
+    }
+
+    /**
+     * @return the largest position error found against a server state,
+     * leaving out crashes.
+     */
+    public float getMaxError() {
+        return maxError;
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.net;
+
+import com.badlogic.gdx.Gdx;
+import com.ray3k.remotecrashcars.states.GameState;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Client side of {@link RaceServer}. Call {@link #sendInput(int, int)} once a
+ * tick with the local input and {@link #receive()} to read whatever the server
+ * has sent. Every snapshot received is kept so the next one can be decoded
+ * against whichever the server chose as its baseline.
+ */
+public class RaceClient {
+    private final static int VIEW_HISTORY = 64;
+    private final static int INPUT_HISTORY = 128;
+    private final ByteBuffer receiveBuffer;
+    private final ByteBuffer sendBuffer;
+    private final Snapshot[] views;
+    private final Snapshot emptySnapshot;
+    private final int[] inputs;
+    private DatagramChannel channel;
+    private boolean accepted;
+    private boolean rejected;
+    private boolean disconnected;
+    private int car;
+    private GameState.Track track;
+    private GameState.Model model;
+    private int ticksPerSecond;
+    private int serverTick;
+    private float acceleration;
+    private float maxSpeed;
+    private float friction;
+    private float braking;
+    private float steerAngle;
+    private Snapshot latest;
+    private int processedInputTick;
+    private int newestInputTick;
+    private long bytesSent;
+    private long bytesReceived;
+    private int snapshotsDropped;
+
+    public RaceClient() {
+        receiveBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        sendBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        views = new Snapshot[VIEW_HISTORY];
+        for (int i = 0; i < VIEW_HISTORY; i++) {
+            views[i] = new Snapshot();
+        }
+        emptySnapshot = new Snapshot();
+        latest = emptySnapshot;
+        inputs = new int[INPUT_HISTORY];
+        processedInputTick = -1;
+        newestInputTick = -1;
+    }
+
+    /**
+     * Opens a socket to the server and asks to join. Call {@link #receive()}
+     * until {@link #isAccepted()} or {@link #isRejected()}; send the request
+     * again if neither happens, as it may have been lost.
+     */
+    public void connect(InetSocketAddress address) throws IOException {
+        if (channel == null) {
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+            channel.connect(address);
+        }
+        
+        sendBuffer.clear();
+        sendBuffer.put(NetProtocol.CONNECT);
+        sendBuffer.putInt(NetProtocol.PROTOCOL_VERSION);
+        send();
+    }
+
+    public void close() throws IOException {
+        if (channel != null) {
+            if (accepted && !disconnected) {
+                sendBuffer.clear();
+                sendBuffer.put(NetProtocol.DISCONNECT);
+                send();
+            }
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Records the input for a tick and sends it together with every earlier
+     * input the server hasn't used yet, up to {@link NetProtocol#MAX_INPUTS}.
+     * @param tick the client's tick number, counting up by one each call.
+     * @param bits the {@link com.ray3k.remotecrashcars.InputFrame} bits held
+     * for the tick.
+     */
+    public void sendInput(int tick, int bits) throws IOException {
+        inputs[tick & INPUT_HISTORY - 1] = bits;
+        newestInputTick = tick;
+        
+        int count = Math.min(tick - processedInputTick, NetProtocol.MAX_INPUTS);
+        count = Math.max(count, 1);
+        
+        sendBuffer.clear();
+        sendBuffer.put(NetProtocol.INPUT);
+        sendBuffer.putInt(latest.getSequence());
+        sendBuffer.putInt(tick);
+        sendBuffer.put((byte) count);
+        for (int i = tick - count + 1; i <= tick; i++) {
+            sendBuffer.put((byte) inputs[i & INPUT_HISTORY - 1]);
+        }
+        send();
+    }
+
+    /**
+     * Reads every pending packet.
+     * @return true if a newer snapshot arrived.
+     */
+    public boolean receive() throws IOException {
+        boolean updated = false;
+        while (channel != null) {
+            receiveBuffer.clear();
+            if (channel.receive(receiveBuffer) == null) {
+                break;
+            }
+            receiveBuffer.flip();
+            bytesReceived += receiveBuffer.remaining();
+            
+            try {
+                byte type = receiveBuffer.get();
+                if (type == NetProtocol.ACCEPT) {
+                    readAccept(receiveBuffer);
+                } else if (type == NetProtocol.REJECT) {
+                    rejected = true;
+                } else if (type == NetProtocol.DISCONNECT) {
+                    disconnected = true;
+                } else if (type == NetProtocol.SNAPSHOT && accepted) {
+                    updated |= readSnapshot(receiveBuffer);
+                }
+            } catch (RuntimeException e) {
+                Gdx.app.error(RaceClient.class.getSimpleName(), "Malformed packet", e);
+            }
+        }
+        return updated;
+    }
+
+    private void readAccept(ByteBuffer buffer) {
+        car = buffer.get();
+        track = GameState.Track.values()[buffer.get()];
+        model = GameState.Model.values()[buffer.get()];
+        ticksPerSecond = buffer.getShort();
+        serverTick = buffer.getInt();
+        acceleration = buffer.getFloat();
+        maxSpeed = buffer.getFloat();
+        friction = buffer.getFloat();
+        braking = buffer.getFloat();
+        steerAngle = buffer.getFloat();
+        accepted = true;
+    }
+
+    /**
+     * Decodes a snapshot into the view slot for its sequence. Snapshots older
+     * than the latest, or whose baseline is no longer held, are dropped.
+     */
+    private boolean readSnapshot(ByteBuffer buffer) {
+        int sequence = buffer.getInt();
+        int baselineSequence = buffer.getInt();
+        if (sequence <= latest.getSequence()) {
+            return false;
+        }
+        
+        Snapshot baseline = emptySnapshot;
+        if (baselineSequence >= 0) {
+            baseline = views[baselineSequence & VIEW_HISTORY - 1];
+            if (baseline.getSequence() != baselineSequence) {
+                snapshotsDropped++;
+                return false;
+            }
+        }
+        
+        Snapshot view = views[sequence & VIEW_HISTORY - 1];
+        view.set(baseline);
+        view.setSequence(sequence);
+        view.setTick(buffer.getInt());
+        int processed = buffer.getInt();
+        buffer.get();
+        int count = buffer.get() & 0xFF;
+        for (int i = 0; i < count; i++) {
+            NetProtocol.readCar(buffer, view, baseline);
+        }
+        
+        serverTick = view.getTick();
+        processedInputTick = Math.max(processedInputTick, processed);
+        latest = view;
+        return true;
+    }
+
+    private void send() throws IOException {
+        sendBuffer.flip();
+        bytesSent += channel.write(sendBuffer);
+    }
+
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    public boolean isRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return true once the server has closed the connection.
+     */
+    public boolean isDisconnected() {
+        return disconnected;
+    }
+
+    /**
+     * @return the id of the vehicle this client drives.
+     */
+    public int getCar() {
+        return car;
+    }
+
+    public GameState.Track getTrack() {
+        return track;
+    }
+
+    public GameState.Model getModel() {
+        return model;
+    }
+
+    public int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    /**
+     * @return the server tick of the latest snapshot, or of the accept
+     * before any snapshot arrives.
+     */
+    public int getServerTick() {
+        return serverTick;
+    }
+
+    public float getAcceleration() {
+        return acceleration;
+    }
+
+    public float getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    public float getFriction() {
+        return friction;
+    }
+
+    public float getBraking() {
+        return braking;
+    }
+
+    public float getSteerAngle() {
+        return steerAngle;
+    }
+
+    /**
+     * @return the newest decoded snapshot. Its sequence is -1 until one
+     * arrives. It is overwritten VIEW_HISTORY snapshots later, so copy it to
+     * keep it.
+     */
+    public Snapshot getLatest() {
+        return latest;
+    }
+
+    /**
+     * @return the last of this client's input ticks the server has simulated,
+     * or -1.
+     */
+    public int getProcessedInputTick() {
+        return processedInputTick;
+    }
+
+    public int getNewestInputTick() {
+        return newestInputTick;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * @return the number of snapshots thrown away because their baseline was
+     * missing.
+     */
+    public int getSnapshotsDropped() {
+        return snapshotsDropped;
+    }
+}
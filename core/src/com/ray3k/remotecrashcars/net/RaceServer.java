@@ -0,0 +1,594 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.net;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Polygon;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.ray3k.remotecrashcars.InputFrame;
+import com.ray3k.remotecrashcars.entities.LevelData;
+import com.ray3k.remotecrashcars.entities.VehicleHull;
+import com.ray3k.remotecrashcars.entities.VehicleInput;
+import com.ray3k.remotecrashcars.entities.VehicleSimulator;
+import com.ray3k.remotecrashcars.states.GameState;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Authoritative race server on a single non-blocking {@link DatagramChannel}.
+ * Each {@link #tick(float)} reads every pending datagram, steps one vehicle
+ * per client with the input that client sent for the tick, and sends every
+ * client a {@link Snapshot} of the vehicles.
+ * <p>
+ * A snapshot is delta compressed against the last one the client
+ * acknowledged and holds at most {@link #getSnapshotBudget()} bytes of
+ * vehicles. Each vehicle builds up priority every snapshot it isn't sent,
+ * faster the nearer it is to the client's own car, and the highest priority
+ * vehicles are written first, so bandwidth per client stays flat however
+ * many cars race and distant cars are simply refreshed less often.
+ */
+public class RaceServer {
+    public final static int DEFAULT_SNAPSHOT_BUDGET = 256;
+    public final static float CLIENT_TIMEOUT = 5.0f;
+    private final static int VIEW_HISTORY = 64;
+    private final static int INPUT_HISTORY = 128;
+    private final static int MAX_INPUT_LAG = 32;
+    private final static float PRIORITY_DISTANCE = 1024.0f;
+    private final LevelData levelData;
+    private final VehicleHull hull;
+    private final GameState.Track track;
+    private final GameState.Model model;
+    private final int maxClients;
+    private final Connection[] connections;
+    private final int[] fields;
+    private final ByteBuffer receiveBuffer;
+    private final ByteBuffer sendBuffer;
+    private final VehicleInput input;
+    private final Snapshot emptySnapshot;
+    private final int[] order;
+    private DatagramChannel channel;
+    private int ticksPerSecond;
+    private float acceleration;
+    private float maxSpeed;
+    private float friction;
+    private float braking;
+    private float steerAngle;
+    private int snapshotInterval;
+    private int snapshotBudget;
+    private int tick;
+    private int sequence;
+    private long bytesSent;
+    private long packetsSent;
+    private long bytesReceived;
+
+    public RaceServer(LevelData levelData, VehicleHull hull, GameState.Track track, GameState.Model model, int maxClients) {
+        this.levelData = levelData;
+        this.hull = hull;
+        this.track = track;
+        this.model = model;
+        this.maxClients = Math.min(maxClients, NetProtocol.MAX_CARS);
+        connections = new Connection[this.maxClients];
+        fields = new int[NetProtocol.MAX_CARS * NetProtocol.FIELD_COUNT];
+        receiveBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        sendBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        input = new VehicleInput();
+        emptySnapshot = new Snapshot();
+        order = new int[NetProtocol.MAX_CARS];
+        ticksPerSecond = 100;
+        snapshotInterval = 2;
+        snapshotBudget = DEFAULT_SNAPSHOT_BUDGET;
+        setTuning(500.0f, 500.0f, 200.0f, 375.0f, 25.0f);
+    }
+
+    /**
+     * Opens the server's socket. Use port 0 to pick any free port.
+     */
+    public void bind(InetSocketAddress address) throws IOException {
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.socket().bind(address);
+    }
+
+    public void close() throws IOException {
+        if (channel != null) {
+            for (int i = 0; i < connections.length; i++) {
+                if (connections[i] != null) {
+                    sendBuffer.clear();
+                    sendBuffer.put(NetProtocol.DISCONNECT);
+                    send(connections[i]);
+                    connections[i] = null;
+                }
+            }
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Copies the handling values every vehicle uses, usually from
+     * {@link GameState}. Clients are told them when they connect.
+     */
+    public void setTuning(float acceleration, float maxSpeed, float friction, float braking, float steerAngle) {
+        this.acceleration = acceleration;
+        this.maxSpeed = maxSpeed;
+        this.friction = friction;
+        this.braking = braking;
+        this.steerAngle = steerAngle;
+    }
+
+    /**
+     * Runs one fixed server tick: reads input, steps every vehicle and sends
+     * snapshots when due.
+     */
+    public void tick(float delta) throws IOException {
+        receive();
+        
+        for (int i = 0; i < connections.length; i++) {
+            Connection connection = connections[i];
+            if (connection != null) {
+                connection.silence += delta;
+                if (connection.silence > CLIENT_TIMEOUT) {
+                    connections[i] = null;
+                } else {
+                    step(connection, delta);
+                }
+            }
+        }
+        
+        tick++;
+        if (tick % snapshotInterval == 0) {
+            for (int i = 0; i < connections.length; i++) {
+                Connection connection = connections[i];
+                if (connection != null) {
+                    NetProtocol.quantize(connection.simulator, connection.nextCheckpoint, connection.laps, connection.crashes, fields, i * NetProtocol.FIELD_COUNT);
+                }
+            }
+            for (int i = 0; i < connections.length; i++) {
+                if (connections[i] != null) {
+                    sendSnapshot(connections[i]);
+                }
+            }
+            sequence++;
+        }
+    }
+
+    private void receive() throws IOException {
+        while (true) {
+            receiveBuffer.clear();
+            SocketAddress address = channel.receive(receiveBuffer);
+            if (address == null) {
+                return;
+            }
+            receiveBuffer.flip();
+            bytesReceived += receiveBuffer.remaining();
+            
+            try {
+                handle(address, receiveBuffer);
+            } catch (RuntimeException e) {
+                Gdx.app.error(RaceServer.class.getSimpleName(), "Malformed packet from " + address, e);
+            }
+        }
+    }
+
+    private void handle(SocketAddress address, ByteBuffer buffer) throws IOException {
+        byte type = buffer.get();
+        Connection connection = find(address);
+        if (type == NetProtocol.CONNECT) {
+            if (buffer.getInt() != NetProtocol.PROTOCOL_VERSION) {
+                if (connection != null) {
+                    connections[connection.car] = null;
+                }
+                reject(address);
+                return;
+            }
+            
+            if (connection == null) {
+                connection = connect(address);
+                if (connection == null) {
+                    reject(address);
+                    return;
+                }
+            }
+            accept(connection);
+        } else if (connection != null) {
+            connection.silence = 0.0f;
+            if (type == NetProtocol.INPUT) {
+                readInput(connection, buffer);
+            } else if (type == NetProtocol.DISCONNECT) {
+                connections[connection.car] = null;
+            }
+        }
+    }
+
+    private Connection find(SocketAddress address) {
+        for (int i = 0; i < connections.length; i++) {
+            if (connections[i] != null && connections[i].address.equals(address)) {
+                return connections[i];
+            }
+        }
+        return null;
+    }
+
+    private Connection connect(SocketAddress address) {
+        for (int i = 0; i < connections.length; i++) {
+            if (connections[i] == null) {
+                Connection connection = new Connection(address, i, hull);
+                connection.simulator.setTuning(acceleration, maxSpeed, friction, braking, steerAngle);
+                respawn(connection);
+                connections[i] = connection;
+                return connection;
+            }
+        }
+        return null;
+    }
+
+    private void accept(Connection connection) throws IOException {
+        sendBuffer.clear();
+        sendBuffer.put(NetProtocol.ACCEPT);
+        sendBuffer.put((byte) connection.car);
+        sendBuffer.put((byte) track.ordinal());
+        sendBuffer.put((byte) model.ordinal());
+        sendBuffer.putShort((short) ticksPerSecond);
+        sendBuffer.putInt(tick);
+        sendBuffer.putFloat(acceleration);
+        sendBuffer.putFloat(maxSpeed);
+        sendBuffer.putFloat(friction);
+        sendBuffer.putFloat(braking);
+        sendBuffer.putFloat(steerAngle);
+        send(connection);
+    }
+
+    private void reject(SocketAddress address) throws IOException {
+        sendBuffer.clear();
+        sendBuffer.put(NetProtocol.REJECT);
+        sendBuffer.flip();
+        channel.send(sendBuffer, address);
+    }
+
+    /**
+     * Reads an input packet: the latest snapshot the client received, then
+     * the input bits of its most recent ticks, oldest first. Inputs are sent
+     * again until the server has used them, so a lost packet costs nothing.
+     */
+    private void readInput(Connection connection, ByteBuffer buffer) {
+        int ack = buffer.getInt();
+        if (ack > connection.ackedSequence && ack < sequence) {
+            connection.ackedSequence = ack;
+        }
+        
+        int newestTick = buffer.getInt();
+        int count = buffer.get() & 0xFF;
+        for (int i = 0; i < count; i++) {
+            int inputTick = newestTick - count + 1 + i;
+            int bits = buffer.get();
+            if (inputTick > connection.processedInputTick) {
+                int index = inputTick & INPUT_HISTORY - 1;
+                connection.inputs[index] = bits;
+                connection.inputTicks[index] = inputTick;
+            }
+        }
+        
+        if (connection.processedInputTick == Integer.MIN_VALUE) {
+            connection.processedInputTick = newestTick - count;
+        }
+        connection.newestInputTick = Math.max(connection.newestInputTick, newestTick);
+    }
+
+    /**
+     * Steps a client's vehicle with the input for the next tick it hasn't
+     * used yet. If that input hasn't arrived, the previous one is held
+     * without using up a tick.
+     */
+    private void step(Connection connection, float delta) {
+        if (connection.processedInputTick != Integer.MIN_VALUE) {
+            if (connection.newestInputTick - connection.processedInputTick > MAX_INPUT_LAG) {
+                connection.processedInputTick = connection.newestInputTick - MAX_INPUT_LAG;
+            }
+            
+            int nextTick = connection.processedInputTick + 1;
+            int index = nextTick & INPUT_HISTORY - 1;
+            if (connection.inputTicks[index] == nextTick) {
+                connection.bits = connection.inputs[index];
+                connection.processedInputTick = nextTick;
+            }
+        }
+        
+        int bits = connection.bits;
+        input.set((bits & InputFrame.UP) != 0, (bits & InputFrame.DOWN) != 0, (bits & InputFrame.LEFT) != 0, (bits & InputFrame.RIGHT) != 0);
+        VehicleSimulator simulator = connection.simulator;
+        float previousX = simulator.getX();
+        float previousY = simulator.getY();
+        simulator.step(input, delta);
+        
+        float x = simulator.getX();
+        float y = simulator.getY();
+        if (!levelData.isClear(x + hull.getPivotX(), y + hull.getPivotY(), hull.getRadius())) {
+            hull.transform(connection.polygons, x, y, simulator.getBodyRotation());
+            for (int i = 0; i < connection.polygons.size; i++) {
+                if (levelData.overlapsWall(connection.polygons.get(i))) {
+                    connection.crashes++;
+                    respawn(connection);
+                    return;
+                }
+            }
+        }
+        
+        if (levelData.crossesCheckpoint(connection.nextCheckpoint, previousX, previousY, x, y)) {
+            if (connection.nextCheckpoint == 0) {
+                connection.laps++;
+            }
+            connection.nextCheckpoint = (connection.nextCheckpoint + 1) % levelData.getCheckpointCount();
+        }
+    }
+
+    private void respawn(Connection connection) {
+        connection.simulator.reset(levelData.getSpawnX(), levelData.getSpawnY(), levelData.getSpawnRotation());
+        connection.nextCheckpoint = levelData.getCheckpointCount() > 1 ? 1 : 0;
+    }
+
+    /**
+     * Writes the client's snapshot header, then vehicles in priority order,
+     * its own first, until the next one might not fit in the budget.
+     */
+    private void sendSnapshot(Connection connection) throws IOException {
+        Snapshot baseline = emptySnapshot;
+        if (connection.ackedSequence >= 0 && sequence - connection.ackedSequence < VIEW_HISTORY) {
+            Snapshot acked = connection.views[connection.ackedSequence & VIEW_HISTORY - 1];
+            if (acked.getSequence() == connection.ackedSequence) {
+                baseline = acked;
+            }
+        }
+        
+        Snapshot view = connection.views[sequence & VIEW_HISTORY - 1];
+        view.set(baseline);
+        view.setSequence(sequence);
+        view.setTick(tick);
+        
+        int count = prioritize(connection);
+        
+        sendBuffer.clear();
+        sendBuffer.put(NetProtocol.SNAPSHOT);
+        sendBuffer.putInt(sequence);
+        sendBuffer.putInt(baseline.getSequence());
+        sendBuffer.putInt(tick);
+        sendBuffer.putInt(connection.processedInputTick == Integer.MIN_VALUE ? -1 : connection.processedInputTick);
+        sendBuffer.put((byte) connection.car);
+        int countPosition = sendBuffer.position();
+        sendBuffer.put((byte) 0);
+        int headerSize = sendBuffer.position();
+        
+        int written = 0;
+        int[] viewFields = view.getFields();
+        for (int i = 0; i < count; i++) {
+            if (sendBuffer.position() - headerSize + NetProtocol.MAX_CAR_BYTES > snapshotBudget && written > 0) {
+                break;
+            }
+            
+            int car = order[i];
+            int offset = car * NetProtocol.FIELD_COUNT;
+            if (connections[car] == null) {
+                sendBuffer.put((byte) (car | NetProtocol.REMOVED));
+                view.remove(car);
+                written++;
+            } else {
+                if (NetProtocol.writeCar(sendBuffer, car, fields, offset, baseline)) {
+                    written++;
+                }
+                System.arraycopy(fields, offset, viewFields, offset, NetProtocol.FIELD_COUNT);
+                view.setPresent(car, true);
+            }
+            connection.priorities[car] = 0.0f;
+        }
+        sendBuffer.put(countPosition, (byte) written);
+        send(connection);
+    }
+
+    /**
+     * Adds this snapshot's priority to every vehicle the client's view is
+     * missing or out of date on and sorts them into {@link #order}.
+     * @return the number of vehicles to consider sending.
+     */
+    private int prioritize(Connection connection) {
+        Snapshot view = connection.views[sequence & VIEW_HISTORY - 1];
+        int[] viewFields = view.getFields();
+        float ownX = connection.simulator.getX();
+        float ownY = connection.simulator.getY();
+        
+        int count = 0;
+        for (int car = 0; car < connections.length; car++) {
+            Connection other = connections[car];
+            int offset = car * NetProtocol.FIELD_COUNT;
+            if (other == null) {
+                if (!view.isPresent(car)) {
+                    continue;
+                }
+                connection.priorities[car] += 1.0f;
+            } else if (other == connection) {
+                connection.priorities[car] = Float.MAX_VALUE;
+            } else {
+                float distance = Vector2.dst(ownX, ownY, other.simulator.getX(), other.simulator.getY());
+                connection.priorities[car] += 1.0f + 4.0f * Math.max(0.0f, 1.0f - distance / PRIORITY_DISTANCE);
+            }
+            
+            if (other != null && view.isPresent(car) && sameFields(fields, viewFields, offset)) {
+                connection.priorities[car] = 0.0f;
+                continue;
+            }
+            
+            int j = count++;
+            while (j > 0 && connection.priorities[order[j - 1]] < connection.priorities[car]) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = car;
+        }
+        return count;
+    }
+
+    private static boolean sameFields(int[] a, int[] b, int offset) {
+        for (int i = offset; i < offset + NetProtocol.FIELD_COUNT; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void send(Connection connection) throws IOException {
+        sendBuffer.flip();
+        int size = sendBuffer.remaining();
+        if (channel.send(sendBuffer, connection.address) > 0) {
+            bytesSent += size;
+            packetsSent++;
+            connection.bytesSent += size;
+        }
+    }
+
+    /**
+     * @return the address the server is bound to, or null before
+     * {@link #bind(InetSocketAddress)}.
+     */
+    public InetSocketAddress getAddress() {
+        return channel == null ? null : (InetSocketAddress) channel.socket().getLocalSocketAddress();
+    }
+
+    public int getClientCount() {
+        int count = 0;
+        for (int i = 0; i < connections.length; i++) {
+            if (connections[i] != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the bytes sent to the client driving the given vehicle, or -1
+     * if there is none.
+     */
+    public long getBytesSent(int car) {
+        return connections[car] == null ? -1 : connections[car].bytesSent;
+    }
+
+    public int getMaxClients() {
+        return maxClients;
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    public int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    public void setTicksPerSecond(int ticksPerSecond) {
+        this.ticksPerSecond = ticksPerSecond;
+    }
+
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    /**
+     * @param snapshotInterval the number of ticks between snapshots.
+     */
+    public void setSnapshotInterval(int snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    public int getSnapshotBudget() {
+        return snapshotBudget;
+    }
+
+    /**
+     * @param snapshotBudget the most bytes of vehicle data in one snapshot.
+     * At least one vehicle is always sent. Budgets that wouldn't fit in a
+     * packet are clamped to {@link NetProtocol#MAX_SNAPSHOT_BUDGET}.
+     */
+    public void setSnapshotBudget(int snapshotBudget) {
+        this.snapshotBudget = Math.min(snapshotBudget, NetProtocol.MAX_SNAPSHOT_BUDGET);
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * One client and the vehicle it drives. The vehicle id is the client's
+     * slot.
+     */
+    private static class Connection {
+        private final SocketAddress address;
+        private final int car;
+        private final VehicleSimulator simulator;
+        private final Array<Polygon> polygons;
+        private final Snapshot[] views;
+        private final int[] inputs;
+        private final int[] inputTicks;
+        private final float[] priorities;
+        private int ackedSequence;
+        private int processedInputTick;
+        private int newestInputTick;
+        private int bits;
+        private int nextCheckpoint;
+        private int laps;
+        private int crashes;
+        private float silence;
+        private long bytesSent;
+
+        public Connection(SocketAddress address, int car, VehicleHull hull) {
+            this.address = address;
+            this.car = car;
+            simulator = new VehicleSimulator();
+            polygons = hull.createPolygons();
+            views = new Snapshot[VIEW_HISTORY];
+            for (int i = 0; i < VIEW_HISTORY; i++) {
+                views[i] = new Snapshot();
+            }
+            inputs = new int[INPUT_HISTORY];
+            inputTicks = new int[INPUT_HISTORY];
+            for (int i = 0; i < INPUT_HISTORY; i++) {
+                inputTicks[i] = Integer.MIN_VALUE;
+            }
+            priorities = new float[NetProtocol.MAX_CARS];
+            ackedSequence = -1;
+            processedInputTick = Integer.MIN_VALUE;
+            newestInputTick = Integer.MIN_VALUE;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.net;
+
+import com.badlogic.gdx.utils.Array;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many {@link RaceServer rooms} in one process. Every room is ticked at
+ * a fixed rate on a shared pool of worker threads, never on two threads at
+ * once, and times each of its ticks. Rooms on the same track and vehicle
+ * model should be given the same {@link com.ray3k.remotecrashcars.entities.LevelData}
+ * and {@link com.ray3k.remotecrashcars.entities.VehicleHull}; both are only
+ * read while racing, so rooms don't need copies of the geometry.
+ * <p>
+ * Rooms are added and removed from a single controlling thread. Their
+ * metrics, including the server's traffic as of its last tick, may be read
+ * from any thread; read the server itself only from its own ticks.
+ */
+public class RoomScheduler {
+    public final static long SHUTDOWN_TIMEOUT = 5000;
+    private final ScheduledExecutorService executor;
+    private final Array<Room> rooms;
+    private final int threads;
+    private final int ticksPerSecond;
+    private int nextId;
+
+    /**
+     * @param threads number of worker threads; 0 uses one per core.
+     */
+    public RoomScheduler(int threads, int ticksPerSecond) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.ticksPerSecond = ticksPerSecond;
+        executor = Executors.newScheduledThreadPool(this.threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "room-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        rooms = new Array<Room>();
+    }
+
+    /**
+     * Starts ticking a bound server. Its first tick runs after a random
+     * fraction of a tick, so rooms added together don't all wake at once.
+     */
+    public Room add(RaceServer server) {
+        server.setTicksPerSecond(ticksPerSecond);
+        Room room = new Room(server, nextId++);
+        long period = 1000000000L / ticksPerSecond;
+        room.start = System.nanoTime();
+        long delay = (long) (Math.random() * period);
+        room.start += delay;
+        room.future = executor.scheduleAtFixedRate(room, delay, period, TimeUnit.NANOSECONDS);
+        rooms.add(room);
+        return room;
+    }
+
+    /**
+     * Stops ticking a room and closes its server. Waits for a tick that is
+     * already running to finish first.
+     */
+    public void remove(Room room) throws IOException {
+        room.future.cancel(false);
+        rooms.removeValue(room, true);
+        synchronized (room.lock) {
+            room.closed = true;
+            room.server.close();
+        }
+    }
+
+    /**
+     * Stops every room and waits up to {@link #SHUTDOWN_TIMEOUT} milliseconds
+     * for the worker threads to exit.
+     */
+    public void dispose() throws IOException {
+        while (rooms.size > 0) {
+            remove(rooms.peek());
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Array<Room> getRooms() {
+        return rooms;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    /**
+     * One scheduled race server and how long its ticks take.
+     */
+    public class Room implements Runnable {
+        private final RaceServer server;
+        private final int id;
+        private final float delta;
+        private final long period;
+        private final Object lock;
+        private boolean closed;
+        private ScheduledFuture<?> future;
+        private long start;
+        private volatile long ticks;
+        private volatile long totalTickTime;
+        private volatile long maxTickTime;
+        private volatile long lastTickTime;
+        private volatile long maxLateness;
+        private volatile long lateTicks;
+        private volatile Exception error;
+        private volatile long bytesSent;
+        private volatile int clientCount;
+
+        private Room(RaceServer server, int id) {
+            this.server = server;
+            this.id = id;
+            delta = 1.0f / ticksPerSecond;
+            period = 1000000000L / ticksPerSecond;
+            lock = new Object();
+        }
+
+        @Override
+        public void run() {
+            synchronized (lock) {
+                if (!closed) {
+                    tick();
+                }
+            }
+        }
+
+        private void tick() {
+            long time = System.nanoTime();
+            long lateness = time - (start + ticks * period);
+            if (lateness > period) {
+                lateTicks++;
+            }
+            if (lateness > maxLateness) {
+                maxLateness = lateness;
+            }
+            
+            try {
+                server.tick(delta);
+            } catch (Exception e) {
+                error = e;
+            }
+            bytesSent = server.getBytesSent();
+            clientCount = server.getClientCount();
+            
+            time = System.nanoTime() - time;
+            lastTickTime = time;
+            totalTickTime += time;
+            if (time > maxTickTime) {
+                maxTickTime = time;
+            }
+            ticks++;
+        }
+
+        public RaceServer getServer() {
+            return server;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public long getTicks() {
+            return ticks;
+        }
+
+        /**
+         * @return nanoseconds spent ticking since the room started.
+         */
+        public long getTotalTickTime() {
+            return totalTickTime;
+        }
+
+        /**
+         * @return the longest single tick in nanoseconds.
+         */
+        public long getMaxTickTime() {
+            return maxTickTime;
+        }
+
+        public long getLastTickTime() {
+            return lastTickTime;
+        }
+
+        /**
+         * @return the furthest behind schedule a tick has started, in
+         * nanoseconds.
+         */
+        public long getMaxLateness() {
+            return maxLateness;
+        }
+
+        /**
+         * @return the number of ticks that started more than a whole tick
+         * late, a sign the workers can't keep up.
+         */
+        public long getLateTicks() {
+            return lateTicks;
+        }
+
+        /**
+         * @return the bytes the server had sent as of its last tick.
+         */
+        public long getBytesSent() {
+            return bytesSent;
+        }
+
+        /**
+         * @return the clients connected as of the server's last tick.
+         */
+        public int getClientCount() {
+            return clientCount;
+        }
+
+        /**
+         * @return the last exception a tick threw, or null. The room keeps
+         * ticking.
+         */
+        public Exception getError() {
+            return error;
+        }
+    }
+}
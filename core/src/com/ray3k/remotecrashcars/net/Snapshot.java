@@ -0,0 +1,107 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.net;
+
+/**
+ * Quantized states of every vehicle in a race as one side of the connection
+ * knows them after a numbered snapshot. Vehicles that weren't in a snapshot
+ * keep the state they had in its baseline, so the server and the client
+ * rebuild identical views from the same datagrams.
+ */
+public class Snapshot {
+    private final int[] fields;
+    private final boolean[] present;
+    private int sequence;
+    private int tick;
+
+    public Snapshot() {
+        fields = new int[NetProtocol.MAX_CARS * NetProtocol.FIELD_COUNT];
+        present = new boolean[NetProtocol.MAX_CARS];
+        clear();
+    }
+
+    /**
+     * Forgets every vehicle.
+     */
+    public void clear() {
+        for (int i = 0; i < present.length; i++) {
+            present[i] = false;
+        }
+        sequence = -1;
+        tick = 0;
+    }
+
+    public void set(Snapshot other) {
+        System.arraycopy(other.fields, 0, fields, 0, fields.length);
+        System.arraycopy(other.present, 0, present, 0, present.length);
+        sequence = other.sequence;
+        tick = other.tick;
+    }
+
+    public void remove(int car) {
+        present[car] = false;
+        for (int i = 0; i < NetProtocol.FIELD_COUNT; i++) {
+            fields[car * NetProtocol.FIELD_COUNT + i] = 0;
+        }
+    }
+
+    /**
+     * @return {@link NetProtocol#FIELD_COUNT} quantized ints per vehicle,
+     * indexed by vehicle id.
+     */
+    public int[] getFields() {
+        return fields;
+    }
+
+    public boolean isPresent(int car) {
+        return present[car];
+    }
+
+    public void setPresent(int car, boolean present) {
+        this.present[car] = present;
+    }
+
+    /**
+     * @return the number of the snapshot this view was built from, or -1 for
+     * an empty view.
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(int sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * @return the server tick the snapshot was taken on.
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    public void setTick(int tick) {
+        this.tick = tick;
+    }
+}
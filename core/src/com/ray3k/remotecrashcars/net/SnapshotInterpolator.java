@@ -0,0 +1,223 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.net;
+
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * Smooths the vehicles other clients drive. Every vehicle whose state changed
+ * in a snapshot gets a timestamped sample, and {@link #advance()} places each
+ * vehicle a fixed {@link #getDelay() delay} behind the newest server tick,
+ * between the two samples around that moment. A vehicle with no sample that
+ * recent is carried forward from its newest one at its last speed for a
+ * limited time, and one that crashed and respawned starts over rather than
+ * sliding across the track.
+ * <p>
+ * The render clock runs one tick per {@link #advance()} and is nudged toward
+ * the newest snapshot, so jitter in when snapshots arrive doesn't reach the
+ * screen. All storage is allocated up front.
+ */
+public class SnapshotInterpolator {
+    public final static int SAMPLES = 32;
+    public final static int DEFAULT_DELAY = 10;
+    public final static int MAX_EXTRAPOLATION = 25;
+    public final static int MAX_SAMPLE_GAP = 25;
+    public final static float CLOCK_CORRECTION = 0.05f;
+    public final static float CLOCK_SNAP = 50.0f;
+    private final static int SAMPLE_SIZE = 4;
+    private final float delta;
+    private final int[] sampleTicks;
+    private final float[] samples;
+    private final int[] sampleCounts;
+    private final int[] sampleHeads;
+    private final int[] fields;
+    private final float[] positions;
+    private final boolean[] present;
+    private int delay;
+    private int newestTick;
+    private float renderTick;
+    private boolean started;
+
+    /**
+     * @param delta the length of a server tick in seconds.
+     */
+    public SnapshotInterpolator(float delta) {
+        this.delta = delta;
+        sampleTicks = new int[NetProtocol.MAX_CARS * SAMPLES];
+        samples = new float[NetProtocol.MAX_CARS * SAMPLES * SAMPLE_SIZE];
+        sampleCounts = new int[NetProtocol.MAX_CARS];
+        sampleHeads = new int[NetProtocol.MAX_CARS];
+        fields = new int[NetProtocol.MAX_CARS * NetProtocol.FIELD_COUNT];
+        positions = new float[NetProtocol.MAX_CARS * 3];
+        present = new boolean[NetProtocol.MAX_CARS];
+        delay = DEFAULT_DELAY;
+    }
+
+    /**
+     * Records a sample for every vehicle whose state differs from the last
+     * one added. Snapshots older than the newest added are ignored.
+     */
+    public void add(Snapshot snapshot) {
+        if (started && snapshot.getTick() <= newestTick) {
+            return;
+        }
+        newestTick = snapshot.getTick();
+        if (!started) {
+            renderTick = newestTick - delay;
+            started = true;
+        }
+        
+        int[] snapshotFields = snapshot.getFields();
+        for (int car = 0; car < NetProtocol.MAX_CARS; car++) {
+            if (!snapshot.isPresent(car)) {
+                sampleCounts[car] = 0;
+                continue;
+            }
+            
+            int offset = car * NetProtocol.FIELD_COUNT;
+            if (sampleCounts[car] > 0 && sameFields(snapshotFields, offset)) {
+                continue;
+            }
+            if (fields[offset + NetProtocol.CRASHES] != snapshotFields[offset + NetProtocol.CRASHES]) {
+                sampleCounts[car] = 0;
+            }
+            System.arraycopy(snapshotFields, offset, fields, offset, NetProtocol.FIELD_COUNT);
+            
+            int head = (sampleHeads[car] + 1) % SAMPLES;
+            sampleHeads[car] = head;
+            sampleCounts[car] = Math.min(sampleCounts[car] + 1, SAMPLES);
+            int index = car * SAMPLES + head;
+            sampleTicks[index] = newestTick;
+            int sample = index * SAMPLE_SIZE;
+            samples[sample] = NetProtocol.getX(snapshotFields, offset);
+            samples[sample + 1] = NetProtocol.getY(snapshotFields, offset);
+            samples[sample + 2] = NetProtocol.getRotation(snapshotFields, offset);
+            samples[sample + 3] = NetProtocol.getSpeed(snapshotFields, offset);
+        }
+    }
+
+    private boolean sameFields(int[] snapshotFields, int offset) {
+        for (int i = offset; i < offset + NetProtocol.FIELD_COUNT; i++) {
+            if (fields[i] != snapshotFields[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the render clock on by one tick and places every vehicle.
+     */
+    public void advance() {
+        if (!started) {
+            return;
+        }
+        
+        float error = newestTick - delay - (renderTick + 1.0f);
+        if (Math.abs(error) > CLOCK_SNAP) {
+            renderTick = newestTick - delay;
+        } else {
+            renderTick += 1.0f + error * CLOCK_CORRECTION;
+        }
+        
+        for (int car = 0; car < NetProtocol.MAX_CARS; car++) {
+            present[car] = sampleCounts[car] > 0;
+            if (present[car]) {
+                place(car);
+            }
+        }
+    }
+
+    private void place(int car) {
+        int base = car * SAMPLES;
+        int newer = sampleHeads[car];
+        int count = sampleCounts[car];
+        
+        int older = newer;
+        int i = 0;
+        while (i < count - 1 && sampleTicks[base + older] > renderTick) {
+            newer = older;
+            older = (older + SAMPLES - 1) % SAMPLES;
+            i++;
+        }
+        
+        int from = (base + older) * SAMPLE_SIZE;
+        int fromTick = sampleTicks[base + older];
+        int toTick = sampleTicks[base + newer];
+        if (older == newer || renderTick <= fromTick || toTick - fromTick > MAX_SAMPLE_GAP) {
+            float ticks = MathUtils.clamp(renderTick - fromTick, 0.0f, MAX_EXTRAPOLATION);
+            float distance = samples[from + 3] * ticks * delta;
+            float radians = samples[from + 2] * MathUtils.degreesToRadians;
+            positions[car * 3] = samples[from] + (float) Math.cos(radians) * distance;
+            positions[car * 3 + 1] = samples[from + 1] + (float) Math.sin(radians) * distance;
+            positions[car * 3 + 2] = samples[from + 2];
+        } else {
+            int to = (base + newer) * SAMPLE_SIZE;
+            float alpha = (renderTick - fromTick) / (toTick - fromTick);
+            positions[car * 3] = MathUtils.lerp(samples[from], samples[to], alpha);
+            positions[car * 3 + 1] = MathUtils.lerp(samples[from + 1], samples[to + 1], alpha);
+            positions[car * 3 + 2] = MathUtils.lerpAngleDeg(samples[from + 2], samples[to + 2], alpha);
+        }
+    }
+
+    /**
+     * @return true if the vehicle was in the race as of the last
+     * {@link #advance()}.
+     */
+    public boolean isPresent(int car) {
+        return present[car];
+    }
+
+    public float getX(int car) {
+        return positions[car * 3];
+    }
+
+    public float getY(int car) {
+        return positions[car * 3 + 1];
+    }
+
+    public float getRotation(int car) {
+        return positions[car * 3 + 2];
+    }
+
+    /**
+     * @return the server tick vehicles are currently placed at.
+     */
+    public float getRenderTick() {
+        return renderTick;
+    }
+
+    public int getDelay() {
+        return delay;
+    }
+
+    /**
+     * @param delay how many ticks behind the newest snapshot to draw
+     * vehicles. Should cover a couple of snapshot intervals plus the expected
+     * jitter.
+     */
+    public void setDelay(int delay) {
+        this.delay = delay;
+    }
+}
@@ -26,27 +26,45 @@ package com.ray3k.remotecrashcars.states;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.InputMultiplexer;
 import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.FloatArray;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
+import com.esotericsoftware.spine.AnimationStateData;
+import com.esotericsoftware.spine.SkeletonData;
 import com.ray3k.remotecrashcars.Core;
 import com.ray3k.remotecrashcars.EntityManager;
+import com.ray3k.remotecrashcars.InputFrame;
+import com.ray3k.remotecrashcars.InputLog;
 import com.ray3k.remotecrashcars.InputManager;
+import com.ray3k.remotecrashcars.RenderQueue;
 import com.ray3k.remotecrashcars.State;
+import com.ray3k.remotecrashcars.TiledBackground;
+import com.ray3k.remotecrashcars.effects.EffectManager;
+import com.ray3k.remotecrashcars.effects.EffectPool;
+import com.ray3k.remotecrashcars.effects.SkeletonEffect.SkeletonEffectPool;
+import com.ray3k.remotecrashcars.entities.GhostEntity;
+import com.ray3k.remotecrashcars.entities.GhostLap;
 import com.ray3k.remotecrashcars.entities.LevelData;
+import com.ray3k.remotecrashcars.entities.OpponentEntity;
+import com.ray3k.remotecrashcars.entities.PlayerEntity;
+import com.ray3k.remotecrashcars.entities.RacingLine;
+import java.io.IOException;
 
 public class GameState extends State {
+    public final static float OPPONENT_SPACING = 120.0f;
     private float time;
     private static float bestTime;
+    private int laps;
     private OrthographicCamera gameCamera;
     private Viewport gameViewport;
     private OrthographicCamera uiCamera;
@@ -55,9 +73,13 @@ public class GameState extends State {
     private Skin skin;
     private Stage stage;
     private Label timeLabel;
+    private Label splitLabel;
+    private FloatArray splits;
+    private FloatArray bestSplits;
     private EntityManager entityManager;
-    private Texture trackBackground;
+    private TiledBackground trackBackground;
     private LevelData levelData;
+    private PlayerEntity playerEntity;
     private Color playerColor;
     private Model model;
     private Track track;
@@ -66,13 +88,56 @@ public class GameState extends State {
     private float friction;
     private float braking;
     private float steerAngle;
+    private float inputLatency;
+    private boolean distanceFieldEnabled;
+    private InputFrame inputFrame;
+    private InputLog recording;
+    private InputLog replay;
+    private InputLog.Playback playback;
+    private boolean ghostsEnabled;
+    private boolean opponentExplosionsEnabled;
+    private GhostLap lapRecording;
+    private GhostLap bestLap;
+    private GhostEntity ghostEntity;
+    private int opponentCount;
+    private RacingLine racingLine;
+    private final TrackPreloader trackPreloader;
+    private final RenderQueue renderQueue;
+    private final EffectManager effectManager;
+    private EffectPool explosionPool;
+    private final RenderQueue.Renderable backgroundRenderable;
+    private final RenderQueue.Renderable hudRenderable;
     
     public static enum Model {
-        CAR, BIKE
+        CAR("car"), BIKE("bike");
+        
+        private final String name;
+        
+        Model(String name) {
+            this.name = name;
+        }
+        
+        public String getSkeletonPath() {
+            return Core.DATA_PATH + "/spine/" + name + ".json";
+        }
     }
     
     public static enum Track {
-        CIRCLE, PILL, HARD
+        CIRCLE("track-circle"), PILL("track-pill"), HARD("track-hard");
+        
+        private final String name;
+        
+        Track(String name) {
+            this.name = name;
+        }
+        
+        public String getSkeletonPath() {
+            return Core.DATA_PATH + "/spine/" + name + ".json";
+        }
+        
+        public String getTexturePath() {
+            return Core.DATA_PATH + "/gfx/" + name + ".png";
+        }
     }
     
     public GameState(Core core) {
@@ -83,66 +148,155 @@ public class GameState extends State {
         friction = 200.0f;
         braking = 375.0f;
         steerAngle = 25.0f;
+        distanceFieldEnabled = true;
+        inputFrame = new InputFrame();
+        ghostsEnabled = true;
+        lapRecording = new GhostLap();
+        opponentCount = 0;
+        splits = new FloatArray();
+        bestSplits = new FloatArray();
+        trackPreloader = new TrackPreloader(core);
+        renderQueue = new RenderQueue();
+        effectManager = new EffectManager();
+        backgroundRenderable = new RenderQueue.Renderable() {
+            @Override
+            public void render(PolygonSpriteBatch batch, float delta) {
+                trackBackground.draw(batch);
+            }
+        };
+        hudRenderable = new RenderQueue.Renderable() {
+            @Override
+            public void render(PolygonSpriteBatch batch, float delta) {
+                stage.getRoot().draw(batch, 1.0f);
+            }
+        };
     }
     
     @Override
     public void start() {
         time = 0;
         bestTime = 999;
+        laps = 0;
+        splits.clear();
+        bestSplits.clear();
         
         inputManager = new InputManager(); 
         
-        uiCamera = new OrthographicCamera();
-        uiViewport = new ScreenViewport(uiCamera);
-        uiViewport.update(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
-        uiViewport.apply();
+        inputFrame.setBits(0);
+        playback = null;
+        if (replay != null) {
+            applyReplaySettings();
+            playback = replay.createPlayback();
+        }
+        recording = null;
+        if (getCore().isRecordingInput()) {
+            recording = new InputLog(track.name(), model.name(), getCore().getFrameClock().getTicksPerSecond());
+            recording.setAcceleration(acceleration);
+            recording.setMaxSpeed(maxSpeed);
+            recording.setFriction(friction);
+            recording.setBraking(braking);
+            recording.setSteerAngle(steerAngle);
+            recording.setInputLatency(inputLatency);
+            recording.setOpponentCount(opponentCount);
+        }
         
-        uiCamera.position.set(uiCamera.viewportWidth / 2, uiCamera.viewportHeight / 2, 0);
+        entityManager = new EntityManager();
         
-        gameCamera = new OrthographicCamera();
-        gameViewport = new ScreenViewport(gameCamera);
-        gameViewport.update(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
-        gameViewport.apply();
+        if (explosionPool == null) {
+            SkeletonData skeletonData = getCore().getAssetManager().get(Core.DATA_PATH + "/spine/explosion.json", SkeletonData.class);
+            explosionPool = new SkeletonEffectPool(getCore().getSkeletonRenderer(), new AnimationStateData(skeletonData), "animation", 16, Integer.MAX_VALUE);
+        }
+        explosionPool.fill(opponentExplosionsEnabled ? opponentCount + 1 : 1);
         
-        skin = getCore().getAssetManager().get(Core.DATA_PATH + "/ui/remote-crash-cars.json", Skin.class);
-        stage = new Stage(new ScreenViewport());
+        if (!getCore().isHeadless()) {
+            uiCamera = new OrthographicCamera();
+            uiViewport = new ScreenViewport(uiCamera);
+            uiViewport.update(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+            uiViewport.apply();
+
+            uiCamera.position.set(uiCamera.viewportWidth / 2, uiCamera.viewportHeight / 2, 0);
+
+            gameCamera = new OrthographicCamera();
+            gameViewport = new ScreenViewport(gameCamera);
+            gameViewport.update(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+            gameViewport.apply();
+
+            skin = getCore().getAssetManager().get(Core.DATA_PATH + "/ui/remote-crash-cars.json", Skin.class);
+            stage = new Stage(new ScreenViewport(), getCore().getSpriteBatch());
+
+            InputMultiplexer inputMultiplexer = new InputMultiplexer();
+            inputMultiplexer.addProcessor(inputManager);
+            inputMultiplexer.addProcessor(stage);
+            Gdx.input.setInputProcessor(inputMultiplexer);
+
+            gameCamera.position.set(Gdx.graphics.getWidth() / 2.0f, Gdx.graphics.getHeight() / 2.0f, 0);
+            createStageElements();
+        }
         
-        InputMultiplexer inputMultiplexer = new InputMultiplexer();
-        inputMultiplexer.addProcessor(inputManager);
-        inputMultiplexer.addProcessor(stage);
-        Gdx.input.setInputProcessor(inputMultiplexer);
+        trackPreloader.preload(track, distanceFieldEnabled);
+        trackPreloader.finishLoading();
+        levelData = trackPreloader.getLevelData();
+        if (!getCore().isHeadless()) {
+            if (trackBackground != null) {
+                trackBackground.dispose();
+            }
+            trackBackground = trackPreloader.takeBackground();
+        }
         
-        entityManager = new EntityManager();
+        playerEntity = levelData.spawnPlayer(this, playerColor, model.getSkeletonPath());
+        if (!getCore().isHeadless()) {
+            playerEntity.updateCamera(1.0f);
+            gameCamera.update();
+            trackBackground.update(gameCamera);
+            trackBackground.finishLoading();
+        }
         
-        gameCamera.position.set(Gdx.graphics.getWidth() / 2.0f, Gdx.graphics.getHeight() / 2.0f, 0);
-        createStageElements();
-        
-        if (track == Track.CIRCLE) {
-            getCore().getAssetManager().load(Core.DATA_PATH + "/gfx/track-circle.png", Texture.class);
-            getCore().getAssetManager().finishLoading();
-            trackBackground = getCore().getAssetManager().get(Core.DATA_PATH + "/gfx/track-circle.png", Texture.class);
-            levelData = new LevelData(this, getCore(), Core.DATA_PATH + "/spine/track-circle.json");
-        } else if (track == Track.PILL) {
-            getCore().getAssetManager().load(Core.DATA_PATH + "/gfx/track-pill.png", Texture.class);
-            getCore().getAssetManager().finishLoading();
-            trackBackground = getCore().getAssetManager().get(Core.DATA_PATH + "/gfx/track-pill.png", Texture.class);
-            levelData = new LevelData(this, getCore(), Core.DATA_PATH + "/spine/track-pill.json");
-        } else {
-            getCore().getAssetManager().load(Core.DATA_PATH + "/gfx/track-hard.png", Texture.class);
-            getCore().getAssetManager().finishLoading();
-            trackBackground = getCore().getAssetManager().get(Core.DATA_PATH + "/gfx/track-hard.png", Texture.class);
-            levelData = new LevelData(this, getCore(), Core.DATA_PATH + "/spine/track-hard.json");
+        lapRecording.reset();
+        bestLap = ghostsEnabled ? GhostLap.read(getGhostFile()) : null;
+        ghostEntity = null;
+        if (bestLap != null) {
+            ghostEntity = new GhostEntity(this, model.getSkeletonPath(), bestLap);
+            ghostEntity.setColor(playerColor);
         }
         
-        if (model == Model.CAR) {
-            levelData.spawnPlayer(this, playerColor, Core.DATA_PATH + "/spine/car.json");
-        } else {
-            levelData.spawnPlayer(this, playerColor, Core.DATA_PATH + "/spine/bike.json");
+        racingLine = null;
+        if (opponentCount > 0) {
+            spawnOpponents();
         }
         
         playBeepSound();
     }
     
+    /**
+     * Switches to the tuning, latency and opponents the replay was recorded
+     * with, so the recorded input drives the same race.
+     */
+    private void applyReplaySettings() {
+        acceleration = replay.getAcceleration();
+        maxSpeed = replay.getMaxSpeed();
+        friction = replay.getFriction();
+        braking = replay.getBraking();
+        steerAngle = replay.getSteerAngle();
+        inputLatency = replay.getInputLatency();
+        opponentCount = replay.getOpponentCount();
+    }
+    
+    /**
+     * Lines the opponents up on the racing line behind the start, one car
+     * length apart.
+     */
+    private void spawnOpponents() {
+        racingLine = trackPreloader.getRacingLine();
+        racingLine.setSpeedProfile(maxSpeed, braking, RacingLine.DEFAULT_LATERAL_ACCELERATION);
+        
+        float spacing = Math.min(OPPONENT_SPACING, racingLine.getLength() / (opponentCount + 1));
+        for (int i = 0; i < opponentCount; i++) {
+            OpponentEntity opponent = new OpponentEntity(this, model.getSkeletonPath(), racingLine);
+            opponent.setColor(OpponentEntity.COLORS[i % OpponentEntity.COLORS.length]);
+            opponent.spawn(racingLine.getLength() - (i + 1) * spacing);
+        }
+    }
+    
     private void createStageElements() {
         Table root = new Table();
         root.setFillParent(true);
@@ -150,52 +304,91 @@ public class GameState extends State {
         
         timeLabel = new Label("0", skin, "button");
         timeLabel.setAlignment(Align.left);
-        root.add(timeLabel).expand().top().width(100.0f);
+        root.add(timeLabel).expandX().top().width(100.0f);
+        
+        root.row();
+        splitLabel = new Label("", skin, "button");
+        splitLabel.setAlignment(Align.left);
+        root.add(splitLabel).expand().top().width(100.0f);
     }
     
     @Override
-    public void draw(SpriteBatch spriteBatch, float delta) {
+    public void draw(PolygonSpriteBatch spriteBatch, float delta) {
         Gdx.gl.glClearColor(0.0f, 0.0f, 0.0f, 1);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
         
+        if (!playerEntity.isDestroyed()) {
+            playerEntity.updateCamera(delta);
+        }
         gameCamera.update();
-        spriteBatch.setProjectionMatrix(gameCamera.combined);
-        spriteBatch.begin();
-        spriteBatch.draw(trackBackground, 0.0f, 0.0f);
-        spriteBatch.end();
-        
-        stage.draw();
+        trackBackground.update(gameCamera);
+        stage.getCamera().update();
         
-        spriteBatch.setProjectionMatrix(gameCamera.combined);
-        spriteBatch.begin();
-        entityManager.draw(spriteBatch, delta);
-        spriteBatch.end();
+        renderQueue.clear();
+        renderQueue.setProjection(RenderQueue.LAYER_BACKGROUND, gameCamera.combined);
+        renderQueue.setProjection(RenderQueue.LAYER_ENTITIES, gameCamera.combined);
+        renderQueue.setProjection(RenderQueue.LAYER_EFFECTS, gameCamera.combined);
+        renderQueue.setProjection(RenderQueue.LAYER_HUD, stage.getCamera().combined);
+        renderQueue.add(RenderQueue.LAYER_BACKGROUND, 0, null, false, backgroundRenderable);
+        entityManager.draw(renderQueue);
+        effectManager.draw(renderQueue);
+        renderQueue.add(RenderQueue.LAYER_HUD, 0, null, false, hudRenderable);
+        renderQueue.draw(spriteBatch, delta);
     }
 
     @Override
     public void act(float delta) {
+        if (playback != null) {
+            playback.next(inputFrame);
+        } else {
+            inputFrame.poll(Gdx.input);
+        }
+        if (recording != null) {
+            recording.add(inputFrame.getBits());
+        }
+        
         entityManager.act(delta);
+        effectManager.act(delta);
         
-        stage.act(delta);
+        if (ghostsEnabled && !playerEntity.isDestroyed()) {
+            lapRecording.record(playerEntity.getX(), playerEntity.getY(), playerEntity.getBoneRotation());
+        }
         
         time += delta;
-        timeLabel.setText(Integer.toString((int) time) + "." + Integer.toString((int) (10 * (time % 1))));
+        
+        if (!getCore().isHeadless()) {
+            stage.act(delta);
+            timeLabel.setText(formatTime(time));
+        }
     }
 
     @Override
     public void dispose() {
-        
+        trackPreloader.dispose();
     }
 
     @Override
     public void stop() {
-        stage.dispose();
-        if (getCore().getAssetManager().isLoaded(Core.DATA_PATH + "/gfx/track-circle.png")) {
-            getCore().getAssetManager().unload(Core.DATA_PATH + "/gfx/track-circle.png");
-        } else if (getCore().getAssetManager().isLoaded(Core.DATA_PATH + "/gfx/track-pill.png")) {
-            getCore().getAssetManager().unload(Core.DATA_PATH + "/gfx/track-pill.png");
-        } else if (getCore().getAssetManager().isLoaded(Core.DATA_PATH + "/gfx/track-hard.png")) {
-            getCore().getAssetManager().unload(Core.DATA_PATH + "/gfx/track-hard.png");
+        if (recording != null) {
+            FileHandle file = Gdx.files.local(Core.DATA_PATH + "/replays/" + track.name().toLowerCase() + "-" + model.name().toLowerCase() + "-" + System.currentTimeMillis() + "." + InputLog.EXTENSION);
+            try {
+                recording.write(file);
+            } catch (IOException e) {
+                Gdx.app.error(GameState.class.getSimpleName(), "Unable to write input log " + file.path(), e);
+            }
+            recording = null;
+        }
+        
+        effectManager.clear();
+        
+        if (stage != null) {
+            stage.dispose();
+            stage = null;
+        }
+        
+        if (trackBackground != null) {
+            trackBackground.dispose();
+            trackBackground = null;
         }
     }
     
@@ -217,6 +410,26 @@ public class GameState extends State {
         return inputManager;
     }
 
+    /**
+     * @return the controls for the current tick, polled from the keyboard or
+     * read from the replay.
+     */
+    public InputFrame getInputFrame() {
+        return inputFrame;
+    }
+
+    public InputLog getReplay() {
+        return replay;
+    }
+
+    /**
+     * @param replay a log to play back instead of polling the keyboard, from
+     * the start of the next race, or null to use the keyboard again.
+     */
+    public void setReplay(InputLog replay) {
+        this.replay = replay;
+    }
+
     public float getTime() {
         return time;
     }
@@ -226,7 +439,122 @@ public class GameState extends State {
             bestTime = this.time;
         }
         this.time = time;
-        timeLabel.setText(Float.toString(time));
+        if (timeLabel != null) {
+            timeLabel.setText(Float.toString(time));
+        }
+    }
+    
+    /**
+     * Called when the player crosses the start line after passing every other
+     * checkpoint in order.
+     */
+    public void completeLap() {
+        if (ghostsEnabled) {
+            saveGhost();
+        }
+        
+        splits.add(time);
+        showSplit();
+        if (time < bestTime) {
+            bestSplits.clear();
+            bestSplits.addAll(splits);
+        }
+        splits.clear();
+        
+        setTime(0.0f);
+        laps++;
+        playBeepSound();
+    }
+    
+    /**
+     * Called when the player crosses a checkpoint other than the start line.
+     * @param checkpoint the index of the gate, from 1.
+     */
+    public void completeSector(int checkpoint) {
+        splits.add(time);
+        showSplit();
+    }
+    
+    /**
+     * Shows the split just recorded, with the difference to the same split of
+     * the best lap.
+     */
+    private void showSplit() {
+        if (splitLabel == null) {
+            return;
+        }
+        
+        int index = splits.size - 1;
+        String text = "S" + (index + 1) + " " + formatTime(getSectorTime(splits, index));
+        if (index < bestSplits.size) {
+            float difference = splits.get(index) - bestSplits.get(index);
+            text += (difference < 0 ? " -" : " +") + formatTime(Math.abs(difference));
+        }
+        splitLabel.setText(text);
+    }
+    
+    private static String formatTime(float time) {
+        return Integer.toString((int) time) + "." + Integer.toString((int) (10 * (time % 1)));
+    }
+    
+    /**
+     * @param splits lap times at each checkpoint, as returned by
+     * {@link #getSplits()}.
+     * @return the time spent between checkpoint index - 1 and index.
+     */
+    public static float getSectorTime(FloatArray splits, int index) {
+        return index == 0 ? splits.get(0) : splits.get(index) - splits.get(index - 1);
+    }
+    
+    /**
+     * @return the lap time at each checkpoint passed so far this lap.
+     */
+    public FloatArray getSplits() {
+        return splits;
+    }
+    
+    /**
+     * @return the splits of the best lap of this race, ending with the lap
+     * time.
+     */
+    public FloatArray getBestSplits() {
+        return bestSplits;
+    }
+    
+    /**
+     * Keeps the lap that just finished as the ghost if it beats the stored
+     * one, then restarts the ghost and the recording for the next lap.
+     */
+    private void saveGhost() {
+        lapRecording.finish(time);
+        if (bestLap == null || time < bestLap.getTime()) {
+            if (bestLap == null) {
+                bestLap = new GhostLap();
+                bestLap.set(lapRecording);
+                ghostEntity = new GhostEntity(this, model.getSkeletonPath(), bestLap);
+                ghostEntity.setColor(playerColor);
+            } else {
+                bestLap.set(lapRecording);
+            }
+            
+            FileHandle file = getGhostFile();
+            try {
+                bestLap.write(file);
+            } catch (IOException e) {
+                Gdx.app.error(GameState.class.getSimpleName(), "Unable to write ghost " + file.path(), e);
+            }
+        }
+        
+        ghostEntity.restart();
+        lapRecording.reset();
+    }
+    
+    private FileHandle getGhostFile() {
+        return Gdx.files.local(Core.DATA_PATH + "/ghosts/" + track.name().toLowerCase() + "-" + model.name().toLowerCase() + ".ghost");
+    }
+
+    public int getLaps() {
+        return laps;
     }
 
     public static float getBestTime() {
@@ -252,6 +580,15 @@ public class GameState extends State {
     public void playExplosionSound() {
         getCore().getAssetManager().get(Core.DATA_PATH + "/sfx/explosion.wav", Sound.class).play(.5f);
     }
+    
+    /**
+     * Plays a pooled explosion at the given position.
+     * @param looping whether it keeps playing until the race stops rather than
+     * being retired as soon as its animation ends.
+     */
+    public void spawnExplosion(float x, float y, boolean looping) {
+        effectManager.spawn(explosionPool, x, y, looping);
+    }
 
     public OrthographicCamera getGameCamera() {
         return gameCamera;
@@ -273,6 +610,10 @@ public class GameState extends State {
         return levelData;
     }
 
+    public PlayerEntity getPlayerEntity() {
+        return playerEntity;
+    }
+
     public Color getPlayerColor() {
         return playerColor;
     }
@@ -336,4 +677,84 @@ public class GameState extends State {
     public void setSteerAngle(float steerAngle) {
         this.steerAngle = steerAngle;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return the time in seconds between the player's input and the car
+     * responding to it.
+     */
+    public float getInputLatency() {
+        return inputLatency;
+    }
+
+    public void setInputLatency(float inputLatency) {
+        this.inputLatency = inputLatency;
+    }
+
+    public boolean isGhostsEnabled() {
+        return ghostsEnabled;
+    }
+
+    /**
+     * @param ghostsEnabled whether laps are recorded and the best one is
+     * loaded, saved and raced against as a ghost.
+     */
+    public void setGhostsEnabled(boolean ghostsEnabled) {
+        this.ghostsEnabled = ghostsEnabled;
+    }
+
+    public boolean isOpponentExplosionsEnabled() {
+        return opponentExplosionsEnabled;
+    }
+
+    /**
+     * @param opponentExplosionsEnabled whether opponents leave an explosion
+     * behind when they crash. Off by default.
+     */
+    public void setOpponentExplosionsEnabled(boolean opponentExplosionsEnabled) {
+        this.opponentExplosionsEnabled = opponentExplosionsEnabled;
+    }
+
+    public GhostLap getBestLap() {
+        return bestLap;
+    }
+
+    public int getOpponentCount() {
+        return opponentCount;
+    }
+
+    /**
+     * @param opponentCount the number of computer controlled vehicles in the
+     * next race.
+     */
+    public void setOpponentCount(int opponentCount) {
+        this.opponentCount = opponentCount;
+    }
+
+    /**
+     * @return the racing line the opponents follow, or null if the race has
+     * none.
+     */
+    public RacingLine getRacingLine() {
+        return racingLine;
+    }
+
+    public TrackPreloader getTrackPreloader() {
+        return trackPreloader;
+    }
+
+    public RenderQueue getRenderQueue() {
+        return renderQueue;
+    }
+
+    public EffectManager getEffectManager() {
+        return effectManager;
+    }
+
+    public boolean isDistanceFieldEnabled() {
+        return distanceFieldEnabled;
+    }
+
+    public void setDistanceFieldEnabled(boolean distanceFieldEnabled) {
+        this.distanceFieldEnabled = distanceFieldEnabled;
+    }
+}
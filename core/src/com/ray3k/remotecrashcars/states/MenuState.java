@@ -28,9 +28,10 @@ import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.scenes.scene2d.ui.Button;
 import com.badlogic.gdx.scenes.scene2d.ui.ButtonGroup;
 import com.badlogic.gdx.scenes.scene2d.ui.Dialog;
 import com.badlogic.gdx.scenes.scene2d.ui.ImageTextButton;
@@ -53,6 +54,7 @@ public class MenuState extends State {
     private Stage stage;
     private Skin skin;
     private Table root;
+    private Dialog loadingDialog;
 
     public MenuState(Core core) {
         super(core);
@@ -108,7 +110,7 @@ public class MenuState extends State {
     }
     
     @Override
-    public void draw(SpriteBatch spriteBatch, float delta) {
+    public void draw(PolygonSpriteBatch spriteBatch, float delta) {
         Gdx.gl.glClearColor(0, .407f, .215f, 1);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
         stage.draw();
@@ -117,6 +119,20 @@ public class MenuState extends State {
     @Override
     public void act(float delta) {
         stage.act(delta);
+        
+        TrackPreloader trackPreloader = ((GameState) getCore().getStateManager().getState("game")).getTrackPreloader();
+        trackPreloader.update();
+        if (loadingDialog != null && trackPreloader.getError() != null) {
+            loadingDialog.hide();
+            loadingDialog = null;
+            Dialog dialog = new Dialog("", skin);
+            dialog.text("Unable to load track.");
+            dialog.button("OK");
+            dialog.show(stage);
+        } else if (loadingDialog != null && trackPreloader.isReady()) {
+            loadingDialog = null;
+            getCore().getStateManager().loadState("game");
+        }
     }
 
     @Override
@@ -126,6 +142,7 @@ public class MenuState extends State {
 
     @Override
     public void stop() {
+        loadingDialog = null;
         stage.dispose();
     }
     
@@ -219,16 +236,25 @@ public class MenuState extends State {
     }
     
     public void showTrackDialog() {
+        final GameState gameState = (GameState) getCore().getStateManager().getState("game");
         final ButtonGroup buttonGroup = new ButtonGroup();
         Dialog dialog = new Dialog("", skin) {
             @Override
             protected void result(Object object) {
-                GameState gameState = (GameState) getCore().getStateManager().getState("game");
                 gameState.setTrack((GameState.Track) buttonGroup.getChecked().getUserObject());
                 showSettingsDialog();
             }
         };
         
+        ChangeListener preloadListener = new ChangeListener() {
+            @Override
+            public void changed(ChangeListener.ChangeEvent event, Actor actor) {
+                if (((Button) actor).isChecked()) {
+                    gameState.getTrackPreloader().preload((GameState.Track) actor.getUserObject(), gameState.isDistanceFieldEnabled());
+                }
+            }
+        };
+        
         Table table = new Table();
         ScrollPane scrollPane = new ScrollPane(table, skin);
         scrollPane.setFadeScrollBars(false);
@@ -240,6 +266,7 @@ public class MenuState extends State {
         ImageTextButton imageTextButton = new ImageTextButton("Circle", style);
         imageTextButton.setUserObject(GameState.Track.CIRCLE);
         imageTextButton.getLabelCell().expandX().left().padLeft(20.0f);
+        imageTextButton.addListener(preloadListener);
         buttonGroup.add(imageTextButton);
         table.add(imageTextButton);
         
@@ -249,6 +276,7 @@ public class MenuState extends State {
         imageTextButton = new ImageTextButton("Pill", style);
         imageTextButton.setUserObject(GameState.Track.PILL);
         imageTextButton.getLabelCell().expandX().left().padLeft(20.0f);
+        imageTextButton.addListener(preloadListener);
         buttonGroup.add(imageTextButton);
         table.add(imageTextButton);
         
@@ -258,6 +286,7 @@ public class MenuState extends State {
         imageTextButton = new ImageTextButton("Hard", style);
         imageTextButton.setUserObject(GameState.Track.HARD);
         imageTextButton.getLabelCell().expandX().left().padLeft(20.0f);
+        imageTextButton.addListener(preloadListener);
         buttonGroup.add(imageTextButton);
         table.add(imageTextButton);
         
@@ -274,7 +303,7 @@ public class MenuState extends State {
         Dialog dialog = new Dialog("", skin) {
             @Override
             protected void result(Object object) {
-                getCore().getStateManager().loadState("game");
+                startRace();
             }
         };
         
@@ -381,7 +410,47 @@ public class MenuState extends State {
         table.add(slider).growX();
         
         steerAngleLabel.setAlignment(Align.center);
-        table.add(steerAngleLabel).width(100.0f);;
+        table.add(steerAngleLabel).width(100.0f);
+        
+        table.row();
+        label = new Label("Input Latency", skin);
+        table.add(label).colspan(2).padTop(15.0f);
+        
+        table.row();
+        slider = new Slider(0, .5f, .01f, false, skin);
+        final Label inputLatencyLabel = new Label(Float.toString(slider.getValue()), skin);
+        slider.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeListener.ChangeEvent event, Actor actor) {
+                gameState.setInputLatency(((Slider) actor).getValue());
+                inputLatencyLabel.setText(Float.toString(((Slider) actor).getValue()));
+            }
+        });
+        slider.setValue(gameState.getInputLatency());
+        table.add(slider).growX();
+        
+        inputLatencyLabel.setAlignment(Align.center);
+        table.add(inputLatencyLabel).width(100.0f);
+        
+        table.row();
+        label = new Label("Opponents", skin);
+        table.add(label).colspan(2).padTop(15.0f);
+        
+        table.row();
+        slider = new Slider(0, 60, 1, false, skin);
+        final Label opponentCountLabel = new Label(Integer.toString(gameState.getOpponentCount()), skin);
+        slider.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeListener.ChangeEvent event, Actor actor) {
+                gameState.setOpponentCount((int) ((Slider) actor).getValue());
+                opponentCountLabel.setText(Integer.toString((int) ((Slider) actor).getValue()));
+            }
+        });
+        slider.setValue(gameState.getOpponentCount());
+        table.add(slider).growX();
+        
+        opponentCountLabel.setAlignment(Align.center);
+        table.add(opponentCountLabel).width(100.0f);
         
         dialog.button("OK");
         
@@ -391,4 +460,22 @@ public class MenuState extends State {
         dialog.setPosition(Gdx.graphics.getWidth() / 2.0f, Gdx.graphics.getHeight() / 2.0f, Align.center);
         stage.setScrollFocus(scrollPane);
     }
-}
\ No newline at end of file
+    
+    /**
+     * Starts the race if the track is ready, or shows a loading message until
+     * it is.
+     */
+    public void startRace() {
+        GameState gameState = (GameState) getCore().getStateManager().getState("game");
+        TrackPreloader trackPreloader = gameState.getTrackPreloader();
+        trackPreloader.preload(gameState.getTrack(), gameState.isDistanceFieldEnabled());
+        trackPreloader.update();
+        if (trackPreloader.isReady()) {
+            getCore().getStateManager().loadState("game");
+        } else {
+            loadingDialog = new Dialog("", skin);
+            loadingDialog.text("Loading track...");
+            loadingDialog.show(stage);
+        }
+    }
+}
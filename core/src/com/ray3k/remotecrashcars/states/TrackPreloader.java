@@ -0,0 +1,247 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.states;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.ray3k.remotecrashcars.Core;
+import com.ray3k.remotecrashcars.TiledBackground;
+import com.ray3k.remotecrashcars.entities.LevelData;
+import com.ray3k.remotecrashcars.entities.RacingLine;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads a track while the player is still choosing it. {@link #preload} cuts
+ * the background tiles and reads or builds the collision data, distance field
+ * and racing line on a worker thread. Once that is done, {@link #update()}
+ * opens the background on the render thread and queues the tiles around the
+ * start on the {@link com.badlogic.gdx.assets.AssetManager}, which loads them
+ * over the next frames.
+ * <p>
+ * {@link GameState#start()} picks up the result with
+ * {@link #finishLoading()}, which only blocks if the worker is still busy.
+ * Tracks are loaded one at a time, so a track that is highlighted and then
+ * replaced by another never writes its caches at the same time as the next
+ * one. The last track stays loaded, so racing it again starts at once.
+ * <p>
+ * A load that fails is kept as {@link #getError()} rather than thrown every
+ * frame. Preloading the same track again retries it.
+ */
+public class TrackPreloader {
+    private final Core core;
+    private final ExecutorService executor;
+    private GameState.Track track;
+    private boolean distanceField;
+    private Future<Loaded> future;
+    private Loaded loaded;
+    private Throwable error;
+    private TiledBackground background;
+    private final OrthographicCamera camera;
+
+    public TrackPreloader(Core core) {
+        this.core = core;
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "track-preloader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        camera = new OrthographicCamera();
+    }
+
+    /**
+     * Starts loading a track unless it is already loaded or loading. Whatever
+     * was loaded for another track is dropped, and a failed load is retried.
+     * @param distanceField whether to load or bake the track's distance field.
+     */
+    public void preload(final GameState.Track track, final boolean distanceField) {
+        if (future != null && error == null && track == this.track && distanceField == this.distanceField) {
+            return;
+        }
+        
+        cancel();
+        this.track = track;
+        this.distanceField = distanceField;
+        final boolean headless = core.isHeadless();
+        future = executor.submit(new Callable<Loaded>() {
+            @Override
+            public Loaded call() {
+                if (!headless) {
+                    TiledBackground.prepare(track.getTexturePath());
+                }
+                LevelData levelData = LevelData.load(core, track.getSkeletonPath(), distanceField);
+                return new Loaded(levelData, RacingLine.load(levelData, track.getSkeletonPath()));
+            }
+        });
+    }
+
+    /**
+     * Drops the current track. A load already running on the worker finishes,
+     * but its result is discarded.
+     */
+    public void cancel() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+        loaded = null;
+        error = null;
+        track = null;
+        if (background != null) {
+            background.dispose();
+            background = null;
+        }
+    }
+
+    /**
+     * Collects the worker's result and keeps the tiles around the start
+     * loading. Call once a frame on the render thread while a track is being
+     * preloaded.
+     */
+    public void update() {
+        if (loaded == null && error == null && future != null && future.isDone()) {
+            collect();
+        }
+        
+        if (loaded != null && !core.isHeadless()) {
+            if (background == null) {
+                background = TiledBackground.load(core.getAssetManager(), track.getTexturePath());
+            }
+            background.update(getSpawnCamera());
+        }
+    }
+
+    /**
+     * @return whether the collision data is built and the tiles around the
+     * start are loaded, so a race on the track can start without waiting.
+     */
+    public boolean isReady() {
+        return loaded != null && (core.isHeadless() || background != null && background.isLoaded());
+    }
+
+    /**
+     * Waits for the worker and opens the background if that hasn't happened
+     * yet. Tiles still loading are left to the caller.
+     * @throws IllegalStateException if no track is being preloaded.
+     * @throws GdxRuntimeException if the track failed to load.
+     */
+    public void finishLoading() {
+        if (future == null) {
+            throw new IllegalStateException("No track is being preloaded.");
+        }
+        
+        update();
+        if (loaded == null && error == null) {
+            collect();
+            update();
+        }
+        if (error != null) {
+            throw new GdxRuntimeException("Unable to load track " + track, error);
+        }
+    }
+
+    /**
+     * Waits for the worker's result, keeping the exception if it failed.
+     */
+    private void collect() {
+        try {
+            loaded = future.get();
+        } catch (InterruptedException e) {
+            throw new GdxRuntimeException(e);
+        } catch (ExecutionException e) {
+            error = e.getCause();
+            Gdx.app.error(TrackPreloader.class.getSimpleName(), "Unable to load track " + track, error);
+        }
+    }
+
+    /**
+     * @return a camera centered on the start the way
+     * {@link com.ray3k.remotecrashcars.entities.PlayerEntity#updateCamera(float)}
+     * centers it on a car that was just spawned.
+     */
+    private OrthographicCamera getSpawnCamera() {
+        float halfWidth = Gdx.graphics.getWidth() / 2.0f;
+        float halfHeight = Gdx.graphics.getHeight() / 2.0f;
+        LevelData levelData = loaded.levelData;
+        camera.setToOrtho(false, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        camera.position.set(Math.max(halfWidth, Math.min(levelData.getSpawnX(), LevelData.WORLD_SIZE - halfWidth)), Math.max(halfHeight, Math.min(levelData.getSpawnY(), LevelData.WORLD_SIZE - halfHeight)), 0.0f);
+        camera.update();
+        return camera;
+    }
+
+    /**
+     * Hands the background over to the caller, who becomes responsible for
+     * disposing it. The next {@link #update()} opens a new one.
+     */
+    public TiledBackground takeBackground() {
+        TiledBackground returnValue = background;
+        background = null;
+        return returnValue;
+    }
+
+    public GameState.Track getTrack() {
+        return track;
+    }
+
+    /**
+     * @return why the current track failed to load, or null if it hasn't.
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    public LevelData getLevelData() {
+        return loaded == null ? null : loaded.levelData;
+    }
+
+    public RacingLine getRacingLine() {
+        return loaded == null ? null : loaded.racingLine;
+    }
+
+    /**
+     * Stops the worker thread. Tiles are left to the asset manager, which
+     * unloads them when it is disposed.
+     */
+    public void dispose() {
+        executor.shutdownNow();
+    }
+
+    private static class Loaded {
+        private final LevelData levelData;
+        private final RacingLine racingLine;
+
+        public Loaded(LevelData levelData, RacingLine racingLine) {
+            this.levelData = levelData;
+            this.racingLine = racingLine;
+        }
+    }
+}
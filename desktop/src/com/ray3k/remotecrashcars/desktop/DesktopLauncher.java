@@ -3,12 +3,15 @@ package com.ray3k.remotecrashcars.desktop;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 import com.ray3k.remotecrashcars.Core;
+import java.util.Arrays;
 
 public class DesktopLauncher {
 	public static void main (String[] arg) {
 		LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
                 config.width = 800;
                 config.height = 700;
-		new LwjglApplication(new Core(), config);
+		Core core = new Core();
+		core.setRecordingInput(Arrays.asList(arg).contains("--record"));
+		new LwjglApplication(core, config);
 	}
 }
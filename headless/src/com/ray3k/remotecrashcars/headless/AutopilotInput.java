@@ -0,0 +1,107 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.headless;
+
+import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.backends.headless.mock.input.MockInput;
+import com.ray3k.remotecrashcars.entities.LevelData;
+import com.ray3k.remotecrashcars.entities.PlayerEntity;
+import com.ray3k.remotecrashcars.states.GameState;
+
+/**
+ * Stand-in for the keyboard when running headless. Before every tick
+ * {@link #update(GameState)} casts three feeler rays in front of the car,
+ * steers toward whichever side has more room and throttles to a speed
+ * proportional to the clearance straight ahead. It is only meant to keep the
+ * simulation busy; it won't get around tight hairpins.
+ */
+public class AutopilotInput extends MockInput {
+    private static final float FEELER_ANGLE = 30.0f;
+    private static final float FEELER_RANGE = 200.0f;
+    private static final float SPEED_SLACK = 50.0f;
+    private final float[] feelerAngles;
+    private final float[] feelers;
+    private float targetSpeedFactor;
+    private boolean up;
+    private boolean down;
+    private boolean left;
+    private boolean right;
+
+    public AutopilotInput() {
+        targetSpeedFactor = .8f;
+        feelerAngles = new float[] {FEELER_ANGLE, -FEELER_ANGLE, 0.0f};
+        feelers = new float[feelerAngles.length * LevelData.RAY_STRIDE];
+    }
+
+    public void update(GameState gameState) {
+        up = false;
+        down = false;
+        left = false;
+        right = false;
+        
+        PlayerEntity player = gameState.getPlayerEntity();
+        if (player == null || player.isDestroyed()) {
+            return;
+        }
+        
+        gameState.getLevelData().castRays(player.getX(), player.getY(), player.getRotation(), feelerAngles, FEELER_RANGE, feelers);
+        float leftClearance = feelers[0];
+        float rightClearance = feelers[LevelData.RAY_STRIDE];
+        float frontClearance = feelers[LevelData.RAY_STRIDE * 2];
+        
+        float targetSpeed = targetSpeedFactor * gameState.getMaxSpeed() * frontClearance / FEELER_RANGE;
+        up = player.getCarSpeed() < targetSpeed;
+        down = player.getCarSpeed() > targetSpeed + SPEED_SLACK;
+        left = leftClearance > rightClearance;
+        right = rightClearance > leftClearance;
+    }
+
+    @Override
+    public boolean isKeyPressed(int key) {
+        switch (key) {
+            case Keys.UP:
+                return up;
+            case Keys.DOWN:
+                return down;
+            case Keys.LEFT:
+                return left;
+            case Keys.RIGHT:
+                return right;
+            default:
+                return false;
+        }
+    }
+
+    public float getTargetSpeedFactor() {
+        return targetSpeedFactor;
+    }
+
+    /**
+     * @param targetSpeedFactor fraction of the tuned max speed the autopilot
+     * aims for on an open straight.
+     */
+    public void setTargetSpeedFactor(float targetSpeedFactor) {
+        this.targetSpeedFactor = targetSpeedFactor;
+    }
+}
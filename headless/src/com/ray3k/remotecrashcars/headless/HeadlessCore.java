@@ -0,0 +1,203 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.headless;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.loaders.resolvers.LocalFileHandleResolver;
+import com.badlogic.gdx.graphics.Color;
+import com.esotericsoftware.spine.SkeletonData;
+import com.ray3k.remotecrashcars.Core;
+import com.ray3k.remotecrashcars.InputLog;
+import com.ray3k.remotecrashcars.states.GameState;
+
+/**
+ * Runs the race simulation without a window. Spine data is read through the
+ * {@link HeadlessSkeletonDataLoader}, the game over screen is replaced with one
+ * that immediately restarts, and every render call steps a batch of fixed
+ * ticks back to back instead of waiting on the frame clock.
+ */
+public class HeadlessCore extends Core {
+    public static final int TICKS_PER_RENDER = 1000;
+    private final GameState.Track track;
+    private final GameState.Model model;
+    private final long maxTicks;
+    private InputLog replay;
+    private int opponentCount;
+    private AutopilotInput autopilotInput;
+    private HeadlessGameOverState gameOverState;
+    private long ticks;
+    private long startTime;
+    private long endTime;
+
+    /**
+     * @param maxTicks number of fixed ticks to simulate before exiting.
+     */
+    public HeadlessCore(GameState.Track track, GameState.Model model, long maxTicks) {
+        this.track = track;
+        this.model = model;
+        this.maxTicks = maxTicks;
+    }
+
+    /**
+     * Plays back a recorded race tick for tick instead of driving with the
+     * autopilot, exiting when the log ends. The race uses the tuning, latency
+     * and opponent count stored in the log.
+     */
+    public HeadlessCore(InputLog replay) {
+        this(GameState.Track.valueOf(replay.getTrack()), GameState.Model.valueOf(replay.getModel()), replay.getTicks());
+        this.replay = replay;
+        opponentCount = replay.getOpponentCount();
+    }
+
+    @Override
+    public void create() {
+        initManagers();
+        loadAssets();
+        getAssetManager().finishLoading();
+        
+        autopilotInput = new AutopilotInput();
+        Gdx.input = autopilotInput;
+        
+        GameState gameState = getGameState();
+        if (replay != null) {
+            getFrameClock().setTicksPerSecond(replay.getTicksPerSecond());
+            gameState.setReplay(replay);
+        }
+        gameState.setGhostsEnabled(false);
+        gameState.setTrack(track);
+        gameState.setModel(model);
+        gameState.setPlayerColor(Color.WHITE);
+        gameState.setOpponentCount(opponentCount);
+        
+        ticks = 0;
+        startTime = System.nanoTime();
+        getStateManager().loadState("game");
+    }
+
+    @Override
+    public void initManagers() {
+        super.initManagers();
+        getAssetManager().setLoader(SkeletonData.class, new HeadlessSkeletonDataLoader(new LocalFileHandleResolver()));
+        
+        gameOverState = new HeadlessGameOverState(this);
+        getStateManager().addState("game-over", gameOverState);
+    }
+
+    @Override
+    public void render() {
+        float stepTime = getFrameClock().getStepTime();
+        GameState gameState = getGameState();
+        
+        for (int i = 0; i < TICKS_PER_RENDER && ticks < maxTicks; i++) {
+            if (replay == null) {
+                autopilotInput.update(gameState);
+            }
+            getStateManager().act(stepTime);
+            ticks++;
+        }
+        
+        if (ticks >= maxTicks) {
+            endTime = System.nanoTime();
+            Gdx.app.exit();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        
+        double seconds = getElapsedSeconds();
+        System.out.println("track:            " + track);
+        System.out.println("model:            " + model);
+        System.out.println("driver:           " + (replay == null ? "autopilot" : "replay, " + replay.getRunCount() + " input runs"));
+        System.out.println("ticks:            " + ticks);
+        System.out.println("simulated time:   " + ticks * getFrameClock().getStepTime() + "s");
+        System.out.println("wall time:        " + seconds + "s");
+        System.out.println("ticks per second: " + (long) (ticks / seconds));
+        System.out.println("races:            " + getRaces());
+        System.out.println("laps:             " + getLaps());
+        System.out.println("best lap:         " + (getLaps() > 0 ? getBestTime() + "s" : "-"));
+    }
+
+    @Override
+    public boolean isHeadless() {
+        return true;
+    }
+    
+    public GameState getGameState() {
+        return (GameState) getStateManager().getState("game");
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+    
+    /**
+     * @return wall clock seconds spent simulating, excluding asset loading.
+     */
+    public double getElapsedSeconds() {
+        long end = endTime == 0 ? System.nanoTime() : endTime;
+        return (end - startTime) / 1000000000.0;
+    }
+    
+    public int getRaces() {
+        return gameOverState.getRaces();
+    }
+    
+    /**
+     * @return laps completed over all finished races plus the one in progress.
+     */
+    public int getLaps() {
+        return gameOverState.getLaps() + getGameState().getLaps();
+    }
+    
+    public float getBestTime() {
+        float best = gameOverState.getBestTime();
+        if (getGameState().getLaps() > 0) {
+            best = Math.min(best, GameState.getBestTime());
+        }
+        return best;
+    }
+
+    public InputLog getReplay() {
+        return replay;
+    }
+
+    public int getOpponentCount() {
+        return opponentCount;
+    }
+
+    /**
+     * @param opponentCount the number of AI opponents in every race. None by
+     * default, so only the player is simulated. Call before the application
+     * is created.
+     */
+    public void setOpponentCount(int opponentCount) {
+        this.opponentCount = opponentCount;
+    }
+
+    public AutopilotInput getAutopilotInput() {
+        return autopilotInput;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.headless;
+
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
+import com.ray3k.remotecrashcars.Core;
+import com.ray3k.remotecrashcars.states.GameOverState;
+import com.ray3k.remotecrashcars.states.GameState;
+
+/**
+ * Replaces the game over screen when running headless. Each finished race is
+ * tallied and the next one starts on the following tick.
+ */
+public class HeadlessGameOverState extends GameOverState {
+    private int races;
+    private int laps;
+    private float bestTime;
+
+    public HeadlessGameOverState(Core core) {
+        super(core);
+        bestTime = Float.MAX_VALUE;
+    }
+
+    @Override
+    public void start() {
+        GameState gameState = (GameState) getCore().getStateManager().getState("game");
+        races++;
+        laps += gameState.getLaps();
+        if (gameState.getLaps() > 0 && getTime() < bestTime) {
+            bestTime = getTime();
+        }
+    }
+
+    @Override
+    public void draw(PolygonSpriteBatch spriteBatch, float delta) {
+    }
+
+    @Override
+    public void act(float delta) {
+        getCore().getStateManager().loadState("game");
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public void resize(int width, int height) {
+    }
+
+    public int getRaces() {
+        return races;
+    }
+
+    public int getLaps() {
+        return laps;
+    }
+
+    public float getBestTime() {
+        return bestTime;
+    }
+}
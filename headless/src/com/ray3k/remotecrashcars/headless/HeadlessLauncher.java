@@ -0,0 +1,66 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.headless;
+
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.files.FileHandle;
+import com.ray3k.remotecrashcars.InputLog;
+import com.ray3k.remotecrashcars.states.GameState;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Usage: HeadlessLauncher [track] [model] [ticks] [--record] [--opponents n]
+ * <br>
+ * or: HeadlessLauncher --replay file
+ * <p>
+ * Must be run with core/assets as the working directory. Defaults to the
+ * circle track, the car and one simulated hour. With --record every race
+ * driven by the autopilot is written to an input log; --replay plays one back
+ * as fast as possible. --opponents adds AI cars to every race.
+ */
+public class HeadlessLauncher {
+    public static void main (String[] args) throws IOException {
+        HeadlessCore core;
+        if (args.length > 1 && args[0].equals("--replay")) {
+            core = new HeadlessCore(InputLog.read(new FileHandle(new File(args[1]))));
+        } else {
+            GameState.Track track = args.length > 0 ? GameState.Track.valueOf(args[0].toUpperCase()) : GameState.Track.CIRCLE;
+            GameState.Model model = args.length > 1 ? GameState.Model.valueOf(args[1].toUpperCase()) : GameState.Model.CAR;
+            long ticks = args.length > 2 ? Long.parseLong(args[2]) : 360000L;
+            core = new HeadlessCore(track, model, ticks);
+            core.setRecordingInput(Arrays.asList(args).contains("--record"));
+            int index = Arrays.asList(args).indexOf("--opponents");
+            if (index >= 0 && index + 1 < args.length) {
+                core.setOpponentCount(Integer.parseInt(args[index + 1]));
+            }
+        }
+        
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        config.renderInterval = 0.0f;
+        new HeadlessApplication(core, config);
+    }
+}
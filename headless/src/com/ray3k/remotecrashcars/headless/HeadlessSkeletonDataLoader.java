@@ -0,0 +1,69 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.headless;
+
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.assets.loaders.SynchronousAssetLoader;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.esotericsoftware.spine.SkeletonBinary;
+import com.esotericsoftware.spine.SkeletonData;
+import com.esotericsoftware.spine.SkeletonJson;
+import com.ray3k.remotecrashcars.SkeletonDataLoader.SkeletonDataLoaderParameter;
+
+/**
+ * Loads {@link SkeletonData} through a {@link HeadlessAttachmentLoader}. The
+ * atlas named in the parameter is ignored so no textures are requested.
+ */
+public class HeadlessSkeletonDataLoader extends SynchronousAssetLoader<SkeletonData, SkeletonDataLoaderParameter> {
+
+    public HeadlessSkeletonDataLoader(FileHandleResolver resolver) {
+        super(resolver);
+    }
+
+    @Override
+    public SkeletonData load(AssetManager assetManager, String fileName, FileHandle file, SkeletonDataLoaderParameter parameter) {
+        return readSkeletonData(file, parameter == null ? 1.0f : parameter.scale);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, SkeletonDataLoaderParameter parameter) {
+        return null;
+    }
+    
+    public static SkeletonData readSkeletonData(FileHandle file, float scale) {
+        if (file.extension().toLowerCase().equals("skel")) {
+            SkeletonBinary skeletonBinary = new SkeletonBinary(new HeadlessAttachmentLoader());
+            skeletonBinary.setScale(scale);
+            return skeletonBinary.readSkeletonData(file);
+        } else {
+            SkeletonJson skeletonJson = new SkeletonJson(new HeadlessAttachmentLoader());
+            skeletonJson.setScale(scale);
+            return skeletonJson.readSkeletonData(file);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.headless;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Random;
+
+/**
+ * Loopback UDP relay that holds every datagram for a set number of ticks
+ * plus random jitter, and drops a share of them, between clients and a
+ * server. Time is counted in the caller's ticks rather than read from a
+ * clock and the randomness is seeded, so a single threaded race through the
+ * proxy plays out the same way every run.
+ */
+public class LatencyProxy {
+    private final InetSocketAddress server;
+    private final DatagramChannel front;
+    private final Array<Route> routes;
+    private final Array<Packet> queue;
+    private final Pool<Packet> packetPool;
+    private final ByteBuffer buffer;
+    private final Random random;
+    private final int latency;
+    private final int jitter;
+    private final float loss;
+    private long delivered;
+    private long dropped;
+
+    /**
+     * @param latency ticks each datagram is held in each direction.
+     * @param jitter the most extra ticks a datagram may be held, picked at
+     * random per datagram, so datagrams may arrive out of order.
+     * @param loss the fraction of datagrams dropped, from 0 to 1.
+     */
+    public LatencyProxy(InetSocketAddress server, int latency, int jitter, float loss, long seed) throws IOException {
+        this.server = server;
+        this.latency = latency;
+        this.jitter = jitter;
+        this.loss = loss;
+        front = DatagramChannel.open();
+        front.configureBlocking(false);
+        front.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+        routes = new Array<Route>();
+        queue = new Array<Packet>();
+        packetPool = new Pool<Packet>() {
+            @Override
+            protected Packet newObject() {
+                return new Packet();
+            }
+        };
+        buffer = ByteBuffer.allocate(2048);
+        random = new Random(seed);
+    }
+
+    /**
+     * Reads every datagram waiting in either direction, then sends on the
+     * ones due by the given tick.
+     */
+    public void pump(int tick) throws IOException {
+        while (true) {
+            buffer.clear();
+            SocketAddress address = front.receive(buffer);
+            if (address == null) {
+                break;
+            }
+            enqueue(findRoute(address), true, tick);
+        }
+        
+        for (int i = 0; i < routes.size; i++) {
+            Route route = routes.get(i);
+            while (true) {
+                buffer.clear();
+                if (route.upstream.receive(buffer) == null) {
+                    break;
+                }
+                enqueue(route, false, tick);
+            }
+        }
+        
+        for (int i = 0; i < queue.size; i++) {
+            Packet packet = queue.get(i);
+            if (packet.release <= tick) {
+                ByteBuffer data = ByteBuffer.wrap(packet.data, 0, packet.length);
+                if (packet.toServer) {
+                    packet.route.upstream.write(data);
+                } else {
+                    front.send(data, packet.route.client);
+                }
+                delivered++;
+                queue.removeIndex(i--);
+                packetPool.free(packet);
+            }
+        }
+    }
+
+    private Route findRoute(SocketAddress client) throws IOException {
+        for (int i = 0; i < routes.size; i++) {
+            if (routes.get(i).client.equals(client)) {
+                return routes.get(i);
+            }
+        }
+        
+        Route route = new Route(client, server);
+        routes.add(route);
+        return route;
+    }
+
+    private void enqueue(Route route, boolean toServer, int tick) {
+        buffer.flip();
+        if (random.nextFloat() < loss) {
+            dropped++;
+            return;
+        }
+        
+        Packet packet = packetPool.obtain();
+        packet.route = route;
+        packet.toServer = toServer;
+        packet.release = tick + latency + (jitter > 0 ? random.nextInt(jitter + 1) : 0);
+        packet.length = buffer.remaining();
+        buffer.get(packet.data, 0, packet.length);
+        queue.add(packet);
+    }
+
+    public void close() throws IOException {
+        front.close();
+        for (int i = 0; i < routes.size; i++) {
+            routes.get(i).upstream.close();
+        }
+    }
+
+    /**
+     * @return the address clients should connect to.
+     */
+    public InetSocketAddress getAddress() {
+        return (InetSocketAddress) front.socket().getLocalSocketAddress();
+    }
+
+    public long getDelivered() {
+        return delivered;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * A client and the socket its datagrams reach the server from, so the
+     * server sees each client at its own address.
+     */
+    private static class Route {
+        private final SocketAddress client;
+        private final DatagramChannel upstream;
+
+        public Route(SocketAddress client, InetSocketAddress server) throws IOException {
+            this.client = client;
+            upstream = DatagramChannel.open();
+            upstream.configureBlocking(false);
+            upstream.connect(server);
+        }
+    }
+
+    private static class Packet {
+        private final byte[] data = new byte[2048];
+        private Route route;
+        private boolean toServer;
+        private int release;
+        private int length;
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.headless;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessFiles;
+import com.ray3k.remotecrashcars.FrameClock;
+import com.ray3k.remotecrashcars.InputFrame;
+import com.ray3k.remotecrashcars.entities.LevelData;
+import com.ray3k.remotecrashcars.entities.VehicleHull;
+import com.ray3k.remotecrashcars.net.NetProtocol;
+import com.ray3k.remotecrashcars.net.PredictedVehicle;
+import com.ray3k.remotecrashcars.net.RaceClient;
+import com.ray3k.remotecrashcars.net.RaceServer;
+import com.ray3k.remotecrashcars.net.Snapshot;
+import com.ray3k.remotecrashcars.net.SnapshotInterpolator;
+import com.ray3k.remotecrashcars.states.GameState;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Random;
+
+/**
+ * Usage: LatencyRace [clients] [ping] [jitter] [loss] [seconds] [seed] [max error]
+ * <p>
+ * Races clients against a {@link RaceServer} through a {@link LatencyProxy}
+ * with the given round trip time and per datagram jitter in milliseconds
+ * (8 clients, 100 ms, 30 ms, no loss and 30 simulated seconds by default).
+ * Each client predicts its own car with a {@link PredictedVehicle} and places
+ * the others with a {@link SnapshotInterpolator}, driving the same random
+ * inputs as {@link LoopbackRace}.
+ * <p>
+ * Prints how often predictions were rewound and by how much, how far behind
+ * the car would be drawn without prediction, and how jerky remote cars look
+ * interpolated compared to drawn straight from the latest snapshot. Every
+ * number comes from the seed alone, so runs can be compared. Must be run with
+ * core/assets as the working directory.
+ * <p>
+ * Exits with status 1 if a prediction was ever further than max error from
+ * the server's state ({@link PredictedVehicle#SNAP_DISTANCE} by default), so
+ * it can gate a build.
+ */
+public class LatencyRace {
+    public final static int DEFAULT_CLIENTS = 8;
+    public final static int DEFAULT_PING = 100;
+    public final static int DEFAULT_JITTER = 30;
+    public final static int DEFAULT_SECONDS = 30;
+    public final static float DEFAULT_MAX_ERROR = PredictedVehicle.SNAP_DISTANCE;
+    private final static int STEER_TICKS = 25;
+    private final static int CONNECT_RETRY_TICKS = 50;
+
+    public static void main (String[] args) throws IOException {
+        Gdx.files = new HeadlessFiles();
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CLIENTS;
+        int ping = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PING;
+        int jitter = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_JITTER;
+        float loss = args.length > 3 ? Float.parseFloat(args[3]) : 0.0f;
+        int seconds = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_SECONDS;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 0L;
+        float maxError = args.length > 6 ? Float.parseFloat(args[6]) : DEFAULT_MAX_ERROR;
+        
+        GameState.Track track = GameState.Track.CIRCLE;
+        GameState.Model model = GameState.Model.CAR;
+        float error = race(VectorEnvironment.loadLevelData(track), VectorEnvironment.loadHull(model), track, model, count, ping, jitter, loss, seconds, seed);
+        if (error > maxError) {
+            System.out.println("FAIL: largest prediction error " + error + " is over " + maxError);
+            System.exit(1);
+        }
+        System.out.println("PASS: largest prediction error " + error + " is within " + maxError);
+    }
+
+    /**
+     * @return the largest distance between a client's prediction and the
+     * server's state for the same tick, ignoring crashes.
+     */
+    public static float race(LevelData levelData, VehicleHull hull, GameState.Track track, GameState.Model model,
+            int count, int ping, int jitter, float loss, int seconds, long seed) throws IOException {
+        int ticksPerSecond = FrameClock.DEFAULT_TICKS_PER_SECOND;
+        float delta = 1.0f / ticksPerSecond;
+        int latencyTicks = ping * ticksPerSecond / 2000;
+        int jitterTicks = jitter * ticksPerSecond / 1000;
+        
+        RaceServer server = new RaceServer(levelData, hull, track, model, count);
+        server.setTicksPerSecond(ticksPerSecond);
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+        LatencyProxy proxy = new LatencyProxy(server.getAddress(), latencyTicks, jitterTicks, loss, seed);
+        
+        RaceClient[] clients = new RaceClient[count];
+        PredictedVehicle[] predicted = new PredictedVehicle[count];
+        SnapshotInterpolator[] interpolators = new SnapshotInterpolator[count];
+        int[] inputTicks = new int[count];
+        for (int i = 0; i < count; i++) {
+            clients[i] = new RaceClient();
+            predicted[i] = new PredictedVehicle();
+            predicted[i].reset(levelData.getSpawnX(), levelData.getSpawnY(), levelData.getSpawnRotation());
+            interpolators[i] = new SnapshotInterpolator(delta);
+            interpolators[i].setDelay(SnapshotInterpolator.DEFAULT_DELAY + jitterTicks);
+        }
+        
+        Random random = new Random(seed);
+        int[] steering = new int[count];
+        int ticks = seconds * ticksPerSecond;
+        double lagDistance = 0.0;
+        long lagSamples = 0;
+        double rawJerk = 0.0;
+        double smoothJerk = 0.0;
+        long jerkSamples = 0;
+        float[] raw = new float[NetProtocol.MAX_CARS * 4];
+        float[] smooth = new float[NetProtocol.MAX_CARS * 4];
+        int[] history = new int[NetProtocol.MAX_CARS];
+        int[] crashes = new int[NetProtocol.MAX_CARS];
+        
+        for (int tick = 0; tick < ticks; tick++) {
+            for (int i = 0; i < count; i++) {
+                RaceClient client = clients[i];
+                if (!client.isAccepted()) {
+                    if (tick % CONNECT_RETRY_TICKS == i % CONNECT_RETRY_TICKS) {
+                        client.connect(proxy.getAddress());
+                    }
+                    continue;
+                }
+                
+                if (tick % STEER_TICKS == 0) {
+                    steering[i] = random.nextInt(3) == 0 ? 0 : random.nextBoolean() ? InputFrame.LEFT : InputFrame.RIGHT;
+                }
+                int bits = InputFrame.UP | steering[i];
+                client.sendInput(inputTicks[i], bits);
+                predicted[i].predict(inputTicks[i], bits, delta);
+                inputTicks[i]++;
+            }
+            
+            proxy.pump(tick);
+            server.tick(delta);
+            proxy.pump(tick);
+            
+            for (int i = 0; i < count; i++) {
+                RaceClient client = clients[i];
+                boolean wasAccepted = client.isAccepted();
+                boolean updated = client.receive();
+                if (!wasAccepted && client.isAccepted()) {
+                    predicted[i].setTuning(client.getAcceleration(), client.getMaxSpeed(), client.getFriction(), client.getBraking(), client.getSteerAngle());
+                }
+                
+                Snapshot latest = client.getLatest();
+                int offset = client.getCar() * NetProtocol.FIELD_COUNT;
+                if (updated) {
+                    predicted[i].reconcile(latest.getFields(), offset, client.getProcessedInputTick(), delta);
+                    interpolators[i].add(latest);
+                }
+                interpolators[i].advance();
+                
+                if (latest.isPresent(client.getCar())) {
+                    float dx = predicted[i].getX() - NetProtocol.getX(latest.getFields(), offset);
+                    float dy = predicted[i].getY() - NetProtocol.getY(latest.getFields(), offset);
+                    lagDistance += Math.sqrt(dx * dx + dy * dy);
+                    lagSamples++;
+                }
+            }
+            
+            if (clients[0].isAccepted()) {
+                Snapshot latest = clients[0].getLatest();
+                for (int car = 0; car < NetProtocol.MAX_CARS; car++) {
+                    if (car == clients[0].getCar() || !latest.isPresent(car) || !interpolators[0].isPresent(car)) {
+                        history[car] = 0;
+                        continue;
+                    }
+                    int offset = car * NetProtocol.FIELD_COUNT;
+                    if (latest.getFields()[offset + NetProtocol.CRASHES] != crashes[car]) {
+                        crashes[car] = latest.getFields()[offset + NetProtocol.CRASHES];
+                        history[car] = 0;
+                    }
+                    float rawX = NetProtocol.getX(latest.getFields(), offset);
+                    float rawY = NetProtocol.getY(latest.getFields(), offset);
+                    float smoothX = interpolators[0].getX(car);
+                    float smoothY = interpolators[0].getY(car);
+                    if (history[car] >= 2) {
+                        rawJerk += jerk(raw, car, rawX, rawY);
+                        smoothJerk += jerk(smooth, car, smoothX, smoothY);
+                        jerkSamples++;
+                    }
+                    push(raw, car, rawX, rawY);
+                    push(smooth, car, smoothX, smoothY);
+                    history[car]++;
+                }
+            }
+        }
+        
+        int rollbacks = 0;
+        long replayed = 0;
+        int snaps = 0;
+        float maxError = 0.0f;
+        long checksum = 0;
+        for (int i = 0; i < count; i++) {
+            rollbacks += predicted[i].getRollbacks();
+            replayed += predicted[i].getReplayedTicks();
+            snaps += predicted[i].getSnaps();
+            maxError = Math.max(maxError, predicted[i].getMaxError());
+            checksum = checksum * 31 + Float.floatToIntBits(predicted[i].getX()) + Float.floatToIntBits(predicted[i].getY());
+            clients[i].close();
+        }
+        proxy.close();
+        server.close();
+        
+        System.out.println(count + " clients, " + ping + " ms ping, " + jitter + " ms jitter, " + loss * 100.0f + "% loss, seed " + seed);
+        System.out.println("  rollbacks: " + rollbacks + " (" + (float) rollbacks / count / seconds + " per client per second), "
+                + (rollbacks == 0 ? 0.0f : (float) replayed / rollbacks) + " ticks replayed each, " + snaps + " snapped, largest error " + maxError);
+        System.out.println("  own car drawn " + (float) (lagDistance / Math.max(lagSamples, 1)) + " ahead of the latest snapshot on average");
+        System.out.println("  remote car jerk per tick: " + (float) (rawJerk / Math.max(jerkSamples, 1)) + " from snapshots, "
+                + (float) (smoothJerk / Math.max(jerkSamples, 1)) + " interpolated");
+        System.out.println("  " + proxy.getDelivered() + " datagrams delivered, " + proxy.getDropped() + " dropped, checksum " + Long.toHexString(checksum));
+        return maxError;
+    }
+
+    private static void push(float[] positions, int car, float x, float y) {
+        int index = car * 4;
+        positions[index + 2] = positions[index];
+        positions[index + 3] = positions[index + 1];
+        positions[index] = x;
+        positions[index + 1] = y;
+    }
+
+    /**
+     * @return the size of the second difference of three positions in a
+     * row, which is zero for steady motion.
+     */
+    private static float jerk(float[] positions, int car, float x, float y) {
+        int index = car * 4;
+        float dx = x - 2.0f * positions[index] + positions[index + 2];
+        float dy = y - 2.0f * positions[index + 1] + positions[index + 3];
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.headless;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessFiles;
+import com.ray3k.remotecrashcars.FrameClock;
+import com.ray3k.remotecrashcars.InputFrame;
+import com.ray3k.remotecrashcars.entities.LevelData;
+import com.ray3k.remotecrashcars.entities.VehicleHull;
+import com.ray3k.remotecrashcars.net.RaceClient;
+import com.ray3k.remotecrashcars.net.RaceServer;
+import com.ray3k.remotecrashcars.states.GameState;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Random;
+
+/**
+ * Usage: LoopbackRace [clients] [seconds] [track] [model]
+ * <p>
+ * Load tests {@link RaceServer} over the loopback interface. Races 1, 2, 4
+ * and so on up to the given number of clients (64 by default), each for the
+ * given number of simulated seconds (30 by default), with every client
+ * holding the throttle and steering at random. Ticks run as fast as
+ * possible. Prints the bytes per second each client receives and sends,
+ * which should stay flat as the field grows, and the server's time per tick.
+ * Must be run with core/assets as the working directory.
+ */
+public class LoopbackRace {
+    public final static int DEFAULT_CLIENTS = 64;
+    public final static int DEFAULT_SECONDS = 30;
+    private final static int STEER_TICKS = 25;
+
+    public static void main (String[] args) throws IOException {
+        Gdx.files = new HeadlessFiles();
+        int maxClients = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CLIENTS;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+        GameState.Track track = args.length > 2 ? GameState.Track.valueOf(args[2].toUpperCase()) : GameState.Track.CIRCLE;
+        GameState.Model model = args.length > 3 ? GameState.Model.valueOf(args[3].toUpperCase()) : GameState.Model.CAR;
+        
+        LevelData levelData = VectorEnvironment.loadLevelData(track);
+        VehicleHull hull = VectorEnvironment.loadHull(model);
+        
+        System.out.println("clients,down_bytes_per_client_per_second,up_bytes_per_client_per_second,server_microseconds_per_tick,dropped_snapshots");
+        for (int clients = 1; clients <= maxClients; clients *= 2) {
+            race(levelData, hull, track, model, clients, seconds);
+            if (clients < maxClients && clients * 2 > maxClients) {
+                race(levelData, hull, track, model, maxClients, seconds);
+            }
+        }
+    }
+
+    private static void race(LevelData levelData, VehicleHull hull, GameState.Track track, GameState.Model model, int count, int seconds) throws IOException {
+        RaceServer server = new RaceServer(levelData, hull, track, model, count);
+        server.setTicksPerSecond(FrameClock.DEFAULT_TICKS_PER_SECOND);
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+        float delta = 1.0f / server.getTicksPerSecond();
+        
+        RaceClient[] clients = new RaceClient[count];
+        for (int i = 0; i < count; i++) {
+            clients[i] = new RaceClient();
+            clients[i].connect(server.getAddress());
+            server.tick(delta);
+            clients[i].receive();
+        }
+        
+        Random random = new Random(count);
+        int[] steering = new int[count];
+        int ticks = seconds * server.getTicksPerSecond();
+        long serverTime = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            for (int i = 0; i < count; i++) {
+                if (tick % STEER_TICKS == 0) {
+                    steering[i] = random.nextInt(3) == 0 ? 0 : random.nextBoolean() ? InputFrame.LEFT : InputFrame.RIGHT;
+                }
+                clients[i].sendInput(tick, InputFrame.UP | steering[i]);
+            }
+            
+            long time = System.nanoTime();
+            server.tick(delta);
+            serverTime += System.nanoTime() - time;
+            
+            for (int i = 0; i < count; i++) {
+                clients[i].receive();
+            }
+        }
+        
+        long down = 0;
+        long up = 0;
+        int dropped = 0;
+        for (int i = 0; i < count; i++) {
+            down += clients[i].getBytesReceived();
+            up += clients[i].getBytesSent();
+            dropped += clients[i].getSnapshotsDropped();
+            clients[i].close();
+        }
+        server.close();
+        
+        System.out.println(count + "," + down / count / seconds + "," + up / count / seconds + ","
+                + serverTime / 1000L / ticks + "," + dropped);
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.headless;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessFiles;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Polygon;
+import com.badlogic.gdx.utils.Array;
+import com.ray3k.remotecrashcars.Core;
+import com.ray3k.remotecrashcars.FrameClock;
+import com.ray3k.remotecrashcars.InputFrame;
+import com.ray3k.remotecrashcars.InputLog;
+import com.ray3k.remotecrashcars.entities.LevelData;
+import com.ray3k.remotecrashcars.entities.RacingDriver;
+import com.ray3k.remotecrashcars.entities.RacingLine;
+import com.ray3k.remotecrashcars.entities.VehicleHull;
+import com.ray3k.remotecrashcars.entities.VehicleInput;
+import com.ray3k.remotecrashcars.entities.VehicleSimulator;
+import com.ray3k.remotecrashcars.states.GameState;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Usage: ParameterSweep [--grid n | --samples n] [--seed n] [--ticks n]
+ * [--threads n] [--output file] [--replay file]
+ * <p>
+ * Races every track and model with many sets of handling values and writes
+ * one CSV row per race: lap times, crashes and simulation speed. The values
+ * come from a grid of n evenly spaced values per parameter (3 by default) or
+ * from n random samples. Each race is driven around the racing line by a
+ * {@link RacingDriver} for the given number of ticks, respawning on the line
+ * after every crash, or with --replay plays a recorded input log on its own
+ * track and model until it ends or crashes. Races run in parallel on every
+ * core. Must be run with core/assets as the working directory.
+ */
+public class ParameterSweep {
+    public final static String[] PARAMETERS = {"acceleration", "max_speed", "friction", "braking", "steer_angle"};
+    public final static float[] MINIMUMS = {250.0f, 250.0f, 0.0f, 100.0f, 10.0f};
+    public final static float[] MAXIMUMS = {1000.0f, 1000.0f, 400.0f, 750.0f, 45.0f};
+    public final static int DEFAULT_GRID_SIZE = 3;
+    public final static long DEFAULT_TICKS = 30000L;
+    
+    public static void main (String[] args) throws IOException, InterruptedException, ExecutionException {
+        Gdx.files = new HeadlessFiles();
+        List<String> arguments = Arrays.asList(args);
+        
+        InputLog replay = null;
+        if (arguments.contains("--replay")) {
+            replay = InputLog.read(new FileHandle(new File(getOption(arguments, "--replay", null))));
+        }
+        long maxTicks = Long.parseLong(getOption(arguments, "--ticks", Long.toString(DEFAULT_TICKS)));
+        int threads = Integer.parseInt(getOption(arguments, "--threads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+        
+        Array<float[]> parameterSets;
+        if (arguments.contains("--samples")) {
+            long seed = Long.parseLong(getOption(arguments, "--seed", "0"));
+            parameterSets = sample(Integer.parseInt(getOption(arguments, "--samples", null)), new Random(seed));
+        } else {
+            parameterSets = grid(Integer.parseInt(getOption(arguments, "--grid", Integer.toString(DEFAULT_GRID_SIZE))));
+        }
+        
+        FileHandle output = arguments.contains("--output") ? new FileHandle(new File(getOption(arguments, "--output", null)))
+                : Gdx.files.local(Core.DATA_PATH + "/sweeps/sweep-" + System.currentTimeMillis() + ".csv");
+        
+        GameState.Track[] tracks = replay == null ? GameState.Track.values() : new GameState.Track[] {GameState.Track.valueOf(replay.getTrack())};
+        GameState.Model[] models = replay == null ? GameState.Model.values() : new GameState.Model[] {GameState.Model.valueOf(replay.getModel())};
+        
+        long time = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Trial>> trials = new ArrayList<Future<Trial>>();
+        for (GameState.Track track : tracks) {
+            LevelData levelData = VectorEnvironment.loadLevelData(track);
+            RacingLine racingLine = replay == null ? RacingLine.load(levelData, track.getSkeletonPath()) : null;
+            
+            for (GameState.Model model : models) {
+                VehicleHull hull = VectorEnvironment.loadHull(model);
+                for (float[] parameters : parameterSets) {
+                    trials.add(executor.submit(new Trial(track, model, levelData, hull, racingLine, replay, parameters, maxTicks)));
+                }
+            }
+        }
+        
+        long totalTicks = 0;
+        Writer writer = output.writer(false, "UTF-8");
+        try {
+            writer.write("track,model,driver");
+            for (String parameter : PARAMETERS) {
+                writer.write("," + parameter);
+            }
+            writer.write(",ticks,laps,best_lap,mean_lap,crashes,crashes_per_minute,ticks_per_second\n");
+            
+            for (Future<Trial> future : trials) {
+                Trial trial = future.get();
+                writer.write(trial.toCsv());
+                writer.write("\n");
+                totalTicks += trial.ticks;
+            }
+        } finally {
+            writer.close();
+            executor.shutdown();
+        }
+        time = System.nanoTime() - time;
+        
+        System.out.println(trials.size() + " races, " + totalTicks + " ticks, " + time / 1000000L + " ms, "
+                + (long) (totalTicks / (time / 1000000000.0)) + " ticks per second on " + threads + " threads -> " + output.path());
+    }
+    
+    private static String getOption(List<String> arguments, String name, String defaultValue) {
+        int index = arguments.indexOf(name);
+        if (index >= 0 && index + 1 < arguments.size()) {
+            return arguments.get(index + 1);
+        } else if (defaultValue == null) {
+            throw new IllegalArgumentException("Missing value for " + name);
+        }
+        return defaultValue;
+    }
+    
+    /**
+     * @return every combination of size evenly spaced values between the
+     * minimum and maximum of each parameter.
+     */
+    public static Array<float[]> grid(int size) {
+        Array<float[]> parameterSets = new Array<float[]>();
+        int[] indices = new int[PARAMETERS.length];
+        while (true) {
+            float[] parameters = new float[PARAMETERS.length];
+            for (int i = 0; i < PARAMETERS.length; i++) {
+                float fraction = size > 1 ? indices[i] / (float) (size - 1) : .5f;
+                parameters[i] = MINIMUMS[i] + (MAXIMUMS[i] - MINIMUMS[i]) * fraction;
+            }
+            parameterSets.add(parameters);
+            
+            int i = 0;
+            while (i < indices.length && ++indices[i] == size) {
+                indices[i] = 0;
+                i++;
+            }
+            if (i == indices.length) {
+                return parameterSets;
+            }
+        }
+    }
+    
+    /**
+     * @return count sets of values drawn uniformly between the minimum and
+     * maximum of each parameter.
+     */
+    public static Array<float[]> sample(int count, Random random) {
+        Array<float[]> parameterSets = new Array<float[]>();
+        for (int j = 0; j < count; j++) {
+            float[] parameters = new float[PARAMETERS.length];
+            for (int i = 0; i < PARAMETERS.length; i++) {
+                parameters[i] = MINIMUMS[i] + (MAXIMUMS[i] - MINIMUMS[i]) * random.nextFloat();
+            }
+            parameterSets.add(parameters);
+        }
+        return parameterSets;
+    }
+    
+    /**
+     * One race with one set of handling values, run on a worker thread. The
+     * track, hull, racing line points and input log are shared read only.
+     */
+    private static class Trial implements Callable<Trial> {
+        private final GameState.Track track;
+        private final GameState.Model model;
+        private final LevelData levelData;
+        private final VehicleHull hull;
+        private final RacingLine racingLine;
+        private final InputLog replay;
+        private final float[] parameters;
+        private final long maxTicks;
+        private float stepTime;
+        private long ticks;
+        private int laps;
+        private long bestLapTicks;
+        private long totalLapTicks;
+        private int crashes;
+        private long time;
+
+        public Trial(GameState.Track track, GameState.Model model, LevelData levelData, VehicleHull hull, RacingLine racingLine, InputLog replay, float[] parameters, long maxTicks) {
+            this.track = track;
+            this.model = model;
+            this.levelData = levelData;
+            this.hull = hull;
+            this.racingLine = racingLine;
+            this.replay = replay;
+            this.parameters = parameters;
+            this.maxTicks = maxTicks;
+        }
+
+        @Override
+        public Trial call() {
+            VehicleSimulator simulator = new VehicleSimulator();
+            simulator.setTuning(parameters[0], parameters[1], parameters[2], parameters[3], parameters[4]);
+            VehicleInput input = new VehicleInput();
+            Array<Polygon> polygons = hull.createPolygons();
+            
+            RacingDriver driver = null;
+            InputLog.Playback playback = null;
+            InputFrame frame = null;
+            if (replay == null) {
+                stepTime = 1.0f / FrameClock.DEFAULT_TICKS_PER_SECOND;
+                RacingLine line = new RacingLine(racingLine.getPoints());
+                line.setSpeedProfile(parameters[1], parameters[3], RacingLine.DEFAULT_LATERAL_ACCELERATION);
+                driver = new RacingDriver(simulator, line);
+                driver.reset(0.0f);
+            } else {
+                stepTime = 1.0f / replay.getTicksPerSecond();
+                simulator.setLatency(MathUtils.round(replay.getInputLatency() * replay.getTicksPerSecond()));
+                playback = replay.createPlayback();
+                frame = new InputFrame();
+                simulator.reset(levelData.getSpawnX(), levelData.getSpawnY(), levelData.getSpawnRotation());
+            }
+            
+            int nextCheckpoint = levelData.getCheckpointCount() > 1 ? 1 : 0;
+            long lapTicks = 0;
+            long start = System.nanoTime();
+            while (ticks < maxTicks) {
+                if (driver != null) {
+                    driver.drive(input, stepTime);
+                } else if (playback.isFinished()) {
+                    break;
+                } else {
+                    playback.next(frame);
+                    input.set(frame.isPressed(InputFrame.UP), frame.isPressed(InputFrame.DOWN), frame.isPressed(InputFrame.LEFT), frame.isPressed(InputFrame.RIGHT));
+                }
+                
+                float previousX = simulator.getX();
+                float previousY = simulator.getY();
+                simulator.step(input, stepTime);
+                ticks++;
+                lapTicks++;
+                
+                if (overlapsWall(simulator, polygons)) {
+                    crashes++;
+                    if (driver == null) {
+                        break;
+                    }
+                    driver.reset(driver.getDistance());
+                    continue;
+                }
+                
+                if (levelData.crossesCheckpoint(nextCheckpoint, previousX, previousY, simulator.getX(), simulator.getY())) {
+                    if (nextCheckpoint == 0) {
+                        laps++;
+                        totalLapTicks += lapTicks;
+                        if (bestLapTicks == 0 || lapTicks < bestLapTicks) {
+                            bestLapTicks = lapTicks;
+                        }
+                        lapTicks = 0;
+                    }
+                    nextCheckpoint = (nextCheckpoint + 1) % levelData.getCheckpointCount();
+                }
+            }
+            time = System.nanoTime() - start;
+            return this;
+        }
+        
+        private boolean overlapsWall(VehicleSimulator simulator, Array<Polygon> polygons) {
+            float x = simulator.getX();
+            float y = simulator.getY();
+            if (levelData.isClear(x + hull.getPivotX(), y + hull.getPivotY(), hull.getRadius())) {
+                return false;
+            }
+            
+            hull.transform(polygons, x, y, simulator.getBodyRotation());
+            for (int i = 0; i < polygons.size; i++) {
+                if (levelData.overlapsWall(polygons.get(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        public String toCsv() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(track).append(',').append(model).append(',').append(replay == null ? "racing-line" : "replay");
+            for (float parameter : parameters) {
+                builder.append(',').append(parameter);
+            }
+            float minutes = ticks * stepTime / 60.0f;
+            builder.append(',').append(ticks);
+            builder.append(',').append(laps);
+            builder.append(',').append(laps > 0 ? Float.toString(bestLapTicks * stepTime) : "");
+            builder.append(',').append(laps > 0 ? Float.toString(totalLapTicks * stepTime / laps) : "");
+            builder.append(',').append(crashes);
+            builder.append(',').append(minutes > 0 ? crashes / minutes : 0.0f);
+            builder.append(',').append(time > 0 ? (long) (ticks / (time / 1000000000.0)) : 0L);
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.headless;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.ray3k.remotecrashcars.FrameClock;
+import com.ray3k.remotecrashcars.InputFrame;
+import com.ray3k.remotecrashcars.entities.LevelData;
+import com.ray3k.remotecrashcars.entities.VehicleHull;
+import com.ray3k.remotecrashcars.net.RaceClient;
+import com.ray3k.remotecrashcars.net.RaceServer;
+import com.ray3k.remotecrashcars.net.RoomScheduler;
+import com.ray3k.remotecrashcars.states.GameState;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Usage: RoomServer [rooms] [--port n] [--clients n] [--threads n]
+ * [--bots n]
+ * <p>
+ * Hosts many race rooms in one process with a {@link RoomScheduler}, cycling
+ * through every track and vehicle model (100 rooms by default). Room i
+ * listens on the given port plus i, 7777 by default, or on any free port
+ * with --port 0. Each track and model is loaded once and shared by all its
+ * rooms. --bots joins the given number of loopback clients to every room,
+ * driving at random, to load test a node.
+ * <p>
+ * Every ten seconds prints the mean and worst tick times, ticks that started
+ * late and how busy the workers were. Must be run with core/assets as the
+ * working directory.
+ */
+public class RoomServer extends ApplicationAdapter {
+    public final static int DEFAULT_ROOMS = 100;
+    public final static int DEFAULT_MAX_CLIENTS = 16;
+    public final static float REPORT_INTERVAL = 10.0f;
+    private final static int STEER_TICKS = 25;
+    private final int roomCount;
+    private final int port;
+    private final int maxClients;
+    private final int threads;
+    private final int botsPerRoom;
+    private RoomScheduler scheduler;
+    private FrameClock clock;
+    private Array<RaceClient> bots;
+    private int[] botSteering;
+    private Random random;
+    private int botTick;
+    private float reportTimer;
+    private long reportTicks;
+    private long reportTickTime;
+    private long reportLateTicks;
+    private long reportBytes;
+
+    public RoomServer(int roomCount, int port, int maxClients, int threads, int botsPerRoom) {
+        this.roomCount = roomCount;
+        this.port = port;
+        this.maxClients = maxClients;
+        this.threads = threads;
+        this.botsPerRoom = botsPerRoom;
+    }
+
+    public static void main (String[] args) {
+        List<String> arguments = Arrays.asList(args);
+        int rooms = args.length > 0 && !args[0].startsWith("--") ? Integer.parseInt(args[0]) : DEFAULT_ROOMS;
+        int port = Integer.parseInt(getOption(arguments, "--port", Integer.toString(ServerLauncher.DEFAULT_PORT)));
+        int maxClients = Integer.parseInt(getOption(arguments, "--clients", Integer.toString(DEFAULT_MAX_CLIENTS)));
+        int threads = Integer.parseInt(getOption(arguments, "--threads", "0"));
+        int bots = Integer.parseInt(getOption(arguments, "--bots", "0"));
+        
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        config.renderInterval = 1.0f / 1000.0f;
+        new HeadlessApplication(new RoomServer(rooms, port, maxClients, threads, bots), config);
+    }
+
+    private static String getOption(List<String> arguments, String name, String defaultValue) {
+        int index = arguments.indexOf(name);
+        return index >= 0 && index + 1 < arguments.size() ? arguments.get(index + 1) : defaultValue;
+    }
+
+    @Override
+    public void create() {
+        clock = new FrameClock();
+        GameState.Track[] tracks = GameState.Track.values();
+        GameState.Model[] models = GameState.Model.values();
+        LevelData[] levelData = new LevelData[tracks.length];
+        for (int i = 0; i < tracks.length; i++) {
+            levelData[i] = VectorEnvironment.loadLevelData(tracks[i]);
+        }
+        VehicleHull[] hulls = new VehicleHull[models.length];
+        for (int i = 0; i < models.length; i++) {
+            hulls[i] = VectorEnvironment.loadHull(models[i]);
+        }
+        
+        scheduler = new RoomScheduler(threads, clock.getTicksPerSecond());
+        bots = new Array<RaceClient>();
+        random = new Random(0);
+        try {
+            for (int i = 0; i < roomCount; i++) {
+                int track = i % tracks.length;
+                int model = i / tracks.length % models.length;
+                RaceServer server = new RaceServer(levelData[track], hulls[model], tracks[track], models[model], maxClients);
+                server.bind(new InetSocketAddress(port == 0 ? 0 : port + i));
+                scheduler.add(server);
+                
+                for (int j = 0; j < botsPerRoom; j++) {
+                    RaceClient bot = new RaceClient();
+                    bot.connect(new InetSocketAddress("127.0.0.1", server.getAddress().getPort()));
+                    bots.add(bot);
+                }
+            }
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Unable to open rooms", e);
+        }
+        botSteering = new int[bots.size];
+        
+        Runtime runtime = Runtime.getRuntime();
+        Gdx.app.log(RoomServer.class.getSimpleName(), roomCount + " rooms on " + scheduler.getThreads() + " threads, "
+                + bots.size + " bots, " + (runtime.totalMemory() - runtime.freeMemory()) / 1048576L + " MB used");
+        clock.reset();
+    }
+
+    @Override
+    public void render() {
+        int ticks = clock.update();
+        try {
+            for (int i = 0; i < ticks; i++) {
+                driveBots();
+            }
+        } catch (IOException e) {
+            Gdx.app.error(RoomServer.class.getSimpleName(), "Bot network error", e);
+        }
+        
+        reportTimer += ticks * clock.getStepTime();
+        if (reportTimer >= REPORT_INTERVAL) {
+            report();
+            reportTimer = 0.0f;
+        }
+    }
+
+    private void driveBots() throws IOException {
+        for (int i = 0; i < bots.size; i++) {
+            RaceClient bot = bots.get(i);
+            bot.receive();
+            if (bot.isAccepted()) {
+                if (botTick % STEER_TICKS == 0) {
+                    botSteering[i] = random.nextInt(3) == 0 ? 0 : random.nextBoolean() ? InputFrame.LEFT : InputFrame.RIGHT;
+                }
+                bot.sendInput(botTick, InputFrame.UP | botSteering[i]);
+            }
+        }
+        botTick++;
+    }
+
+    private void report() {
+        long ticks = 0;
+        long tickTime = 0;
+        long lateTicks = 0;
+        long maxTickTime = 0;
+        long bytes = 0;
+        int clients = 0;
+        double slowestRoom = 0.0;
+        Array<RoomScheduler.Room> rooms = scheduler.getRooms();
+        for (int i = 0; i < rooms.size; i++) {
+            RoomScheduler.Room room = rooms.get(i);
+            ticks += room.getTicks();
+            tickTime += room.getTotalTickTime();
+            lateTicks += room.getLateTicks();
+            maxTickTime = Math.max(maxTickTime, room.getMaxTickTime());
+            bytes += room.getBytesSent();
+            clients += room.getClientCount();
+            slowestRoom = Math.max(slowestRoom, (double) room.getTotalTickTime() / Math.max(room.getTicks(), 1));
+            if (room.getError() != null) {
+                Gdx.app.error(RoomServer.class.getSimpleName(), "Room " + room.getId() + " failed to tick", room.getError());
+            }
+        }
+        
+        long windowTicks = ticks - reportTicks;
+        long windowTime = tickTime - reportTickTime;
+        Gdx.app.log(RoomServer.class.getSimpleName(), rooms.size + " rooms, " + clients + " clients, "
+                + windowTime / 1000L / Math.max(windowTicks, 1) + " us per tick, slowest room " + (long) (slowestRoom / 1000.0)
+                + " us, longest tick " + maxTickTime / 1000L + " us, " + (lateTicks - reportLateTicks) + " late ticks, "
+                + (int) (100.0 * windowTime / (reportTimer * 1000000000.0 * scheduler.getThreads())) + "% busy, "
+                + (long) ((bytes - reportBytes) / reportTimer) + " bytes per second out");
+        reportTicks = ticks;
+        reportTickTime = tickTime;
+        reportLateTicks = lateTicks;
+        reportBytes = bytes;
+    }
+
+    @Override
+    public void dispose() {
+        try {
+            for (int i = 0; i < bots.size; i++) {
+                bots.get(i).close();
+            }
+            scheduler.dispose();
+        } catch (IOException e) {
+            Gdx.app.error(RoomServer.class.getSimpleName(), "Unable to close rooms", e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.headless;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.ray3k.remotecrashcars.FrameClock;
+import com.ray3k.remotecrashcars.net.RaceServer;
+import com.ray3k.remotecrashcars.states.GameState;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Usage: ServerLauncher [track] [model] [port] [--clients n]
+ * <p>
+ * Hosts an authoritative {@link RaceServer} for one track and vehicle model,
+ * ticking at the game's fixed rate. Defaults to the circle track, the car,
+ * port 7777 and up to 32 clients. Prints the client count and bandwidth
+ * every ten seconds. Must be run with core/assets as the working directory.
+ */
+public class ServerLauncher extends ApplicationAdapter {
+    public final static int DEFAULT_PORT = 7777;
+    public final static int DEFAULT_MAX_CLIENTS = 32;
+    public final static float REPORT_INTERVAL = 10.0f;
+    private final GameState.Track track;
+    private final GameState.Model model;
+    private final int port;
+    private final int maxClients;
+    private RaceServer server;
+    private FrameClock clock;
+    private float reportTimer;
+    private long reportBytes;
+
+    public ServerLauncher(GameState.Track track, GameState.Model model, int port, int maxClients) {
+        this.track = track;
+        this.model = model;
+        this.port = port;
+        this.maxClients = maxClients;
+    }
+
+    public static void main (String[] args) {
+        GameState.Track track = args.length > 0 ? GameState.Track.valueOf(args[0].toUpperCase()) : GameState.Track.CIRCLE;
+        GameState.Model model = args.length > 1 ? GameState.Model.valueOf(args[1].toUpperCase()) : GameState.Model.CAR;
+        int port = args.length > 2 && !args[2].startsWith("--") ? Integer.parseInt(args[2]) : DEFAULT_PORT;
+        int maxClients = DEFAULT_MAX_CLIENTS;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--clients")) {
+                maxClients = Integer.parseInt(args[i + 1]);
+            }
+        }
+        
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        config.renderInterval = 1.0f / 1000.0f;
+        new HeadlessApplication(new ServerLauncher(track, model, port, maxClients), config);
+    }
+
+    @Override
+    public void create() {
+        clock = new FrameClock();
+        server = new RaceServer(VectorEnvironment.loadLevelData(track), VectorEnvironment.loadHull(model), track, model, maxClients);
+        server.setTicksPerSecond(clock.getTicksPerSecond());
+        try {
+            server.bind(new InetSocketAddress(port));
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Unable to bind port " + port, e);
+        }
+        Gdx.app.log(ServerLauncher.class.getSimpleName(), "Hosting " + track + " with " + model + " on " + server.getAddress());
+        clock.reset();
+    }
+
+    @Override
+    public void render() {
+        int ticks = clock.update();
+        try {
+            for (int i = 0; i < ticks; i++) {
+                server.tick(clock.getStepTime());
+            }
+        } catch (IOException e) {
+            Gdx.app.error(ServerLauncher.class.getSimpleName(), "Network error", e);
+        }
+        
+        reportTimer += ticks * clock.getStepTime();
+        if (reportTimer >= REPORT_INTERVAL) {
+            long bytes = server.getBytesSent() - reportBytes;
+            Gdx.app.log(ServerLauncher.class.getSimpleName(), server.getClientCount() + " clients, "
+                    + (long) (bytes / reportTimer) + " bytes per second out, " + clock.getDroppedTicks() + " ticks dropped");
+            reportBytes = server.getBytesSent();
+            reportTimer = 0.0f;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        try {
+            server.close();
+        } catch (IOException e) {
+            Gdx.app.error(ServerLauncher.class.getSimpleName(), "Unable to close server", e);
+        }
+    }
+}
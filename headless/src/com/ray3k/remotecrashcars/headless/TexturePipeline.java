@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.headless;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessFiles;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.ray3k.remotecrashcars.AtlasConverter;
+import com.ray3k.remotecrashcars.Core;
+import com.ray3k.remotecrashcars.TextureFormat;
+import com.ray3k.remotecrashcars.TiledBackground;
+import com.ray3k.remotecrashcars.states.GameState;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Usage: TexturePipeline [--formats png,rgb565,etc1] [--ui format|none]
+ * <p>
+ * Cuts every track background into tiles in each of the given
+ * {@link TextureFormat formats}, all of them by default, and converts the UI
+ * atlas to RGBA4444 unless told otherwise. The game then loads the smallest
+ * format in video memory the GL supports. Prints the file size, video memory,
+ * peak signal to noise ratio against the original and CPU load time of every
+ * image in every format. Must be run with core/assets as the working
+ * directory.
+ */
+public class TexturePipeline {
+    public final static String UI_ATLAS = Core.DATA_PATH + "/ui/remote-crash-cars.atlas";
+
+    public static void main (String[] args) throws IOException {
+        GdxNativesLoader.load();
+        Gdx.files = new HeadlessFiles();
+        List<String> arguments = Arrays.asList(args);
+        
+        TextureFormat[] formats = {TextureFormat.PNG, TextureFormat.RGB565, TextureFormat.ETC1};
+        int index = arguments.indexOf("--formats");
+        if (index >= 0 && index + 1 < args.length) {
+            String[] names = args[index + 1].split(",");
+            formats = new TextureFormat[names.length];
+            for (int i = 0; i < names.length; i++) {
+                formats[i] = TextureFormat.valueOf(names[i].trim().toUpperCase());
+            }
+        }
+        index = arguments.indexOf("--ui");
+        String ui = index >= 0 && index + 1 < args.length ? args[index + 1] : TextureFormat.RGBA4444.name();
+        
+        System.out.println("image,format,file_kb,video_kb,psnr_db,load_ms");
+        for (GameState.Track track : GameState.Track.values()) {
+            FileHandle source = Gdx.files.local(track.getTexturePath());
+            FileHandle tileIndex = TiledBackground.getIndexFile(track.getTexturePath());
+            TiledBackground.bake(source, tileIndex, TiledBackground.DEFAULT_TILE_SIZE, formats);
+            
+            for (TextureFormat format : formats) {
+                FileHandle directory = tileIndex.sibling(tileIndex.nameWithoutExtension()).child(format.name().toLowerCase());
+                report(source, directory.list(), format);
+            }
+        }
+        
+        if (!ui.equalsIgnoreCase("none")) {
+            TextureFormat format = TextureFormat.valueOf(ui.toUpperCase());
+            FileHandle atlas = Gdx.files.local(UI_ATLAS);
+            FileHandle converted = AtlasConverter.getAtlasFile(UI_ATLAS);
+            AtlasConverter.convert(atlas, converted, format);
+            report(atlas.sibling(atlas.nameWithoutExtension() + ".png"), new FileHandle[] {converted.sibling(converted.nameWithoutExtension() + "." + format.getExtension())}, format);
+        }
+    }
+
+    /**
+     * Prints one table row for an image converted to a format, possibly as
+     * several tiles. Tiles are compared with the source by their position in
+     * their file name, or at the origin if there is only one.
+     */
+    private static void report(FileHandle source, FileHandle[] files, TextureFormat format) {
+        Pixmap original = new Pixmap(source);
+        long bytes = 0;
+        long pixels = 0;
+        long time = 0;
+        double squaredError = 0.0;
+        int tileSize = TiledBackground.DEFAULT_TILE_SIZE;
+        try {
+            for (FileHandle file : files) {
+                bytes += file.length();
+                long start = System.nanoTime();
+                Pixmap image = format.read(file);
+                time += System.nanoTime() - start;
+                
+                int offsetX = 0;
+                int offsetY = 0;
+                if (files.length > 1) {
+                    String[] cell = file.nameWithoutExtension().split("-");
+                    offsetX = Integer.parseInt(cell[0]) * tileSize;
+                    offsetY = original.getHeight() - Integer.parseInt(cell[1]) * tileSize - image.getHeight();
+                }
+                
+                for (int y = 0; y < image.getHeight(); y++) {
+                    for (int x = 0; x < image.getWidth(); x++) {
+                        int a = original.getPixel(offsetX + x, offsetY + y);
+                        int b = image.getPixel(x, y);
+                        for (int shift = format.hasAlpha() ? 0 : 8; shift < 32; shift += 8) {
+                            int difference = (a >>> shift & 0xFF) - (b >>> shift & 0xFF);
+                            squaredError += difference * difference;
+                        }
+                    }
+                }
+                pixels += image.getWidth() * image.getHeight();
+                image.dispose();
+            }
+        } finally {
+            original.dispose();
+        }
+        
+        int channels = format.hasAlpha() ? 4 : 3;
+        double meanSquaredError = squaredError / (pixels * channels);
+        String psnr = meanSquaredError == 0.0 ? "lossless" : String.format("%.1f", 10.0 * Math.log10(255.0 * 255.0 / meanSquaredError));
+        System.out.println(source.name() + "," + format + "," + bytes / 1024L + "," + pixels * format.getBitsPerPixel() / 8L / 1024L + ","
+                + psnr + "," + time / 1000000L);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.headless;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessFiles;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.ray3k.remotecrashcars.TiledBackground;
+import com.ray3k.remotecrashcars.entities.DistanceField;
+import com.ray3k.remotecrashcars.entities.LevelData;
+import com.ray3k.remotecrashcars.entities.RacingLine;
+import com.ray3k.remotecrashcars.entities.TrackCache;
+import com.ray3k.remotecrashcars.states.GameState;
+import java.io.IOException;
+
+/**
+ * Usage: TrackBaker
+ * <p>
+ * Writes the binary collision cache, distance field, racing line and
+ * background tiles of every track so the game never has to build them on
+ * first run. Must be run with
+ * core/assets as the working directory.
+ */
+public class TrackBaker {
+    public static void main (String[] args) throws IOException {
+        GdxNativesLoader.load();
+        Gdx.files = new HeadlessFiles();
+        
+        for (GameState.Track track : GameState.Track.values()) {
+            FileHandle source = Gdx.files.internal(track.getSkeletonPath());
+            FileHandle cache = LevelData.getCacheFile(track.getSkeletonPath());
+            
+            long time = System.nanoTime();
+            LevelData levelData = new LevelData(HeadlessSkeletonDataLoader.readSkeletonData(source, 1.0f));
+            TrackCache.write(levelData, cache, source);
+            time = System.nanoTime() - time;
+            
+            System.out.println(track + ": " + levelData.getTree().getTriangleCount() + " triangles, "
+                    + levelData.getTree().getNodeCount() + " nodes, " + cache.length() + " bytes, " + time / 1000000L + " ms -> " + cache.path());
+            
+            FileHandle fieldCache = LevelData.getDistanceFieldFile(track.getSkeletonPath());
+            time = System.nanoTime();
+            DistanceField distanceField = DistanceField.bake(levelData.getTree(), LevelData.WORLD_SIZE, DistanceField.DEFAULT_CELL_SIZE);
+            distanceField.write(fieldCache, source);
+            time = System.nanoTime() - time;
+            
+            System.out.println(track + ": " + distanceField.getWidth() + "x" + distanceField.getHeight() + " distance field, "
+                    + fieldCache.length() + " bytes, " + time / 1000000L + " ms -> " + fieldCache.path());
+            
+            FileHandle lineCache = RacingLine.getCacheFile(track.getSkeletonPath());
+            levelData.setDistanceField(distanceField);
+            time = System.nanoTime();
+            RacingLine racingLine = RacingLine.trace(levelData);
+            racingLine.write(lineCache, source);
+            time = System.nanoTime() - time;
+            
+            System.out.println(track + ": " + racingLine.getPointCount() + " point racing line, " + (int) racingLine.getLength() + " long, "
+                    + lineCache.length() + " bytes, " + time / 1000000L + " ms -> " + lineCache.path());
+            
+            FileHandle tileIndex = TiledBackground.getIndexFile(track.getTexturePath());
+            time = System.nanoTime();
+            TiledBackground.bake(Gdx.files.local(track.getTexturePath()), tileIndex, TiledBackground.DEFAULT_TILE_SIZE, TiledBackground.DEFAULT_FORMATS);
+            time = System.nanoTime() - time;
+            
+            System.out.println(track + ": " + TiledBackground.DEFAULT_TILE_SIZE + " pixel background tiles, " + time / 1000000L + " ms -> " + tileIndex.path());
+        }
+    }
+}
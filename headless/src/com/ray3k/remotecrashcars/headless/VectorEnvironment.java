@@ -0,0 +1,418 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Raymond Buckley.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ray3k.remotecrashcars.headless;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Polygon;
+import com.badlogic.gdx.utils.Array;
+import com.ray3k.remotecrashcars.InputFrame;
+import com.ray3k.remotecrashcars.entities.DistanceField;
+import com.ray3k.remotecrashcars.entities.LevelData;
+import com.ray3k.remotecrashcars.entities.TrackCache;
+import com.ray3k.remotecrashcars.entities.VehicleHull;
+import com.ray3k.remotecrashcars.entities.VehicleInput;
+import com.ray3k.remotecrashcars.entities.VehicleSimulator;
+import com.ray3k.remotecrashcars.states.GameState;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Steps many independent races at once for training and tuning experiments.
+ * Every race has its own vehicle and lap progress but they all share one
+ * read only {@link LevelData} and {@link VehicleHull}. There are no entities,
+ * sounds or skeletons, only a {@link VehicleSimulator} and the wall and
+ * checkpoint tests a {@link com.ray3k.remotecrashcars.entities.PlayerEntity}
+ * does each tick.
+ * <p>
+ * {@link #step(int[])} takes one {@link InputFrame} bit set per race and
+ * writes {@link #OBSERVATION_SIZE} floats per race into an array allocated
+ * once, along with a reward and a done flag. A race that crashes or runs out
+ * of ticks is reported as done and starts over from the spawn point in the
+ * same step. The races are split into fixed shards that run on a
+ * {@link ForkJoinPool}; stepping allocates nothing.
+ */
+public class VectorEnvironment {
+    public final static int X = 0;
+    public final static int Y = 1;
+    public final static int ROTATION = 2;
+    public final static int SPEED = 3;
+    public final static int STEER_ANGLE = 4;
+    public final static int CLEARANCE = 5;
+    public final static int NEXT_CHECKPOINT = 6;
+    public final static int LAPS = 7;
+    public final static int OBSERVATION_SIZE = 8;
+    public final static float CHECKPOINT_REWARD = 1.0f;
+    public final static float CRASH_REWARD = -1.0f;
+    private final static int MIN_SHARD_SIZE = 16;
+    private final LevelData levelData;
+    private final VehicleHull hull;
+    private final int count;
+    private final VehicleSimulator[] simulators;
+    private final Array<Polygon>[] polygons;
+    private final int[] nextCheckpoints;
+    private final int[] laps;
+    private final int[] ticks;
+    private final int[] lapTicks;
+    private final int[] bestLapTicks;
+    private final float[] observations;
+    private final float[] rewards;
+    private final boolean[] dones;
+    private final ForkJoinPool pool;
+    private final Shard[] shards;
+    private final RecursiveAction root;
+    private int[] actions;
+    private float stepTime;
+    private int maxTicks;
+    private long totalSteps;
+
+    /**
+     * @param parallelism the number of threads to step on. With 1 every race
+     * is stepped on the calling thread and no pool is started.
+     */
+    public VectorEnvironment(LevelData levelData, VehicleHull hull, int count, int parallelism) {
+        this.levelData = levelData;
+        this.hull = hull;
+        this.count = count;
+        
+        simulators = new VehicleSimulator[count];
+        polygons = newPolygonArrays(count);
+        for (int i = 0; i < count; i++) {
+            simulators[i] = new VehicleSimulator();
+            polygons[i] = hull.createPolygons();
+        }
+        nextCheckpoints = new int[count];
+        laps = new int[count];
+        ticks = new int[count];
+        lapTicks = new int[count];
+        bestLapTicks = new int[count];
+        observations = new float[count * OBSERVATION_SIZE];
+        rewards = new float[count];
+        dones = new boolean[count];
+        
+        int shardCount = parallelism <= 1 ? 1 : Math.max(1, Math.min(parallelism * 4, count / MIN_SHARD_SIZE));
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(count * i / shardCount, count * (i + 1) / shardCount);
+        }
+        
+        if (shardCount > 1) {
+            pool = new ForkJoinPool(parallelism);
+            root = new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    ForkJoinTask.invokeAll(shards);
+                }
+            };
+        } else {
+            pool = null;
+            root = null;
+        }
+        
+        stepTime = 1.0f / 100.0f;
+        setTuning(500.0f, 500.0f, 200.0f, 375.0f, 25.0f);
+        reset();
+    }
+
+    /**
+     * Builds an environment for one of the game's tracks and vehicle models.
+     * {@link Gdx#files} must be set and the working directory must be
+     * core/assets.
+     */
+    public static VectorEnvironment create(GameState.Track track, GameState.Model model, int count, int parallelism) {
+        return new VectorEnvironment(loadLevelData(track), loadHull(model), count, parallelism);
+    }
+
+    /**
+     * Reads a track and its distance field from their caches, building them
+     * from the skeleton if there are no up to date ones. Nothing is written.
+     */
+    public static LevelData loadLevelData(GameState.Track track) {
+        FileHandle source = Gdx.files.internal(track.getSkeletonPath());
+        LevelData levelData = TrackCache.read(LevelData.getCacheFile(track.getSkeletonPath()), source);
+        if (levelData == null) {
+            levelData = new LevelData(HeadlessSkeletonDataLoader.readSkeletonData(source, 1.0f));
+        }
+        
+        DistanceField distanceField = DistanceField.read(LevelData.getDistanceFieldFile(track.getSkeletonPath()), source);
+        if (distanceField == null) {
+            distanceField = DistanceField.bake(levelData.getTree(), LevelData.WORLD_SIZE, DistanceField.DEFAULT_CELL_SIZE);
+        }
+        levelData.setDistanceField(distanceField);
+        return levelData;
+    }
+
+    public static VehicleHull loadHull(GameState.Model model) {
+        return VehicleHull.get(HeadlessSkeletonDataLoader.readSkeletonData(Gdx.files.internal(model.getSkeletonPath()), 1.0f));
+    }
+
+    /**
+     * Copies the handling values to every race.
+     */
+    public void setTuning(float acceleration, float maxSpeed, float friction, float braking, float steerAngle) {
+        for (int i = 0; i < count; i++) {
+            simulators[i].setTuning(acceleration, maxSpeed, friction, braking, steerAngle);
+        }
+    }
+
+    /**
+     * @param latency the number of ticks between an action and the vehicle
+     * responding to it, in every race.
+     */
+    public void setLatency(int latency) {
+        for (int i = 0; i < count; i++) {
+            simulators[i].setLatency(latency);
+        }
+    }
+
+    /**
+     * Starts every race over from the spawn point and refreshes the
+     * observations.
+     */
+    public void reset() {
+        for (int i = 0; i < count; i++) {
+            reset(i);
+            observe(i);
+            rewards[i] = 0.0f;
+            dones[i] = false;
+        }
+    }
+
+    private void reset(int index) {
+        simulators[index].reset(levelData.getSpawnX(), levelData.getSpawnY(), levelData.getSpawnRotation());
+        nextCheckpoints[index] = levelData.getCheckpointCount() > 1 ? 1 : 0;
+        laps[index] = 0;
+        ticks[index] = 0;
+        lapTicks[index] = 0;
+    }
+
+    /**
+     * Advances every race by one tick.
+     * @param actions the {@link InputFrame} bits held in each race, at least
+     * {@link #getCount()} of them.
+     * @return the observations after the step, {@link #OBSERVATION_SIZE}
+     * floats per race. The same array is returned every step.
+     */
+    public float[] step(int[] actions) {
+        if (actions.length < count) {
+            throw new IllegalArgumentException("Expected " + count + " actions: " + actions.length);
+        }
+        this.actions = actions;
+        
+        if (pool == null) {
+            shards[0].compute();
+        } else {
+            for (int i = 0; i < shards.length; i++) {
+                shards[i].reinitialize();
+            }
+            root.reinitialize();
+            pool.invoke(root);
+        }
+        
+        this.actions = null;
+        totalSteps += count;
+        return observations;
+    }
+
+    private void step(int index, Shard shard) {
+        int action = actions[index];
+        VehicleInput input = shard.input;
+        input.set((action & InputFrame.UP) != 0, (action & InputFrame.DOWN) != 0, (action & InputFrame.LEFT) != 0, (action & InputFrame.RIGHT) != 0);
+        
+        VehicleSimulator simulator = simulators[index];
+        float previousX = simulator.getX();
+        float previousY = simulator.getY();
+        simulator.step(input, stepTime);
+        ticks[index]++;
+        lapTicks[index]++;
+        
+        float reward = 0.0f;
+        boolean done = false;
+        float x = simulator.getX();
+        float y = simulator.getY();
+        if (!levelData.isClear(x + hull.getPivotX(), y + hull.getPivotY(), hull.getRadius())) {
+            Array<Polygon> hullPolygons = polygons[index];
+            hull.transform(hullPolygons, x, y, simulator.getBodyRotation());
+            for (int i = 0; i < hullPolygons.size; i++) {
+                if (levelData.overlapsWall(hullPolygons.get(i))) {
+                    reward = CRASH_REWARD;
+                    done = true;
+                    shard.crashes++;
+                    break;
+                }
+            }
+        }
+        
+        int checkpoint = nextCheckpoints[index];
+        if (!done && levelData.crossesCheckpoint(checkpoint, previousX, previousY, x, y)) {
+            reward += CHECKPOINT_REWARD;
+            if (checkpoint == 0) {
+                laps[index]++;
+                if (bestLapTicks[index] == 0 || lapTicks[index] < bestLapTicks[index]) {
+                    bestLapTicks[index] = lapTicks[index];
+                }
+                lapTicks[index] = 0;
+            }
+            nextCheckpoints[index] = (checkpoint + 1) % levelData.getCheckpointCount();
+        }
+        
+        if (maxTicks > 0 && ticks[index] >= maxTicks) {
+            done = true;
+        }
+        
+        if (done) {
+            reset(index);
+        }
+        rewards[index] = reward;
+        dones[index] = done;
+        observe(index);
+    }
+
+    private void observe(int index) {
+        VehicleSimulator simulator = simulators[index];
+        int o = index * OBSERVATION_SIZE;
+        observations[o + X] = simulator.getX();
+        observations[o + Y] = simulator.getY();
+        observations[o + ROTATION] = simulator.getRotation();
+        observations[o + SPEED] = simulator.getSpeed();
+        observations[o + STEER_ANGLE] = simulator.getSteerAngle();
+        DistanceField distanceField = levelData.getDistanceField();
+        observations[o + CLEARANCE] = distanceField == null ? -1.0f : distanceField.getSafeDistance(simulator.getX(), simulator.getY());
+        observations[o + NEXT_CHECKPOINT] = nextCheckpoints[index];
+        observations[o + LAPS] = laps[index];
+    }
+
+    /**
+     * Stops the worker threads. The environment can't be stepped afterwards.
+     */
+    public void dispose() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public float[] getObservations() {
+        return observations;
+    }
+
+    /**
+     * @return the reward each race earned in the last step:
+     * {@link #CHECKPOINT_REWARD} for each gate crossed in order and
+     * {@link #CRASH_REWARD} for hitting a wall.
+     */
+    public float[] getRewards() {
+        return rewards;
+    }
+
+    /**
+     * @return whether each race ended in the last step and was started over.
+     */
+    public boolean[] getDones() {
+        return dones;
+    }
+
+    /**
+     * @return the ticks taken by the fastest lap of each race since the
+     * environment was created, or 0 if it hasn't finished one.
+     */
+    public int[] getBestLapTicks() {
+        return bestLapTicks;
+    }
+
+    public LevelData getLevelData() {
+        return levelData;
+    }
+
+    public float getStepTime() {
+        return stepTime;
+    }
+
+    public void setStepTime(float stepTime) {
+        this.stepTime = stepTime;
+    }
+
+    public int getMaxTicks() {
+        return maxTicks;
+    }
+
+    /**
+     * @param maxTicks the number of ticks after which a race is ended and
+     * started over, or 0 to only end races on a crash.
+     */
+    public void setMaxTicks(int maxTicks) {
+        this.maxTicks = maxTicks;
+    }
+
+    /**
+     * @return the number of times a vehicle hit a wall, across every race.
+     */
+    public long getCrashes() {
+        long crashes = 0;
+        for (int i = 0; i < shards.length; i++) {
+            crashes += shards[i].crashes;
+        }
+        return crashes;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static Array<Polygon>[] newPolygonArrays(int count) {
+        return new Array[count];
+    }
+
+    /**
+     * @return the number of race ticks simulated, across every race.
+     */
+    public long getTotalSteps() {
+        return totalSteps;
+    }
+
+    /**
+     * A fixed range of races stepped by one task.
+     */
+    private class Shard extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+        private final VehicleInput input;
+        private long crashes;
+
+        public Shard(int from, int to) {
+            this.from = from;
+            this.to = to;
+            input = new VehicleInput();
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = from; i < to; i++) {
+                step(i, this);
+            }
+        }
+    }
+}